@@ -0,0 +1,37 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.DataModelDTO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java source generation for every model of a request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodegenBenchmark extends ModelBenchmarkState {
+
+    private JavaCompilerService compilerService;
+    private List<DataModelDTO> models;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        compilerService = compilerService(CompilerProperties.Backend.JAVAC);
+        models = models();
+    }
+
+    @Benchmark
+    public void generateJavaCode(Blackhole blackhole) {
+        for (DataModelDTO model : models) {
+            blackhole.consume(compilerService.generateJavaCode(model, CodegenOptions.DEFAULT, Set.of()));
+        }
+    }
+}
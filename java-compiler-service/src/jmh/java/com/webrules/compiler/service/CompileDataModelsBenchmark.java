@@ -0,0 +1,38 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.DataModelDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole compile path of a request with caching off, per backend: {@code AUTO} emits
+ * plain models directly, {@code JAVAC} sends everything through javac.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CompileDataModelsBenchmark extends ModelBenchmarkState {
+
+    @Param({"AUTO", "JAVAC"})
+    public CompilerProperties.Backend backend;
+
+    private JavaCompilerService compilerService;
+    private List<DataModelDTO> models;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        compilerService = compilerService(backend);
+        models = models();
+    }
+
+    @Benchmark
+    public Map<String, byte[]> compileDataModels() throws Exception {
+        return compilerService.compileDataModels(models);
+    }
+}
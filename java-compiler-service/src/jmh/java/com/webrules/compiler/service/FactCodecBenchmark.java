@@ -0,0 +1,182 @@
+package com.webrules.compiler.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.GenerationMode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning facts into bytes and back with the generated binary codec, compared to
+ * Jackson JSON on the same mutable facts. Both sides encode the whole batch each time;
+ * the codec writes into a reused buffer, Jackson into a fresh array per fact.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FactCodecBenchmark {
+
+    private static final int FACT_COUNT = 256;
+
+    @Param({"5", "20"})
+    public int fieldCount;
+
+    private Object[] facts;
+    private MethodHandle encode;
+    private MethodHandle decode;
+    private ByteBuffer buffer;
+    private ByteBuffer encoded;
+    private ObjectWriter jsonWriter;
+    private ObjectReader jsonReader;
+    private byte[][] json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        CompilerProperties properties = new CompilerProperties();
+        properties.setBackend(CompilerProperties.Backend.JAVAC);
+        properties.getBytecodeCache().setEnabled(false);
+        properties.getBuildRegistry().setEnabled(false);
+        CompilerContextPool pool = new CompilerContextPool(properties);
+        DataModelDTO model = SyntheticModels.generate(1, fieldCount, SyntheticModels.FieldMix.MIXED).get(0);
+        Map<String, byte[]> classes = new JavaCompilerService(properties, pool, new BytecodeCache(properties),
+            new BytecodeModelCompiler(), new BuildRegistry(properties), ModelBenchmarkState.METRICS,
+            new PartitionedCompiler(properties))
+            .build(List.of(model), new CodegenOptions(GenerationMode.MUTABLE, false, true, false), null,
+                CompileProgressListener.NONE, CancellationToken.NONE)
+            .classes();
+        pool.destroy();
+        
+        BytesClassLoader loader = new BytesClassLoader(classes);
+        String className = model.getPackageName() + "." + model.getName();
+        Class<?> factClass = loader.loadClass(className);
+        Class<?> codecClass = loader.loadClass(className + "$Codec");
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        encode = lookup.findStatic(codecClass, "encode", MethodType.methodType(void.class, ByteBuffer.class, factClass))
+            .asType(MethodType.methodType(void.class, ByteBuffer.class, Object.class));
+        decode = lookup.findStatic(codecClass, "decode", MethodType.methodType(factClass, ByteBuffer.class))
+            .asType(MethodType.methodType(Object.class, ByteBuffer.class));
+        
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        jsonWriter = mapper.writerFor(factClass);
+        jsonReader = mapper.readerFor(factClass);
+        
+        facts = new Object[FACT_COUNT];
+        json = new byte[FACT_COUNT][];
+        buffer = ByteBuffer.allocate(FACT_COUNT * 64 * (fieldCount + 1));
+        for (int i = 0; i < FACT_COUNT; i++) {
+            facts[i] = newFact(factClass, i);
+            json[i] = jsonWriter.writeValueAsBytes(facts[i]);
+            encode.invokeExact(buffer, facts[i]);
+        }
+        encoded = buffer.flip().asReadOnlyBuffer();
+        
+        // Both formats must give back what was written, or the comparison is meaningless
+        for (Object fact : facts) {
+            Object fromCodec = (Object) decode.invokeExact(encoded);
+            if (!fact.toString().equals(fromCodec.toString())) {
+                throw new IllegalStateException("Codec round trip changed " + fact + " into " + fromCodec);
+            }
+        }
+        for (int i = 0; i < FACT_COUNT; i++) {
+            Object fromJson = jsonReader.readValue(json[i]);
+            if (!facts[i].toString().equals(fromJson.toString())) {
+                throw new IllegalStateException("JSON round trip changed " + facts[i] + " into " + fromJson);
+            }
+        }
+    }
+
+    @Benchmark
+    public int codecEncode() throws Throwable {
+        buffer.clear();
+        for (Object fact : facts) {
+            encode.invokeExact(buffer, fact);
+        }
+        return buffer.position();
+    }
+
+    @Benchmark
+    public void codecDecode(Blackhole blackhole) throws Throwable {
+        ByteBuffer in = encoded.rewind();
+        for (int i = 0; i < FACT_COUNT; i++) {
+            blackhole.consume((Object) decode.invokeExact(in));
+        }
+    }
+
+    @Benchmark
+    public int jsonEncode() throws Exception {
+        int size = 0;
+        for (Object fact : facts) {
+            size += jsonWriter.writeValueAsBytes(fact).length;
+        }
+        return size;
+    }
+
+    @Benchmark
+    public void jsonDecode(Blackhole blackhole) throws Exception {
+        for (byte[] bytes : json) {
+            blackhole.consume(jsonReader.readValue(bytes));
+        }
+    }
+
+    private static Object newFact(Class<?> factClass, int i) throws Exception {
+        Object fact = factClass.getConstructor().newInstance();
+        for (Field field : factClass.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            String name = field.getName();
+            factClass.getMethod("set" + Character.toUpperCase(name.charAt(0)) + name.substring(1), field.getType())
+                .invoke(fact, value(field.getType(), i));
+        }
+        return fact;
+    }
+
+    private static Object value(Class<?> type, int i) {
+        if (type == double.class) {
+            return i * 0.5;
+        } else if (type == boolean.class) {
+            return i % 2 == 0;
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i);
+        } else if (type == List.class) {
+            return List.of("item" + i);
+        }
+        return "value" + i;
+    }
+
+    private static final class BytesClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+        
+        BytesClassLoader(Map<String, byte[]> classes) {
+            super(FactCodecBenchmark.class.getClassLoader());
+            this.classes = classes;
+        }
+        
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
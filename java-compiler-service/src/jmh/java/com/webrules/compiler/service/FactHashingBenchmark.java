@@ -0,0 +1,150 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.GenerationMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of hashing generated facts and of putting them into hash-based collections, the
+ * way a rule engine indexes them, for the mutable and the immutable class shape.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FactHashingBenchmark {
+
+    private static final int FACT_COUNT = 1024;
+
+    @Param({"MUTABLE", "IMMUTABLE"})
+    public GenerationMode generationMode;
+
+    @Param({"5", "20"})
+    public int fieldCount;
+
+    private Object[] facts;
+    private Object[] equalFacts;
+    private Set<Object> indexed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        CompilerProperties properties = new CompilerProperties();
+        properties.setBackend(CompilerProperties.Backend.JAVAC);
+        properties.getBytecodeCache().setEnabled(false);
+        properties.getBuildRegistry().setEnabled(false);
+        CompilerContextPool pool = new CompilerContextPool(properties);
+        DataModelDTO model = SyntheticModels.generate(1, fieldCount, SyntheticModels.FieldMix.MIXED).get(0);
+        Map<String, byte[]> classes = new JavaCompilerService(properties, pool, new BytecodeCache(properties),
+            new BytecodeModelCompiler(), new BuildRegistry(properties), ModelBenchmarkState.METRICS,
+            new PartitionedCompiler(properties))
+            .build(List.of(model), new CodegenOptions(generationMode, false, false, false), null,
+                CompileProgressListener.NONE, CancellationToken.NONE)
+            .classes();
+        pool.destroy();
+        
+        Class<?> factClass = new BytesClassLoader(classes).loadClass(model.getPackageName() + "." + model.getName());
+        facts = new Object[FACT_COUNT];
+        equalFacts = new Object[FACT_COUNT];
+        for (int i = 0; i < FACT_COUNT; i++) {
+            facts[i] = newFact(factClass, i);
+            equalFacts[i] = newFact(factClass, i);
+        }
+        indexed = new HashSet<>(List.of(facts));
+    }
+
+    @Benchmark
+    public int hashCodes() {
+        int sum = 0;
+        for (Object fact : facts) {
+            sum += fact.hashCode();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Set<Object> insert() {
+        Set<Object> set = new HashSet<>(FACT_COUNT * 2);
+        for (Object fact : facts) {
+            set.add(fact);
+        }
+        return set;
+    }
+
+    /**
+     * Lookups with equal but distinct instances, so every hit goes through {@code equals}.
+     */
+    @Benchmark
+    public int lookup() {
+        int hits = 0;
+        for (Object fact : equalFacts) {
+            if (indexed.contains(fact)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Builds fact {@code i} through the setters of a mutable class or the builder of an
+     * immutable one, with values that differ per fact.
+     */
+    private Object newFact(Class<?> factClass, int i) throws Exception {
+        boolean immutable = generationMode == GenerationMode.IMMUTABLE;
+        Object target = immutable ? factClass.getMethod("builder").invoke(null) : factClass.getConstructor().newInstance();
+        for (Field field : factClass.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.getName().startsWith("$")) {
+                continue;
+            }
+            String name = field.getName();
+            Method setter = immutable
+                ? target.getClass().getMethod(name, field.getType())
+                : factClass.getMethod("set" + Character.toUpperCase(name.charAt(0)) + name.substring(1), field.getType());
+            setter.invoke(target, value(field.getType(), i));
+        }
+        return immutable ? target.getClass().getMethod("build").invoke(target) : target;
+    }
+
+    private static Object value(Class<?> type, int i) {
+        if (type == double.class) {
+            return i * 0.5;
+        } else if (type == boolean.class) {
+            return i % 2 == 0;
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i);
+        } else if (type == List.class) {
+            return List.of("item" + i);
+        }
+        return "value" + i;
+    }
+
+    private static final class BytesClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+        
+        BytesClassLoader(Map<String, byte[]> classes) {
+            super(FactHashingBenchmark.class.getClassLoader());
+            this.classes = classes;
+        }
+        
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.accessor.IndexedFields;
+import com.webrules.compiler.accessor.MutableIndexedFields;
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.GenerationMode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading and writing every field of a batch of facts when the field is only known
+ * by position at runtime, the way rule engines and mapping layers access them: through the
+ * generated indexed accessors, through {@link Field} and through {@link MethodHandle}s.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FieldAccessBenchmark {
+
+    private static final int FACT_COUNT = 256;
+
+    @Param({"5", "20"})
+    public int fieldCount;
+
+    private Object[] facts;
+    private Object[][] values;
+    private Field[] fields;
+    private MethodHandle[] getters;
+    private MethodHandle[] setters;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        CompilerProperties properties = new CompilerProperties();
+        properties.setBackend(CompilerProperties.Backend.JAVAC);
+        properties.getBytecodeCache().setEnabled(false);
+        properties.getBuildRegistry().setEnabled(false);
+        CompilerContextPool pool = new CompilerContextPool(properties);
+        DataModelDTO model = SyntheticModels.generate(1, fieldCount, SyntheticModels.FieldMix.MIXED).get(0);
+        Map<String, byte[]> classes = new JavaCompilerService(properties, pool, new BytecodeCache(properties),
+            new BytecodeModelCompiler(), new BuildRegistry(properties), ModelBenchmarkState.METRICS,
+            new PartitionedCompiler(properties))
+            .build(List.of(model), new CodegenOptions(GenerationMode.MUTABLE, false, false, true), null,
+                CompileProgressListener.NONE, CancellationToken.NONE)
+            .classes();
+        pool.destroy();
+        
+        Class<?> factClass = new BytesClassLoader(classes).loadClass(model.getPackageName() + "." + model.getName());
+        List<Field> instanceFields = new ArrayList<>();
+        for (Field field : factClass.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                field.setAccessible(true);
+                instanceFields.add(field);
+            }
+        }
+        fields = instanceFields.toArray(new Field[0]);
+        getters = new MethodHandle[fields.length];
+        setters = new MethodHandle[fields.length];
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(factClass, MethodHandles.lookup());
+        for (int i = 0; i < fields.length; i++) {
+            getters[i] = lookup.unreflectGetter(fields[i]).asType(MethodType.methodType(Object.class, Object.class));
+            setters[i] = lookup.unreflectSetter(fields[i]).asType(MethodType.methodType(void.class, Object.class, Object.class));
+        }
+        
+        facts = new Object[FACT_COUNT];
+        values = new Object[FACT_COUNT][fields.length];
+        for (int i = 0; i < FACT_COUNT; i++) {
+            facts[i] = factClass.getConstructor().newInstance();
+            for (int f = 0; f < fields.length; f++) {
+                values[i][f] = value(fields[f].getType(), i);
+                fields[f].set(facts[i], values[i][f]);
+            }
+        }
+        
+        // The indexes must follow the declared fields, or the approaches would not read the same data
+        IndexedFields first = (IndexedFields) facts[0];
+        for (int f = 0; f < fields.length; f++) {
+            if (!fields[f].getName().equals(first.fieldName(f)) || first.fieldIndex(fields[f].getName()) != f
+                || !values[0][f].equals(first.get(f))) {
+                throw new IllegalStateException("Indexed accessor " + f + " does not match field " + fields[f]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void indexedGet(Blackhole blackhole) {
+        for (Object fact : facts) {
+            IndexedFields indexed = (IndexedFields) fact;
+            for (int f = 0; f < indexed.fieldCount(); f++) {
+                blackhole.consume(indexed.get(f));
+            }
+        }
+    }
+
+    @Benchmark
+    public void reflectionGet(Blackhole blackhole) throws Exception {
+        for (Object fact : facts) {
+            for (Field field : fields) {
+                blackhole.consume(field.get(fact));
+            }
+        }
+    }
+
+    @Benchmark
+    public void methodHandleGet(Blackhole blackhole) throws Throwable {
+        for (Object fact : facts) {
+            for (MethodHandle getter : getters) {
+                blackhole.consume((Object) getter.invokeExact(fact));
+            }
+        }
+    }
+
+    @Benchmark
+    public void indexedSet() {
+        for (int i = 0; i < FACT_COUNT; i++) {
+            MutableIndexedFields indexed = (MutableIndexedFields) facts[i];
+            Object[] factValues = values[i];
+            for (int f = 0; f < factValues.length; f++) {
+                indexed.set(f, factValues[f]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void reflectionSet() throws Exception {
+        for (int i = 0; i < FACT_COUNT; i++) {
+            Object fact = facts[i];
+            Object[] factValues = values[i];
+            for (int f = 0; f < factValues.length; f++) {
+                fields[f].set(fact, factValues[f]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void methodHandleSet() throws Throwable {
+        for (int i = 0; i < FACT_COUNT; i++) {
+            Object fact = facts[i];
+            Object[] factValues = values[i];
+            for (int f = 0; f < factValues.length; f++) {
+                setters[f].invokeExact(fact, factValues[f]);
+            }
+        }
+    }
+
+    private static Object value(Class<?> type, int i) {
+        if (type == double.class) {
+            return i * 0.5;
+        } else if (type == boolean.class) {
+            return i % 2 == 0;
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i);
+        } else if (type == List.class) {
+            return List.of("item" + i);
+        }
+        return "value" + i;
+    }
+
+    private static final class BytesClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+        
+        BytesClassLoader(Map<String, byte[]> classes) {
+            super(FieldAccessBenchmark.class.getClassLoader());
+            this.classes = classes;
+        }
+        
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
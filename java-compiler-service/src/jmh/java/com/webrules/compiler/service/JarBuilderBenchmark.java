@@ -0,0 +1,39 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Packaging already compiled classes into an in-memory JAR, with and without pooled buffers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JarBuilderBenchmark extends ModelBenchmarkState {
+
+    @Param({"true", "false"})
+    public boolean pooledBuffers;
+
+    private JarBuilderService jarBuilderService;
+    private Map<String, byte[]> classes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        classes = compilerService(CompilerProperties.Backend.AUTO).compileDataModels(models());
+        CompilerProperties properties = new CompilerProperties();
+        properties.getBuffers().setEnabled(pooledBuffers);
+        jarBuilderService = new JarBuilderService(properties, METRICS);
+    }
+
+    @Benchmark
+    public byte[] buildJar() throws Exception {
+        return jarBuilderService.buildJar(classes, "benchmark", "1.0.0", "Web Rules", "JMH", false, null,
+            Deflater.DEFAULT_COMPRESSION);
+    }
+}
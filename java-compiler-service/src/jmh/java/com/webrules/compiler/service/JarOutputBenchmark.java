@@ -0,0 +1,75 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Heap cost of answering with a JAR: assembled in memory and then written out, as
+ * {@code compiler.jar.streaming=false} does, or written straight into the response, here an
+ * {@code OutputStream} that discards everything. Run with {@code -prof gc} (the benchmark
+ * profile's default) and compare {@code gc.alloc.rate.norm}, the bytes allocated per JAR.
+ * JMH cannot show peak heap; the loadtest profile reports it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JarOutputBenchmark {
+
+    public enum Output {
+        /** {@code buildJar}, then the bytes are written out */
+        BUFFERED,
+        /** {@code writeJar} into the output */
+        STREAMED
+    }
+
+    @Param({"100", "1000", "5000"})
+    public int modelCount;
+
+    @Param({"BUFFERED", "STREAMED"})
+    public Output output;
+
+    private final OutputStream discard = OutputStream.nullOutputStream();
+    private JarBuilderService jarBuilderService;
+    private Map<String, byte[]> classes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        CompilerProperties properties = new CompilerProperties();
+        properties.getBytecodeCache().setEnabled(false);
+        properties.getBuildRegistry().setEnabled(false);
+        CompilerContextPool pool = new CompilerContextPool(properties);
+        classes = new JavaCompilerService(properties, pool, new BytecodeCache(properties), new BytecodeModelCompiler(),
+            new BuildRegistry(properties), ModelBenchmarkState.METRICS, new PartitionedCompiler(properties))
+            .compileDataModels(SyntheticModels.generate(modelCount, 20, SyntheticModels.FieldMix.MIXED));
+        pool.destroy();
+        
+        jarBuilderService = new JarBuilderService(properties, ModelBenchmarkState.METRICS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jarBuilderService.destroy();
+    }
+
+    @Benchmark
+    public long writeJar() throws Exception {
+        return switch (output) {
+            case BUFFERED -> {
+                byte[] jar = jarBuilderService.buildJar(classes, "benchmark", "1.0.0", "Web Rules", "JMH", false, null,
+                    Deflater.DEFAULT_COMPRESSION);
+                discard.write(jar);
+                yield jar.length;
+            }
+            case STREAMED -> jarBuilderService.writeJar(discard, classes, "benchmark", "1.0.0", "Web Rules", "JMH",
+                false, null, Deflater.DEFAULT_COMPRESSION);
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JAR packaging throughput by deflate thread count and compression level.
+ * {@code parallelism=0} is the sequential {@code JarOutputStream} writer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JarPackagingBenchmark {
+
+    @Param({"100", "1000"})
+    public int modelCount;
+
+    @Param({"0", "1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"-1", "1", "0"})
+    public int compressionLevel;
+
+    private JarBuilderService jarBuilderService;
+    private Map<String, byte[]> classes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        CompilerProperties properties = new CompilerProperties();
+        properties.getBytecodeCache().setEnabled(false);
+        properties.getBuildRegistry().setEnabled(false);
+        CompilerContextPool pool = new CompilerContextPool(properties);
+        classes = new JavaCompilerService(properties, pool, new BytecodeCache(properties), new BytecodeModelCompiler(),
+            new BuildRegistry(properties), ModelBenchmarkState.METRICS, new PartitionedCompiler(properties))
+            .compileDataModels(SyntheticModels.generate(modelCount, 20, SyntheticModels.FieldMix.MIXED));
+        pool.destroy();
+        
+        properties.getJar().setParallel(parallelism > 0);
+        properties.getJar().setParallelism(Math.max(1, parallelism));
+        jarBuilderService = new JarBuilderService(properties, ModelBenchmarkState.METRICS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jarBuilderService.destroy();
+    }
+
+    @Benchmark
+    public byte[] buildJar() throws Exception {
+        return jarBuilderService.buildJar(classes, "benchmark", "1.0.0", "Web Rules", "JMH", false, null, compressionLevel);
+    }
+}
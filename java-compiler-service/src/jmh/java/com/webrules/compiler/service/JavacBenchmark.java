@@ -0,0 +1,50 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.DataModelDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One batched javac task over pre-generated sources, excluding source generation, with
+ * and without the minimal class path and pooled class file buffers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JavacBenchmark extends ModelBenchmarkState {
+
+    @Param({"true", "false"})
+    public boolean minimalClasspath;
+
+    @Param({"true", "false"})
+    public boolean pooledBuffers;
+
+    private JavaCompilerService compilerService;
+    private List<InMemoryJavaFileObject> sources;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CompilerProperties properties = properties(CompilerProperties.Backend.JAVAC);
+        properties.getJavac().setMinimalClasspath(minimalClasspath);
+        properties.getBuffers().setEnabled(pooledBuffers);
+        compilerService = compilerService(properties);
+        sources = new ArrayList<>();
+        for (DataModelDTO model : models()) {
+            String className = model.getPackageName() + "." + model.getName();
+            sources.add(new InMemoryJavaFileObject(className, compilerService.generateJavaCode(model, CodegenOptions.DEFAULT, Set.of())));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Map<String, byte[]>> compileJavaCode() throws Exception {
+        return compilerService.compileJavaCode(sources, Map.of(), CancellationToken.NONE);
+    }
+}
@@ -0,0 +1,73 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.DataModelDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+
+/**
+ * Parameters shared by the benchmarks: how many models, how many fields per model and
+ * which field types they use.
+ */
+@State(Scope.Benchmark)
+public abstract class ModelBenchmarkState {
+
+    @Param({"1", "10", "100", "1000"})
+    public int modelCount;
+
+    @Param({"5", "20"})
+    public int fieldCount;
+
+    @Param({"SCALAR", "MIXED"})
+    public SyntheticModels.FieldMix fieldMix;
+
+    /**
+     * Metrics are recorded as in production, into a registry nobody reads.
+     */
+    protected static final CompilerMetrics METRICS = new CompilerMetrics(new SimpleMeterRegistry());
+
+    private CompilerContextPool compilerPool;
+
+    protected List<DataModelDTO> models() {
+        return SyntheticModels.generate(modelCount, fieldCount, fieldMix);
+    }
+
+    /**
+     * Compiler service outside Spring, with the bytecode cache and build registry off so
+     * that every invocation does the full work.
+     */
+    protected JavaCompilerService compilerService(CompilerProperties.Backend backend) {
+        return compilerService(properties(backend));
+    }
+
+    /**
+     * Settings with the caches disabled, for benchmarks that change further settings.
+     */
+    protected CompilerProperties properties(CompilerProperties.Backend backend) {
+        CompilerProperties properties = new CompilerProperties();
+        properties.setBackend(backend);
+        properties.getBytecodeCache().setEnabled(false);
+        properties.getBuildRegistry().setEnabled(false);
+        return properties;
+    }
+
+    protected JavaCompilerService compilerService(CompilerProperties properties) {
+        compilerPool = new CompilerContextPool(properties);
+        return new JavaCompilerService(properties, compilerPool, new BytecodeCache(properties),
+            new BytecodeModelCompiler(), new BuildRegistry(properties), METRICS,
+            new PartitionedCompiler(properties));
+    }
+
+    @TearDown(Level.Trial)
+    public void closeCompilerPool() {
+        if (compilerPool != null) {
+            compilerPool.destroy();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.webrules.compiler.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webrules.compiler.JavaCompilerApplication;
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.service.CompileScheduler;
+import com.webrules.compiler.service.JarArtifactService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Starts the service on a random port and drives {@code POST /api/compiler/compile} with
+ * {@code loadtest.concurrency} clients, each sending synthetic requests of the
+ * {@code loadtest.mix} workloads back to back. After {@code loadtest.warmup} the requests
+ * completing within {@code loadtest.duration} are measured, together with the heap, GC and
+ * CPU of the JVM, and written as a {@link LoadTestReport} to {@code loadtest.result-file}.
+ * Run with: mvn -Ploadtest verify
+ * <p>
+ * All other arguments configure the service as usual, e.g. {@code --compiler.backend=javac}.
+ * Its logging defaults to WARN so that per-request logging does not skew the results.
+ */
+@Slf4j
+public class LoadTest {
+
+    private static final Map<String, String> DEFAULT_ARGUMENTS = Map.of(
+        "server.port", "0",
+        "logging.level.com.webrules.compiler", "WARN",
+        "logging.level.com.webrules.compiler.loadtest", "INFO");
+
+    private final LoadTestSettings settings;
+    private final Map<Workload, Integer> weights;
+    private final ConfigurableApplicationContext context;
+    private final ObjectMapper objectMapper;
+    private final URI compileUri;
+    private final HttpClient client;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Queue<LoadTestReport.Sample> samples = new ConcurrentLinkedQueue<>();
+
+    LoadTest(LoadTestSettings settings, ConfigurableApplicationContext context) {
+        this.settings = settings;
+        this.weights = settings.weights();
+        this.context = context;
+        this.objectMapper = context.getBean(ObjectMapper.class);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        this.compileUri = URI.create("http://localhost:" + port + "/api/compiler/compile");
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    }
+
+    public static void main(String[] args) {
+        // Returns once the compiler warm-up has run and the service is ready
+        ConfigurableApplicationContext context = SpringApplication.run(JavaCompilerApplication.class,
+            withDefaults(args));
+        int exitCode = run(context);
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+
+    private static int run(ConfigurableApplicationContext context) {
+        try {
+            LoadTestSettings settings = Binder.get(context.getEnvironment())
+                .bindOrCreate("loadtest", LoadTestSettings.class);
+            LoadTestReport report = new LoadTest(settings, context).run();
+            Path resultFile = Path.of(settings.getResultFile());
+            context.getBean(ObjectMapper.class).writerWithDefaultPrettyPrinter()
+                .writeValue(resultFile.toFile(), report);
+            
+            LoadTestReport.Summary total = report.total();
+            log.info("{} requests, {} req/s, p50 {} ms, p95 {} ms, p99 {} ms, {} rejected, {} errors; written to {}",
+                total.requests(), String.format("%.1f", total.requestsPerSecond()),
+                String.format("%.1f", total.latencyMillis().p50()), String.format("%.1f", total.latencyMillis().p95()),
+                String.format("%.1f", total.latencyMillis().p99()), total.rejected(), total.errors(),
+                resultFile.toAbsolutePath());
+            return 0;
+        } catch (Exception e) {
+            log.error("Load test failed", e);
+            return 1;
+        }
+    }
+
+    private static String[] withDefaults(String[] args) {
+        List<String> arguments = new ArrayList<>();
+        DEFAULT_ARGUMENTS.forEach((key, value) -> {
+            if (Arrays.stream(args).noneMatch(arg -> arg.startsWith("--" + key + "="))) {
+                arguments.add("--" + key + "=" + value);
+            }
+        });
+        arguments.addAll(Arrays.asList(args));
+        return arguments.toArray(String[]::new);
+    }
+
+    LoadTestReport run() throws Exception {
+        Instant startedAt = Instant.now();
+        long measureFrom = System.nanoTime() + settings.getWarmup().toNanos();
+        long measureUntil = measureFrom + settings.getDuration().toNanos();
+        log.info("Sending {} concurrent requests of {} for {} after a warm-up of {}", settings.getConcurrency(),
+            weights, settings.getDuration(), settings.getWarmup());
+        
+        Snapshot before;
+        Snapshot after;
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < settings.getConcurrency(); i++) {
+                Random random = new Random(settings.getSeed() + i);
+                futures.add(clients.submit(() -> {
+                    sendRequests(random, measureFrom, measureUntil);
+                    return null;
+                }));
+            }
+            sleepUntil(measureFrom);
+            before = snapshot();
+            sleepUntil(measureUntil);
+            after = snapshot();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return report(startedAt, before, after);
+    }
+
+    /**
+     * One client: sends requests until the measurement ends and records those that completed
+     * during it. Generating and serializing a request is not part of its latency.
+     */
+    private void sendRequests(Random random, long measureFrom, long measureUntil) throws Exception {
+        byte[] buffer = new byte[64 * 1024];
+        while (System.nanoTime() < measureUntil) {
+            Workload workload = pick(random);
+            byte[] body = objectMapper.writeValueAsBytes(
+                workload.request(settings.getSeed(), sequence.incrementAndGet()));
+            HttpRequest request = HttpRequest.newBuilder(compileUri)
+                .timeout(settings.getRequestTimeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+            
+            long start = System.nanoTime();
+            int status;
+            long bytes = 0;
+            try {
+                HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                // Read the JAR without keeping it, so that the client does not add to the heap
+                try (InputStream in = response.body()) {
+                    for (int n; (n = in.read(buffer)) >= 0; ) {
+                        bytes += n;
+                    }
+                }
+                status = response.statusCode();
+            } catch (IOException e) {
+                log.debug("Request failed", e);
+                status = LoadTestReport.Sample.FAILED;
+            }
+            long end = System.nanoTime();
+            if (end >= measureFrom && end <= measureUntil) {
+                samples.add(new LoadTestReport.Sample(workload, status, end - start, bytes));
+            }
+        }
+    }
+
+    private Workload pick(Random random) {
+        int total = weights.values().stream().mapToInt(Integer::intValue).sum();
+        int choice = random.nextInt(total);
+        for (Map.Entry<Workload, Integer> weight : weights.entrySet()) {
+            choice -= weight.getValue();
+            if (choice < 0) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("No workload for " + weights);
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining = nanoTime - System.nanoTime();
+        if (remaining > 0) {
+            Thread.sleep(Duration.ofNanos(remaining));
+        }
+    }
+
+    private LoadTestReport report(Instant startedAt, Snapshot before, Snapshot after) {
+        Duration duration = settings.getDuration();
+        List<LoadTestReport.Sample> measured = List.copyOf(samples);
+        Map<Workload, LoadTestReport.Summary> workloads = new EnumMap<>(Workload.class);
+        measured.stream()
+            .collect(Collectors.groupingBy(LoadTestReport.Sample::workload, () -> new EnumMap<>(Workload.class),
+                Collectors.toList()))
+            .forEach((workload, list) -> workloads.put(workload, LoadTestReport.Summary.of(list, duration)));
+        
+        CompileScheduler scheduler = context.getBean(CompileScheduler.class);
+        LoadTestReport.Host host = new LoadTestReport.Host(Runtime.getRuntime().availableProcessors(),
+            Runtime.version().toString(), context.getBean(CompilerProperties.class).getBackend().name(),
+            scheduler.getMaxConcurrency());
+        LoadTestReport.Settings reportedSettings = new LoadTestReport.Settings(settings.getConcurrency(),
+            settings.getWarmup().toMillis() / 1e3, duration.toMillis() / 1e3, weights, settings.getSeed());
+        return new LoadTestReport(startedAt, host, reportedSettings, LoadTestReport.Summary.of(measured, duration),
+            workloads, after.jvmSince(before), after.serviceSince(before));
+    }
+
+    private Snapshot snapshot() {
+        Map<String, long[]> collectors = new LinkedHashMap<>();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collectors.put(collector.getName(), new long[] {collector.getCollectionCount(), collector.getCollectionTime()});
+        }
+        long heapPeak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPeak += pool.getPeakUsage().getUsed();
+                pool.resetPeakUsage();
+            }
+        }
+        com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        CompileScheduler scheduler = context.getBean(CompileScheduler.class);
+        JarArtifactService artifactService = context.getBean(JarArtifactService.class);
+        return new Snapshot(System.nanoTime(), os.getProcessCpuTime(), threads.getTotalThreadAllocatedBytes(),
+            collectors, heapPeak, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(),
+            scheduler.getSubmittedCount(), scheduler.getRejectedCount(), scheduler.getTimedOutCount(),
+            artifactService.getCoalescedCompilations());
+    }
+
+    /**
+     * JVM and service counters at one point in time. Taking a snapshot resets the peak heap
+     * usage, so {@code heapPeakBytes} is the peak since the previous snapshot.
+     */
+    private record Snapshot(long nanoTime, long cpuNanos, long allocatedBytes, Map<String, long[]> collectors,
+                            long heapPeakBytes, long heapUsedBytes, long compilations, long rejected,
+                            long timedOut, long coalescedCompilations) {
+
+        LoadTestReport.Jvm jvmSince(Snapshot before) {
+            double nanos = nanoTime - before.nanoTime;
+            List<LoadTestReport.Collector> gc = new ArrayList<>();
+            long gcMillis = 0;
+            for (Map.Entry<String, long[]> collector : collectors.entrySet()) {
+                long[] start = before.collectors.getOrDefault(collector.getKey(), new long[2]);
+                long count = collector.getValue()[0] - start[0];
+                long millis = collector.getValue()[1] - start[1];
+                gc.add(new LoadTestReport.Collector(collector.getKey(), count, millis));
+                gcMillis += millis;
+            }
+            return new LoadTestReport.Jvm(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax(),
+                heapPeakBytes, heapUsedBytes, (allocatedBytes - before.allocatedBytes) / 1e6 / (nanos / 1e9),
+                (cpuNanos - before.cpuNanos) / nanos, gcMillis * 1e6 / nanos, gc);
+        }
+
+        LoadTestReport.Service serviceSince(Snapshot before) {
+            return new LoadTestReport.Service(compilations - before.compilations, rejected - before.rejected,
+                timedOut - before.timedOut, coalescedCompilations - before.coalescedCompilations);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.webrules.compiler.loadtest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What {@link LoadTest} writes to {@code loadtest.result-file}. Rates are per second of the
+ * measurement. Latencies are in milliseconds, from sending a request to reading the last
+ * byte of its response, and only cover successful requests: a rejection is answered at
+ * once and would make the percentiles look better than they are.
+ */
+public record LoadTestReport(Instant startedAt, Host host, Settings settings, Summary total,
+                             Map<Workload, Summary> workloads, Jvm jvm, Service service) {
+
+    /**
+     * The machine and the configuration of the service under test. The load generator runs
+     * in the same JVM and takes its share of the processors.
+     */
+    public record Host(int availableProcessors, String javaVersion, String backend, int compileSlots) {
+    }
+
+    public record Settings(int concurrency, double warmupSeconds, double durationSeconds,
+                           Map<Workload, Integer> mix, long seed) {
+    }
+
+    /**
+     * Requests that completed during the measurement. {@code statuses} counts them per HTTP
+     * status, with {@code failed} for requests that got no response at all; errors are all
+     * requests that neither succeeded nor were rejected with 429.
+     */
+    public record Summary(long requests, long successful, long rejected, long errors,
+                          double requestsPerSecond, double successfulPerSecond, double rejectionRate,
+                          double errorRate, double receivedMegabytesPerSecond, Map<String, Long> statuses,
+                          Latency latencyMillis) {
+
+        static Summary of(List<Sample> samples, Duration duration) {
+            double seconds = duration.toNanos() / 1e9;
+            Map<String, Long> statuses = new TreeMap<>();
+            long successful = 0;
+            long rejected = 0;
+            long bytes = 0;
+            long[] latencies = new long[samples.size()];
+            for (Sample sample : samples) {
+                statuses.merge(sample.status() == Sample.FAILED ? "failed" : String.valueOf(sample.status()),
+                    1L, Long::sum);
+                if (sample.successful()) {
+                    latencies[(int) successful++] = sample.nanos();
+                } else if (sample.status() == 429) {
+                    rejected++;
+                }
+                bytes += sample.bytes();
+            }
+            long requests = samples.size();
+            long errors = requests - successful - rejected;
+            return new Summary(requests, successful, rejected, errors, requests / seconds,
+                successful / seconds, ratio(rejected, requests), ratio(errors, requests),
+                bytes / 1e6 / seconds, statuses, Latency.of(Arrays.copyOf(latencies, (int) successful)));
+        }
+
+        private static double ratio(long count, long total) {
+            return total == 0 ? 0 : (double) count / total;
+        }
+    }
+
+    public record Latency(double mean, double p50, double p95, double p99, double max) {
+
+        static Latency of(long[] nanos) {
+            if (nanos.length == 0) {
+                return new Latency(0, 0, 0, 0, 0);
+            }
+            Arrays.sort(nanos);
+            return new Latency(Arrays.stream(nanos).average().orElse(0) / 1e6, percentile(nanos, 0.50),
+                percentile(nanos, 0.95), percentile(nanos, 0.99), nanos[nanos.length - 1] / 1e6);
+        }
+
+        /**
+         * Nearest-rank percentile of sorted latencies, in milliseconds.
+         */
+        private static double percentile(long[] sorted, double quantile) {
+            int rank = (int) Math.ceil(quantile * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+
+    /**
+     * Heap and GC during the measurement. {@code heapPeakBytes} adds up the peaks of the
+     * heap pools, which need not have been reached at the same time, so it is an upper bound.
+     * {@code cpuCores} is the process CPU time per second of wall time.
+     */
+    public record Jvm(long heapMaxBytes, long heapPeakBytes, long heapUsedBytes,
+                      double allocatedMegabytesPerSecond, double cpuCores, double gcTimeRatio,
+                      List<Collector> collectors) {
+    }
+
+    public record Collector(String name, long collections, long timeMillis) {
+    }
+
+    /**
+     * Counters of the service during the measurement: compilations admitted by the compile
+     * scheduler, rejected because its queue was full or timed out in the queue, and requests
+     * that waited for an identical compilation instead of starting their own.
+     */
+    public record Service(long compilations, long rejected, long timedOut, long coalescedCompilations) {
+    }
+
+    /**
+     * One completed request; {@code status} is the HTTP status or {@link #FAILED}.
+     */
+    record Sample(Workload workload, int status, long nanos, long bytes) {
+
+        static final int FAILED = 0;
+
+        boolean successful() {
+            return status >= 200 && status < 300;
+        }
+    }
+}
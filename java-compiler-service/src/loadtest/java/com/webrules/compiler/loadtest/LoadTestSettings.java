@@ -0,0 +1,62 @@
+package com.webrules.compiler.loadtest;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * {@code loadtest.*} settings, passed as command-line arguments like every other property of
+ * the service under test.
+ */
+@Data
+public class LoadTestSettings {
+
+    /**
+     * Requests in flight at any time; each client sends its next request as soon as the
+     * previous one completed.
+     */
+    private int concurrency = 16;
+
+    /**
+     * Load before the measurement starts, so that the JIT and the caches settle.
+     */
+    private Duration warmup = Duration.ofSeconds(15);
+
+    private Duration duration = Duration.ofSeconds(60);
+
+    /**
+     * Relative weights of the workloads, e.g. {@code small=50,unique=25,repeated=20,large=5}.
+     */
+    private String mix = "small=50,unique=25,repeated=20,large=5";
+
+    /**
+     * Seed for the workload choices and the generated models.
+     */
+    private long seed = 42;
+
+    private Duration requestTimeout = Duration.ofMinutes(5);
+
+    private String resultFile = "loadtest-result.json";
+
+    public Map<Workload, Integer> weights() {
+        Map<Workload, Integer> weights = new EnumMap<>(Workload.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("loadtest.mix entries must look like small=50, got '" + entry + "'");
+            }
+            int weight = Integer.parseInt(parts[1].strip());
+            if (weight < 0) {
+                throw new IllegalArgumentException("loadtest.mix weights cannot be negative, got '" + entry + "'");
+            }
+            weights.put(Workload.valueOf(parts[0].strip().toUpperCase(Locale.ROOT)), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("loadtest.mix needs at least one positive weight");
+        }
+        return weights;
+    }
+}
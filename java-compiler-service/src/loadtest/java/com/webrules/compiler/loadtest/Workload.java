@@ -0,0 +1,52 @@
+package com.webrules.compiler.loadtest;
+
+import com.webrules.compiler.dto.CompileRequestDTO;
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.service.SyntheticModels;
+
+import java.util.List;
+
+/**
+ * Kinds of synthetic compile requests the load test sends. Unique requests put their models
+ * into a package of their own, so neither the artifact cache nor the bytecode cache nor a
+ * shared compilation can serve them; repeated requests are identical every time.
+ */
+public enum Workload {
+    /** a handful of models, different on every request */
+    SMALL(5, 8, false),
+    /** hundreds of models, different on every request */
+    LARGE(400, 20, false),
+    /** the same mid-sized rule set on every request */
+    REPEATED(50, 12, true),
+    /** mid-sized rule sets, different on every request */
+    UNIQUE(50, 12, false);
+
+    private final int modelCount;
+    private final int fieldCount;
+    private final boolean repeated;
+
+    Workload(int modelCount, int fieldCount, boolean repeated) {
+        this.modelCount = modelCount;
+        this.fieldCount = fieldCount;
+        this.repeated = repeated;
+    }
+
+    /**
+     * The request number {@code sequence} of this workload. The same seed and sequence always
+     * produce the same request.
+     */
+    public CompileRequestDTO request(long seed, long sequence) {
+        long variant = repeated ? 0 : sequence;
+        List<DataModelDTO> models = SyntheticModels.generate(modelCount, fieldCount,
+            SyntheticModels.FieldMix.MIXED, seed + variant);
+        if (!repeated) {
+            String packageName = SyntheticModels.PACKAGE_NAME + "." + name().toLowerCase() + variant;
+            models.forEach(model -> model.setPackageName(packageName));
+        }
+        
+        CompileRequestDTO request = new CompileRequestDTO();
+        request.setRuleName("loadtest-" + name().toLowerCase());
+        request.setDataModels(models);
+        return request;
+    }
+}
@@ -0,0 +1,41 @@
+package com.webrules.compiler.accessor;
+
+/**
+ * Read access to the fields of a generated model by position, without reflection. Indexes
+ * follow the order of the model's fields, from 0 to {@code fieldCount() - 1}, and stay
+ * stable as long as the field list does. Generated classes also have a static
+ * {@code fieldIndexOf(String)} for resolving names without an instance.
+ *
+ * <p>Packaged into every JAR with accessors, so it must only depend on the JDK.
+ */
+public interface IndexedFields {
+
+    int fieldCount();
+
+    /**
+     * @throws IndexOutOfBoundsException if there is no such field
+     */
+    String fieldName(int index);
+
+    /**
+     * Index of the named field, or -1.
+     */
+    int fieldIndex(String name);
+
+    /**
+     * Value of a field, boxed if it is primitive.
+     *
+     * @throws IndexOutOfBoundsException if there is no such field
+     */
+    Object get(int index);
+
+    /**
+     * @throws IllegalArgumentException if the field is not a number
+     */
+    double getDouble(int index);
+
+    /**
+     * @throws IllegalArgumentException if the field is not a boolean
+     */
+    boolean getBoolean(int index);
+}
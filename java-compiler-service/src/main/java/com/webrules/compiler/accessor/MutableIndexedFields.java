@@ -0,0 +1,27 @@
+package com.webrules.compiler.accessor;
+
+/**
+ * Write access by position to the fields of a generated mutable model. Immutable models
+ * have the same methods on their builder instead.
+ */
+public interface MutableIndexedFields extends IndexedFields {
+
+    /**
+     * Sets a field, unboxing for primitive fields.
+     *
+     * @throws IndexOutOfBoundsException if there is no such field
+     * @throws ClassCastException if the value does not fit the field
+     * @throws NullPointerException if the value is null and the field primitive
+     */
+    void set(int index, Object value);
+
+    /**
+     * @throws IllegalArgumentException if the field is not a number
+     */
+    void setDouble(int index, double value);
+
+    /**
+     * @throws IllegalArgumentException if the field is not a boolean
+     */
+    void setBoolean(int index, boolean value);
+}
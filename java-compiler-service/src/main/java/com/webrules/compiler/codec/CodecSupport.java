@@ -0,0 +1,372 @@
+package com.webrules.compiler.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Runtime helpers of the binary codecs generated for data models. Its class file is
+ * packaged into every JAR with codecs, so it must only depend on the JDK.
+ *
+ * <p>Wire format, in the byte order of the buffer (big-endian unless changed):
+ * <ul>
+ *   <li>encoded fact: format version byte, schema fingerprint int, then the object</li>
+ *   <li>object: presence byte (0 = null), then its fields in declaration order</li>
+ *   <li>number: 8-byte double; boolean: one byte</li>
+ *   <li>string and enum: int byte length (-1 = null) and UTF-8 bytes</li>
+ *   <li>date: presence byte, epoch day and nano of day as longs</li>
+ *   <li>list: int size (-1 = null) and the elements; numbers and booleans in a list carry a presence byte</li>
+ *   <li>primitive array: int length (-1 = null) and the elements</li>
+ *   <li>untyped value: type tag byte ({@code TAG_*}) and the value; numbers keep their class</li>
+ * </ul>
+ *
+ * <p>Lengths read off the wire are checked against the bytes left before anything is
+ * allocated for them, so corrupt input fails with an {@link IllegalArgumentException}.
+ */
+public final class CodecSupport {
+
+    /**
+     * Version of the wire format above. Encoded facts carry it and decoding rejects other versions.
+     */
+    public static final byte FORMAT_VERSION = 2;
+
+    public static final byte TAG_NULL = 0;
+    public static final byte TAG_STRING = 1;
+    /** a {@link Double} */
+    public static final byte TAG_NUMBER = 2;
+    public static final byte TAG_BOOLEAN = 3;
+    public static final byte TAG_DATE = 4;
+    public static final byte TAG_LIST = 5;
+    public static final byte TAG_INTEGER = 6;
+    public static final byte TAG_LONG = 7;
+    /** scale int, then the unscaled value like {@link #TAG_BIG_INTEGER} */
+    public static final byte TAG_BIG_DECIMAL = 8;
+    /** int byte length and the two's-complement bytes */
+    public static final byte TAG_BIG_INTEGER = 9;
+    public static final byte TAG_FLOAT = 10;
+    public static final byte TAG_SHORT = 11;
+    public static final byte TAG_BYTE = 12;
+
+    private CodecSupport() {
+    }
+
+    /**
+     * Writes the header of an encoded fact.
+     */
+    public static void writeHeader(ByteBuffer buffer, int schema) {
+        buffer.put(FORMAT_VERSION);
+        buffer.putInt(schema);
+    }
+
+    /**
+     * Reads the header of an encoded fact and checks it against the expected schema.
+     *
+     * @throws IllegalArgumentException if the fact was encoded with another format or schema
+     */
+    public static void readHeader(ByteBuffer buffer, int schema, String type) {
+        byte format = buffer.get();
+        int actualSchema = buffer.getInt();
+        if (format != FORMAT_VERSION || actualSchema != schema) {
+            throw new IllegalArgumentException("Cannot decode " + type + ": encoded with format " + format
+                + " and schema " + Integer.toHexString(actualSchema) + ", expected format " + FORMAT_VERSION
+                + " and schema " + Integer.toHexString(schema));
+        }
+    }
+
+    public static boolean readPresent(ByteBuffer buffer) {
+        return buffer.get() != 0;
+    }
+
+    public static void writeBoolean(ByteBuffer buffer, boolean value) {
+        buffer.put((byte) (value ? 1 : 0));
+    }
+
+    public static boolean readBoolean(ByteBuffer buffer) {
+        return buffer.get() != 0;
+    }
+
+    /**
+     * Writes ASCII strings straight into the buffer and encodes others into a temporary array.
+     */
+    public static void writeString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                buffer.putInt(bytes.length);
+                buffer.put(bytes);
+                return;
+            }
+        }
+        buffer.putInt(length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    public static String readString(ByteBuffer buffer) {
+        int length = readLength(buffer, 1);
+        if (length < 0) {
+            return null;
+        }
+        
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    public static void writeDateTime(ByteBuffer buffer, LocalDateTime value) {
+        if (value == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        buffer.put((byte) 1);
+        buffer.putLong(value.toLocalDate().toEpochDay());
+        buffer.putLong(value.toLocalTime().toNanoOfDay());
+    }
+
+    public static LocalDateTime readDateTime(ByteBuffer buffer) {
+        if (buffer.get() == 0) {
+            return null;
+        }
+        LocalDate date = LocalDate.ofEpochDay(buffer.getLong());
+        return LocalDateTime.of(date, LocalTime.ofNanoOfDay(buffer.getLong()));
+    }
+
+    public static void writeDoubleObject(ByteBuffer buffer, Double value) {
+        if (value == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        buffer.put((byte) 1);
+        buffer.putDouble(value);
+    }
+
+    public static Double readDoubleObject(ByteBuffer buffer) {
+        return buffer.get() != 0 ? buffer.getDouble() : null;
+    }
+
+    public static void writeBooleanObject(ByteBuffer buffer, Boolean value) {
+        buffer.put((byte) (value == null ? 0 : value ? 2 : 1));
+    }
+
+    public static Boolean readBooleanObject(ByteBuffer buffer) {
+        byte value = buffer.get();
+        return value == 0 ? null : value == 2;
+    }
+
+    public static void writeDoubles(ByteBuffer buffer, double[] values) {
+        if (values == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(values.length);
+        for (double value : values) {
+            buffer.putDouble(value);
+        }
+    }
+
+    public static double[] readDoubles(ByteBuffer buffer) {
+        int length = readLength(buffer, Double.BYTES);
+        if (length < 0) {
+            return null;
+        }
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = buffer.getDouble();
+        }
+        return values;
+    }
+
+    public static void writeBooleans(ByteBuffer buffer, boolean[] values) {
+        if (values == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(values.length);
+        for (boolean value : values) {
+            buffer.put((byte) (value ? 1 : 0));
+        }
+    }
+
+    public static boolean[] readBooleans(ByteBuffer buffer) {
+        int length = readLength(buffer, 1);
+        if (length < 0) {
+            return null;
+        }
+        boolean[] values = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = buffer.get() != 0;
+        }
+        return values;
+    }
+
+    public static <T> void writeList(ByteBuffer buffer, List<T> values, BiConsumer<ByteBuffer, T> writer) {
+        if (values == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        int size = values.size();
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++) {
+            writer.accept(buffer, values.get(i));
+        }
+    }
+
+    /**
+     * Reads a list whose elements take at least one byte each, which holds for all elements
+     * written by this class and by generated codecs.
+     */
+    public static <T> List<T> readList(ByteBuffer buffer, Function<ByteBuffer, T> reader) {
+        int size = readLength(buffer, 1);
+        if (size < 0) {
+            return null;
+        }
+        List<T> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(reader.apply(buffer));
+        }
+        return values;
+    }
+
+    /**
+     * Writes a value of a field without a declared type, tagged with its type, so that
+     * {@link #readAny} returns an equal value of the same class.
+     *
+     * @throws IllegalArgumentException for types other than strings, the number classes of
+     *         {@code java.lang} and {@code java.math}, booleans, dates and lists of those
+     */
+    @SuppressWarnings("unchecked")
+    public static void writeAny(ByteBuffer buffer, Object value) {
+        if (value == null) {
+            buffer.put(TAG_NULL);
+        } else if (value instanceof String string) {
+            buffer.put(TAG_STRING);
+            writeString(buffer, string);
+        } else if (value instanceof Number number) {
+            writeNumber(buffer, number);
+        } else if (value instanceof Boolean bool) {
+            buffer.put(TAG_BOOLEAN);
+            writeBoolean(buffer, bool);
+        } else if (value instanceof LocalDateTime dateTime) {
+            buffer.put(TAG_DATE);
+            writeDateTime(buffer, dateTime);
+        } else if (value instanceof List<?> list) {
+            buffer.put(TAG_LIST);
+            writeList(buffer, (List<Object>) list, CodecSupport::writeAny);
+        } else {
+            throw new IllegalArgumentException("Cannot encode values of " + value.getClass().getName());
+        }
+    }
+
+    public static Object readAny(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        return switch (tag) {
+            case TAG_NULL -> null;
+            case TAG_STRING -> readString(buffer);
+            case TAG_NUMBER -> buffer.getDouble();
+            case TAG_INTEGER -> buffer.getInt();
+            case TAG_LONG -> buffer.getLong();
+            case TAG_BIG_DECIMAL -> {
+                int scale = buffer.getInt();
+                yield new BigDecimal(readBigInteger(buffer), scale);
+            }
+            case TAG_BIG_INTEGER -> readBigInteger(buffer);
+            case TAG_FLOAT -> buffer.getFloat();
+            case TAG_SHORT -> buffer.getShort();
+            case TAG_BYTE -> buffer.get();
+            case TAG_BOOLEAN -> readBoolean(buffer);
+            case TAG_DATE -> readDateTime(buffer);
+            case TAG_LIST -> readList(buffer, CodecSupport::readAny);
+            default -> throw new IllegalArgumentException("Unknown value tag " + tag);
+        };
+    }
+
+    private static void writeNumber(ByteBuffer buffer, Number number) {
+        switch (number) {
+            case Double value -> {
+                buffer.put(TAG_NUMBER);
+                buffer.putDouble(value);
+            }
+            case Integer value -> {
+                buffer.put(TAG_INTEGER);
+                buffer.putInt(value);
+            }
+            case Long value -> {
+                buffer.put(TAG_LONG);
+                buffer.putLong(value);
+            }
+            case BigDecimal value -> {
+                buffer.put(TAG_BIG_DECIMAL);
+                buffer.putInt(value.scale());
+                writeBigInteger(buffer, value.unscaledValue());
+            }
+            case BigInteger value -> {
+                buffer.put(TAG_BIG_INTEGER);
+                writeBigInteger(buffer, value);
+            }
+            case Float value -> {
+                buffer.put(TAG_FLOAT);
+                buffer.putFloat(value);
+            }
+            case Short value -> {
+                buffer.put(TAG_SHORT);
+                buffer.putShort(value);
+            }
+            case Byte value -> {
+                buffer.put(TAG_BYTE);
+                buffer.put(value);
+            }
+            default -> throw new IllegalArgumentException("Cannot encode values of " + number.getClass().getName());
+        }
+    }
+
+    private static void writeBigInteger(ByteBuffer buffer, BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static BigInteger readBigInteger(ByteBuffer buffer) {
+        int length = readLength(buffer, 1);
+        if (length <= 0) {
+            throw new IllegalArgumentException("Corrupt input: big integer of " + length + " bytes");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new BigInteger(bytes);
+    }
+
+    /**
+     * Reads a length or size, -1 standing for null, and checks that that many elements of
+     * at least {@code minElementBytes} bytes each can still follow.
+     */
+    private static int readLength(ByteBuffer buffer, int minElementBytes) {
+        int length = buffer.getInt();
+        if (length < -1 || length > buffer.remaining() / minElementBytes) {
+            throw new IllegalArgumentException("Corrupt input: length " + length + " with "
+                + buffer.remaining() + " bytes left");
+        }
+        return length;
+    }
+}
@@ -0,0 +1,274 @@
+package com.webrules.compiler.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.zip.Deflater;
+
+@Data
+@ConfigurationProperties(prefix = "compiler")
+public class CompilerProperties {
+
+    /**
+     * AUTO emits plain data models directly as bytecode and compiles everything else with
+     * javac; JAVAC always goes through generated source.
+     */
+    private Backend backend = Backend.AUTO;
+
+    private Pool pool = new Pool();
+
+    private Scheduler scheduler = new Scheduler();
+
+    private Partitioning partitioning = new Partitioning();
+
+    private Javac javac = new Javac();
+
+    /**
+     * Let identical compile requests that arrive while one of them is in flight share its
+     * compilation and JAR instead of each building their own.
+     */
+    private boolean coalesceRequests = true;
+
+    /**
+     * How long a synchronous compile request may take before its compilation is abandoned
+     * and answered with 503. Keep it below the timeout of proxies in front of the service,
+     * so that no work continues for a response nobody receives. Zero disables the deadline.
+     */
+    private Duration requestDeadline = Duration.ofSeconds(60);
+
+    private Cache bytecodeCache = new Cache(DataSize.ofMegabytes(64));
+
+    private Cache artifactCache = new Cache(DataSize.ofMegabytes(128));
+
+    /**
+     * Previous builds kept for incremental compilation via {@code baseBuildId}.
+     */
+    private Cache buildRegistry = new Cache(DataSize.ofMegabytes(64));
+
+    private Jar jar = new Jar();
+
+    private Streaming streaming = new Streaming();
+
+    private Buffers buffers = new Buffers();
+
+    private Warmup warmup = new Warmup();
+
+    private Jobs jobs = new Jobs();
+
+    public enum Backend {
+        AUTO,
+        JAVAC
+    }
+
+    @Data
+    public static class Pool {
+        /**
+         * Maximum number of warmed compiler contexts, and therefore of concurrent javac tasks.
+         */
+        private int maxSize = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * How long a caller waits for a free context before the compilation is rejected.
+         */
+        private Duration borrowTimeout = Duration.ofSeconds(30);
+
+        /**
+         * Idle contexts older than this are closed by the eviction sweep.
+         */
+        private Duration idleTimeout = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Javac {
+        /**
+         * Compile against the JDK and the in-memory classes only: no application class
+         * path, no annotation processors and no implicitly compiled sources.
+         */
+        private boolean minimalClasspath = true;
+
+        /**
+         * Emit line numbers and local variable tables into the generated classes.
+         */
+        private boolean debugInfo = false;
+    }
+
+    @Data
+    public static class Partitioning {
+        /**
+         * Split large javac batches into independent partitions compiled concurrently.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Partitions compiled at the same time per request. Concurrent javac tasks across
+         * all requests remain bounded by {@code compiler.pool.max-size}.
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Smallest partition worth its own javac task; smaller batches compile as one.
+         */
+        private int minPartitionModels = 32;
+    }
+
+    @Data
+    public static class Scheduler {
+        /**
+         * Compilations running at the same time. Compilation is CPU-bound, so this defaults
+         * to the number of available processors.
+         */
+        private int maxConcurrency = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Compilations allowed to wait for a free slot; further requests are rejected at once.
+         */
+        private int queueCapacity = 4 * Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Deadline for a queued compilation to start before it is rejected.
+         */
+        private Duration queueTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Value of the Retry-After header sent with 429 responses.
+         */
+        private Duration retryAfter = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Jar {
+        /**
+         * Build byte-for-byte reproducible JARs: sorted entries, fixed timestamps and no
+         * build time in the manifest. Required for artifact caching and ETags.
+         */
+        private boolean reproducible = true;
+
+        /**
+         * Timestamp stamped on every entry of a reproducible JAR.
+         */
+        private LocalDateTime entryTimestamp = LocalDateTime.of(1980, 2, 1, 0, 0);
+
+        /**
+         * Write JARs directly into the HTTP response instead of building them in memory first.
+         */
+        private boolean streaming = true;
+
+        /**
+         * Streamed JARs up to this size are also kept for the artifact cache; larger ones
+         * are never held in memory.
+         */
+        private DataSize streamingCacheThreshold = DataSize.ofMegabytes(1);
+
+        /**
+         * Deflate level used when a request does not choose one: 1-9, -1 for the zlib
+         * default, or 0 to store entries uncompressed.
+         */
+        private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+        /**
+         * Compress entries concurrently; otherwise they are compressed on the request
+         * thread. The JAR bytes depend neither on this nor on {@code parallelism}.
+         */
+        private boolean parallel = true;
+
+        /**
+         * Threads shared by all requests for compressing JAR entries.
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    @Data
+    public static class Streaming {
+        /**
+         * Most models compiled together from a streamed request. The compile stage takes
+         * whatever was parsed since its last batch, up to this many.
+         */
+        private int maxBatchModels = 64;
+
+        /**
+         * How many parsed models, and how many compiled batches, may wait for the next
+         * stage. A stage whose queue is full waits, up to the parser, which then stops
+         * reading the request.
+         */
+        private int queueCapacity = 256;
+    }
+
+    @Data
+    public static class Buffers {
+        /**
+         * Write class files and in-memory JARs into pooled buffers instead of fresh
+         * {@code ByteArrayOutputStream}s.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Memory the idle class file buffers may hold.
+         */
+        private DataSize classFilePool = DataSize.ofMegabytes(4);
+
+        /**
+         * Memory the idle JAR buffers may hold. Buffers of JARs larger than a quarter of
+         * this are not kept.
+         */
+        private DataSize jarPool = DataSize.ofMegabytes(32);
+    }
+
+    @Data
+    public static class Warmup {
+        /**
+         * Compile and package synthetic models at startup, before reporting ready, so the
+         * first real request does not pay for cold javac classes and an unwarmed JIT.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Synthetic models per warm-up round.
+         */
+        private int models = 32;
+
+        private int iterations = 2;
+
+        /**
+         * Shut down right after the warm-up. Used by the CDS training run, which dumps the
+         * loaded classes on exit.
+         */
+        private boolean exitAfterWarmup = false;
+    }
+
+    @Data
+    public static class Jobs {
+        /**
+         * Directory where finished job artifacts are stored, in an {@code instance-*}
+         * subdirectory per running instance. It may be shared: only artifacts the service
+         * created are ever deleted.
+         */
+        private Path artifactDir = Path.of(System.getProperty("java.io.tmpdir"), "web-rules-artifacts");
+
+        /**
+         * How long a finished job and its artifact are kept before cleanup removes them.
+         */
+        private Duration artifactTtl = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+
+        /**
+         * Upper bound on the total size of cached entries; least recently used entries are
+         * evicted beyond it.
+         */
+        private DataSize maxWeight;
+
+        public Cache() {
+        }
+
+        public Cache(DataSize maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.webrules.compiler.controller;
+
+import com.webrules.compiler.dto.CompileJobDTO;
+import com.webrules.compiler.dto.CompileRequestDTO;
+import com.webrules.compiler.dto.ValidationErrorDTO;
+import com.webrules.compiler.service.CompileJob;
+import com.webrules.compiler.service.CompileJobService;
+import com.webrules.compiler.service.CompilerBusyException;
+import com.webrules.compiler.service.InvalidModelException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+
+/**
+ * Asynchronous alternative to {@code POST /api/compiler/compile} for rule sets that take
+ * too long to compile within one HTTP exchange.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/compiler/jobs")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", exposedHeaders = {HttpHeaders.LOCATION, HttpHeaders.RETRY_AFTER,
+    HttpHeaders.CONTENT_RANGE, HttpHeaders.ACCEPT_RANGES})
+public class CompileJobController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final CompileJobService jobService;
+
+    @PostMapping
+    public ResponseEntity<CompileJobDTO> submit(@Valid @RequestBody CompileRequestDTO request) {
+        log.info("Received compile job for {} data models", request.getDataModels().size());
+        
+        try {
+            CompileJob job = jobService.submit(request);
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/compiler/jobs/" + job.getId()))
+                .body(toDTO(job));
+        } catch (CompilerBusyException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .build();
+        }
+    }
+
+    @ExceptionHandler(InvalidModelException.class)
+    public ResponseEntity<ValidationErrorDTO> invalid(InvalidModelException e) {
+        log.info("Rejected compile job with invalid data models: {}", e.getMessage());
+        return ResponseEntity.badRequest().body(CompilerController.validationError(e));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<CompileJobDTO> status(@PathVariable String id) {
+        CompileJob job = jobService.get(id);
+        return job != null ? ResponseEntity.ok(toDTO(job)) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Downloads the finished JAR. Range requests are answered with 206 partial content by
+     * Spring's resource region support. Full downloads use the container's sendfile when
+     * available, so the file goes from page cache to socket without passing through the heap.
+     */
+    @GetMapping("/{id}/artifact")
+    public ResponseEntity<Resource> artifact(@PathVariable String id,
+                                             @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                                             HttpServletRequest servletRequest) {
+        CompileJob job = jobService.get(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.getPhase() != CompileJob.Phase.SUCCEEDED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + job.getFilename() + "\"")
+            .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (job.getArtifactKey() != null) {
+            response.eTag("\"" + job.getArtifactKey() + "\"");
+        }
+        
+        if (range == null && Boolean.TRUE.equals(servletRequest.getAttribute(SENDFILE_SUPPORT))) {
+            servletRequest.setAttribute(SENDFILE_FILENAME, job.getArtifactPath().toAbsolutePath().toString());
+            servletRequest.setAttribute(SENDFILE_START, 0L);
+            servletRequest.setAttribute(SENDFILE_END, job.getArtifactSize());
+            return response.contentLength(job.getArtifactSize()).build();
+        }
+        
+        return response.body(new FileSystemResource(job.getArtifactPath()));
+    }
+
+    private static CompileJobDTO toDTO(CompileJob job) {
+        CompileJobDTO dto = new CompileJobDTO();
+        dto.setJobId(job.getId());
+        dto.setStatus(job.getPhase().name());
+        dto.setCompiledModels(job.getCompiledModels());
+        dto.setTotalModels(job.getTotalModels());
+        dto.setProgress(job.getProgress());
+        dto.setError(job.getError());
+        dto.setFilename(job.getFilename());
+        dto.setBuildId(job.getBuildId());
+        dto.setRebuiltModels(job.getRebuiltModels());
+        dto.setReusedModels(job.getReusedModels());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        if (job.getPhase() == CompileJob.Phase.SUCCEEDED) {
+            dto.setArtifactSize(job.getArtifactSize());
+            dto.setArtifactUrl("/api/compiler/jobs/" + job.getId() + "/artifact");
+        }
+        return dto;
+    }
+}
@@ -1,74 +1,310 @@
 package com.webrules.compiler.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webrules.compiler.dto.BuildDTO;
 import com.webrules.compiler.dto.CompileRequestDTO;
-import com.webrules.compiler.service.JavaCompilerService;
-import com.webrules.compiler.service.JarBuilderService;
+import com.webrules.compiler.dto.HealthDTO;
+import com.webrules.compiler.dto.ModelProblemDTO;
+import com.webrules.compiler.dto.ValidationErrorDTO;
+import com.webrules.compiler.service.BuildRegistry;
+import com.webrules.compiler.service.CompilationCancelledException;
+import com.webrules.compiler.service.CompilationResult;
+import com.webrules.compiler.service.CompilerBusyException;
+import com.webrules.compiler.service.CompilerMetrics;
+import com.webrules.compiler.service.CompilerWarmup;
+import com.webrules.compiler.service.InvalidModelException;
+import com.webrules.compiler.service.JarArtifact;
+import com.webrules.compiler.service.JarArtifactService;
+import com.webrules.compiler.service.ModelBuild;
+import com.webrules.compiler.service.ModelValidator;
+import com.webrules.compiler.service.StreamingCompileService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/compiler")
 @RequiredArgsConstructor
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {HttpHeaders.ETAG, HttpHeaders.RETRY_AFTER,
+    CompilerController.BUILD_ID, CompilerController.MODELS_REBUILT, CompilerController.MODELS_REUSED})
 public class CompilerController {
 
-    private final JavaCompilerService compilerService;
-    private final JarBuilderService jarBuilderService;
+    static final String BUILD_ID = "X-Build-Id";
+    static final String MODELS_REBUILT = "X-Models-Rebuilt";
+    static final String MODELS_REUSED = "X-Models-Reused";
+
+    private final JarArtifactService artifactService;
+    private final StreamingCompileService streamingService;
+    private final BuildRegistry buildRegistry;
+    private final CompilerMetrics metrics;
+    private final CompilerWarmup warmup;
+    private final ApplicationAvailability availability;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/compile")
-    public ResponseEntity<byte[]> compileAndDownloadJar(@Valid @RequestBody CompileRequestDTO request) {
+    public ResponseEntity<StreamingResponseBody> compileAndDownloadJar(
+            @Valid @RequestBody CompileRequestDTO request,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("Received compile request for {} data models", request.getDataModels().size());
         
         try {
-            Map<String, byte[]> compiledClasses = compilerService.compileDataModels(request.getDataModels());
+            artifactService.validate(request);
+            String artifactKey = artifactService.artifactKey(request);
+            String etag = artifactKey != null ? "\"" + artifactKey + "\"" : null;
             
-            if (compiledClasses.isEmpty()) {
-                return ResponseEntity.badRequest()
-                    .body("No classes were compiled successfully".getBytes());
+            if (etag != null && matchesAny(ifNoneMatch, etag)) {
+                log.info("Artifact {} not modified", artifactKey);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
             }
             
-            String ruleName = request.getRuleName() != null ? request.getRuleName() : "compiled-models";
-            String version = request.getVersion() != null ? request.getVersion() : "1.0.0";
-            
-            byte[] jarBytes = jarBuilderService.buildJar(
-                compiledClasses,
-                ruleName,
-                version,
-                "Web Rules",
-                "Compiled data models from Web Rules Editor",
-                request.isIncludeDrools(),
-                request.getDroolsContent()
-            );
-            
-            String filename = ruleName.toLowerCase().replaceAll("\\s+", "-") + "-" + version + ".jar";
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentDispositionFormData("attachment", filename);
-            headers.setContentLength(jarBytes.length);
+            JarArtifact cached = artifactService.getCached(artifactKey);
+            if (cached != null) {
+                log.info("Serving cached JAR: {} ({} bytes)", cached.filename(), cached.bytes().length);
+                return jarResponse(cached, etag, artifactService.buildId(request), 0, request.getDataModels().size());
+            }
             
-            log.info("Successfully compiled and packaged JAR: {} ({} bytes)", filename, jarBytes.length);
+            // Compile before committing the response so compilation errors still get a proper status
+            CompilationResult result = artifactService.compile(request, artifactKey);
+            ModelBuild build = result.build();
+            log.info("Build {}: {} models rebuilt, {} reused", build.buildId(), build.rebuiltModels().size(), build.reusedModels().size());
             
-            return new ResponseEntity<>(jarBytes, headers, HttpStatus.OK);
+            if (!artifactService.isStreaming()) {
+                JarArtifact artifact = artifactService.packageJar(result);
+                log.info("Successfully compiled and packaged JAR: {} ({} bytes)", artifact.filename(), artifact.bytes().length);
+                return jarResponse(artifact, etag, build.buildId(), build.rebuiltModels().size(), build.reusedModels().size());
+            }
             
+            HttpHeaders headers = jarHeaders(result.filename(), etag, -1,
+                build.buildId(), build.rebuiltModels().size(), build.reusedModels().size());
+            return new ResponseEntity<>(timed(out -> streamJar(result, out)), headers, HttpStatus.OK);
+        
+        } catch (CompilerBusyException e) {
+            return busy(e);
+        } catch (CompilationCancelledException e) {
+            return cancelled(e);
+        } catch (InvalidModelException e) {
+            return invalid(e);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(textBody(e.getMessage()));
         } catch (Exception e) {
             log.error("Compilation failed", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(("Compilation failed: " + e.getMessage()).getBytes());
+                .body(textBody("Compilation failed: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Compiles a request while it is still being uploaded, for payloads too large to bind
+     * at once. Properties other than {@code dataModels} must come before it. The JAR is
+     * spooled to disk and sent once complete, so failures still get a proper status.
+     * Streamed builds are neither cached nor recorded for incremental builds.
+     */
+    @PostMapping(value = "/compile/stream", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> compileStreamed(InputStream body) {
+        try {
+            StreamingCompileService.StreamedJar jar = streamingService.compile(body);
+            HttpHeaders headers = contentHeaders(jar.filename(), null, Files.size(jar.path()));
+            return new ResponseEntity<>(timed(out -> {
+                try {
+                    Files.copy(jar.path(), out);
+                } finally {
+                    streamingService.release(jar);
+                }
+            }), headers, HttpStatus.OK);
+        
+        } catch (CompilerBusyException e) {
+            return busy(e);
+        } catch (CompilationCancelledException e) {
+            return cancelled(e);
+        } catch (InvalidModelException e) {
+            return invalid(e);
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(textBody(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Streamed compilation failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(textBody("Compilation failed: " + e.getMessage()));
         }
     }
 
+    /**
+     * Reports which models a recent build recompiled and which it reused.
+     */
+    @GetMapping("/builds/{buildId}")
+    public ResponseEntity<BuildDTO> getBuild(@PathVariable String buildId) {
+        BuildRegistry.BuildRecord record = buildRegistry.get(buildId);
+        if (record == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        BuildDTO dto = new BuildDTO();
+        dto.setBuildId(buildId);
+        dto.setTotalModels(record.fingerprints().size());
+        dto.setRebuiltModels(record.rebuiltModels());
+        dto.setReusedModels(record.reusedModels());
+        return ResponseEntity.ok(dto);
+    }
+
+    /**
+     * Ready once startup, including the compiler warm-up, has finished; 503 before that
+     * and while shutting down.
+     */
     @GetMapping("/health")
-    public ResponseEntity<String> health() {
-        return ResponseEntity.ok("Java Compiler Service is running");
+    public ResponseEntity<HealthDTO> health() {
+        ReadinessState readiness = availability.getReadinessState();
+        boolean ready = readiness == ReadinessState.ACCEPTING_TRAFFIC;
+        
+        HealthDTO dto = new HealthDTO();
+        dto.setStatus(ready ? "UP" : warmup.isFinished() ? "OUT_OF_SERVICE" : "WARMING_UP");
+        dto.setReadiness(readiness.name());
+        dto.setWarmupFinished(warmup.isFinished());
+        dto.setWarmupMillis(warmup.getDurationMillis() >= 0 ? warmup.getDurationMillis() : null);
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(dto);
+    }
+
+    private void streamJar(CompilationResult result, OutputStream out) throws IOException {
+        try {
+            long size = artifactService.writeJar(result, out);
+            log.info("Successfully compiled and streamed JAR: {} ({} bytes)", result.filename(), size);
+        } catch (IOException | RuntimeException e) {
+            // Status and headers are already sent; failing here aborts the connection so the
+            // client sees a truncated download rather than a valid-looking JAR
+            log.error("Streaming JAR {} failed after the response was committed", result.filename(), e);
+            throw e;
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> jarResponse(JarArtifact artifact, String etag, String buildId,
+                                                              int rebuiltModels, int reusedModels) {
+        byte[] jarBytes = artifact.bytes();
+        HttpHeaders headers = jarHeaders(artifact.filename(), etag, jarBytes.length, buildId, rebuiltModels, reusedModels);
+        return new ResponseEntity<>(timed(out -> out.write(jarBytes)), headers, HttpStatus.OK);
+    }
+
+    /**
+     * Records how long writing the body to the client takes. For streamed JARs this
+     * includes assembling the JAR, which is also timed on its own.
+     */
+    private StreamingResponseBody timed(StreamingResponseBody body) {
+        return out -> {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                body.writeTo(out);
+                success = true;
+            } finally {
+                metrics.record(CompilerMetrics.RESPONSE_WRITE, System.nanoTime() - start, success);
+            }
+        };
+    }
+
+    /**
+     * Only a passed deadline reaches the controller; an abandoned compilation has nobody
+     * left to answer.
+     */
+    private ResponseEntity<StreamingResponseBody> cancelled(CompilationCancelledException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .body(textBody(e.getMessage() + "; large rule sets can be compiled with /api/compiler/jobs"));
+    }
+
+    /**
+     * Lists the problems of models that would not compile as JSON, so editors can point at
+     * each of them.
+     */
+    private ResponseEntity<StreamingResponseBody> invalid(InvalidModelException e) {
+        log.info("Rejected invalid data models: {}", e.getMessage());
+        ValidationErrorDTO dto = validationError(e);
+        return ResponseEntity.badRequest()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(out -> out.write(objectMapper.writeValueAsBytes(dto)));
+    }
+
+    static ValidationErrorDTO validationError(InvalidModelException e) {
+        ValidationErrorDTO dto = new ValidationErrorDTO();
+        dto.setError("Invalid data models");
+        dto.setProblemCount(e.getProblemCount());
+        dto.setProblems(e.getProblems().stream().map(CompilerController::toDTO).toList());
+        return dto;
+    }
+
+    private static ModelProblemDTO toDTO(ModelValidator.Problem problem) {
+        ModelProblemDTO dto = new ModelProblemDTO();
+        dto.setPath(problem.path());
+        dto.setModel(problem.model());
+        dto.setField(problem.field());
+        dto.setMessage(problem.message());
+        return dto;
+    }
+
+    private ResponseEntity<StreamingResponseBody> busy(CompilerBusyException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+            .body(textBody("Compiler is busy, please retry later: " + e.getMessage()));
+    }
+
+    /**
+     * Content headers plus the build id and how many models were recompiled versus reused.
+     * Served-from-cache responses recompiled nothing and report all models as reused.
+     */
+    private static HttpHeaders jarHeaders(String filename, String etag, long contentLength,
+                                          String buildId, int rebuiltModels, int reusedModels) {
+        HttpHeaders headers = contentHeaders(filename, etag, contentLength);
+        headers.set(BUILD_ID, buildId);
+        headers.set(MODELS_REBUILT, String.valueOf(rebuiltModels));
+        headers.set(MODELS_REUSED, String.valueOf(reusedModels));
+        return headers;
+    }
+
+    private static HttpHeaders contentHeaders(String filename, String etag, long contentLength) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDispositionFormData("attachment", filename);
+        if (contentLength >= 0) {
+            headers.setContentLength(contentLength);
+        }
+        if (etag != null) {
+            headers.setETag(etag);
+        }
+        return headers;
+    }
+
+    private static StreamingResponseBody textBody(String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return out -> out.write(bytes);
+    }
+
+    /**
+     * If-None-Match uses weak comparison, so {@code W/"x"} matches {@code "x"}.
+     */
+    private static boolean matchesAny(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,65 @@
+package com.webrules.compiler.controller;
+
+import com.webrules.compiler.service.CompilerMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Times reading and binding request bodies as {@code compiler.request.parse}. Bodies that
+ * cannot be read are recorded as errors and then handled as usual.
+ */
+@ControllerAdvice(assignableTypes = {CompilerController.class, CompileJobController.class})
+@RequiredArgsConstructor
+public class RequestParseTimingAdvice extends RequestBodyAdviceAdapter {
+
+    private static final String START_ATTRIBUTE = RequestParseTimingAdvice.class.getName() + ".start";
+
+    private final CompilerMetrics metrics;
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                           Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestContextHolder.currentRequestAttributes()
+            .setAttribute(START_ATTRIBUTE, System.nanoTime(), RequestAttributes.SCOPE_REQUEST);
+        return inputMessage;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        Object start = RequestContextHolder.currentRequestAttributes()
+            .getAttribute(START_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (start instanceof Long startNanos) {
+            metrics.record(CompilerMetrics.REQUEST_PARSE, System.nanoTime() - startNanos, true);
+        }
+        return body;
+    }
+
+    /**
+     * Rethrowing the same exception hands it on to Spring's default handling (400).
+     */
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public void recordUnreadable(HttpMessageNotReadableException e, HttpServletRequest request) {
+        if (request.getAttribute(START_ATTRIBUTE) instanceof Long startNanos) {
+            metrics.record(CompilerMetrics.REQUEST_PARSE, System.nanoTime() - startNanos, false);
+        }
+        throw e;
+    }
+}
@@ -0,0 +1,13 @@
+package com.webrules.compiler.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BuildDTO {
+    private String buildId;
+    private int totalModels;
+    private List<String> rebuiltModels;
+    private List<String> reusedModels;
+}
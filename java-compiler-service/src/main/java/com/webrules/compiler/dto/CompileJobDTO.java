@@ -0,0 +1,24 @@
+package com.webrules.compiler.dto;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+public class CompileJobDTO {
+    private String jobId;
+    private String status;
+    private int compiledModels;
+    private int totalModels;
+    private double progress;
+    private String error;
+    private String filename;
+    private String buildId;
+    private List<String> rebuiltModels;
+    private List<String> reusedModels;
+    private Long artifactSize;
+    private String artifactUrl;
+    private Instant createdAt;
+    private Instant finishedAt;
+}
@@ -2,6 +2,8 @@ package com.webrules.compiler.dto;
 
 import lombok.Data;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import java.util.List;
 
@@ -16,4 +18,41 @@ public class CompileRequestDTO {
     private String version;
     private boolean includeDrools;
     private String droolsContent;
+
+    /**
+     * Build id returned by an earlier compilation; when still known, only models changed
+     * since that build and their dependents are recompiled.
+     */
+    private String baseBuildId;
+
+    /**
+     * Deflate level for the JAR entries: 1-9, -1 for the zlib default, or 0 to store them
+     * uncompressed. Defaults to {@code compiler.jar.compression-level}.
+     */
+    @Min(-1)
+    @Max(9)
+    private Integer compressionLevel;
+
+    /**
+     * Shape of the generated classes; {@code MUTABLE} when not set.
+     */
+    private GenerationMode generationMode;
+
+    /**
+     * Generate number and boolean arrays as {@code double[]} and {@code boolean[]} instead of
+     * lists of wrappers.
+     */
+    private boolean primitiveArrays;
+
+    /**
+     * Give every model a nested {@code Codec} class that writes it to a {@code ByteBuffer}
+     * and reads it back without reflection.
+     */
+    private boolean generateCodecs;
+
+    /**
+     * Give every model indexed field accessors: {@code get(int)}, {@code set(int, Object)}
+     * and primitive variants dispatched by a switch, plus a static name-to-index lookup.
+     */
+    private boolean generateAccessors;
 }
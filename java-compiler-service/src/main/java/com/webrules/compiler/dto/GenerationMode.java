@@ -0,0 +1,11 @@
+package com.webrules.compiler.dto;
+
+/**
+ * Shape of the generated model classes.
+ */
+public enum GenerationMode {
+    /** JavaBeans with a no-arg constructor, getters and setters */
+    MUTABLE,
+    /** final classes with final fields, a builder and a hash code computed once on construction */
+    IMMUTABLE
+}
@@ -0,0 +1,11 @@
+package com.webrules.compiler.dto;
+
+import lombok.Data;
+
+@Data
+public class HealthDTO {
+    private String status;
+    private String readiness;
+    private boolean warmupFinished;
+    private Long warmupMillis;
+}
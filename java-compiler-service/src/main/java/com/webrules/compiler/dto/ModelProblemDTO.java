@@ -0,0 +1,11 @@
+package com.webrules.compiler.dto;
+
+import lombok.Data;
+
+@Data
+public class ModelProblemDTO {
+    private String path;
+    private String model;
+    private String field;
+    private String message;
+}
@@ -0,0 +1,12 @@
+package com.webrules.compiler.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ValidationErrorDTO {
+    private String error;
+    private int problemCount;
+    private List<ModelProblemDTO> problems;
+}
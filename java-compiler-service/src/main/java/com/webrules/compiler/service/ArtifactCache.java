@@ -0,0 +1,57 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Cache of finished JAR artifacts keyed by the hash of the whole compile request. Only
+ * reproducible builds are cached, so a hit is byte-for-byte what a rebuild would produce.
+ */
+@Slf4j
+@Service
+public class ArtifactCache {
+
+    private final boolean enabled;
+    private final WeightedLruCache<JarArtifact> cache;
+
+    public ArtifactCache(CompilerProperties properties) {
+        this.enabled = properties.getArtifactCache().isEnabled();
+        this.cache = new WeightedLruCache<>(properties.getArtifactCache().getMaxWeight().toBytes(),
+            artifact -> artifact.bytes().length);
+    }
+
+    public JarArtifact get(String key) {
+        return enabled ? cache.get(key) : null;
+    }
+
+    public void put(JarArtifact artifact) {
+        if (enabled && !cache.put(artifact.key(), artifact)) {
+            log.debug("Not caching artifact {}: {} bytes exceeds cache capacity", artifact.key(), artifact.bytes().length);
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getWeight() {
+        return cache.getWeight();
+    }
+}
@@ -0,0 +1,144 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Local-disk store for the JARs produced by compile jobs. Artifacts are written to a
+ * temporary file and moved into place once complete, so readers never see partial files.
+ *
+ * <p>Each instance keeps its artifacts in a directory of its own under
+ * {@code compiler.jobs.artifact-dir}, so instances can share that directory, and only ever
+ * deletes files it could have created: {@code *.jar} and {@code *.tmp} files in
+ * {@code instance-*} directories. It removes its directory on shutdown; at startup it
+ * removes such files left behind by instances that did not shut down cleanly once they
+ * are older than the artifact TTL, after which no job would serve them anyway.
+ */
+@Slf4j
+@Service
+public class ArtifactStore implements DisposableBean {
+
+    private static final String PREFIX = "instance-";
+    private static final String SUFFIX = ".jar";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+
+    public ArtifactStore(CompilerProperties properties) {
+        Path root = properties.getJobs().getArtifactDir();
+        try {
+            Files.createDirectories(root);
+            deleteStale(root, properties.getJobs().getArtifactTtl());
+            this.directory = Files.createTempDirectory(root, PREFIX);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot prepare artifact directory " + root, e);
+        }
+        log.info("Storing job artifacts in {}", directory);
+    }
+
+    @FunctionalInterface
+    public interface ArtifactWriter {
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    /**
+     * Writes an artifact under the given id and returns its path.
+     */
+    public Path store(String id, ArtifactWriter writer) throws Exception {
+        Path target = pathOf(id);
+        // Another instance may have removed the directory after it stayed empty for a whole TTL
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, id, TEMP_SUFFIX);
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                writer.writeTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return target;
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    public void delete(String id) {
+        deleteQuietly(pathOf(id));
+    }
+
+    @Override
+    public void destroy() {
+        deleteOwnFiles(directory, Instant.MAX);
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    private Path pathOf(String id) {
+        return directory.resolve(id + SUFFIX);
+    }
+
+    private void deleteStale(Path root, Duration ttl) throws IOException {
+        Instant cutoff = Instant.now().minus(ttl);
+        try (Stream<Path> children = Files.list(root)) {
+            children.filter(child -> child.getFileName().toString().startsWith(PREFIX) && Files.isDirectory(child))
+                .forEach(child -> deleteOwnFiles(child, cutoff));
+        }
+    }
+
+    /**
+     * Deletes the artifacts and temporary files in {@code dir} last modified before
+     * {@code cutoff}, then {@code dir} itself if that left it empty and it was not modified
+     * since {@code cutoff} either.
+     */
+    private void deleteOwnFiles(Path dir, Instant cutoff) {
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(ArtifactStore::isOwnFile)
+                .filter(file -> lastModified(file).isBefore(cutoff))
+                .forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Failed to list artifacts in {}", dir, e);
+            return;
+        }
+        if (!lastModified(dir).isBefore(cutoff)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            // Not empty, or in use by another instance
+        }
+    }
+
+    private static boolean isOwnFile(Path file) {
+        String name = file.getFileName().toString();
+        return (name.endsWith(SUFFIX) || name.endsWith(TEMP_SUFFIX)) && Files.isRegularFile(file);
+    }
+
+    private static Instant lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant();
+        } catch (IOException e) {
+            return Instant.MAX;
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete artifact {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.webrules.compiler.service;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reusable growable byte buffers, so that class files and in-memory JARs are not written
+ * into a fresh {@code ByteArrayOutputStream} that grows by copying every time. Idle
+ * buffers hold at most {@code maxIdleBytes}; a buffer that grew past a quarter of that is
+ * dropped on release. Buffers allocated on a miss start at the size content written
+ * through the pool recently needed, so they rarely have to grow, but no larger than the
+ * pool would keep: one very large content must not make every later miss allocate a
+ * buffer that is thrown away on release.
+ */
+final class BufferPool {
+
+    private static final int MIN_SIZE = 256;
+    private static final int MAX_ARRAY_SIZE = 1 << 30;
+
+    private final long maxIdleBytes;
+    private final int maxPooledSize;
+    private final Deque<byte[]> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicLong idleBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile int typicalSize = MIN_SIZE;
+
+    /**
+     * @param maxIdleBytes memory the idle buffers may hold; 0 disables pooling
+     */
+    BufferPool(long maxIdleBytes) {
+        this.maxIdleBytes = maxIdleBytes;
+        this.maxPooledSize = (int) Math.min(maxIdleBytes / 4, MAX_ARRAY_SIZE);
+    }
+
+    /**
+     * Borrows an empty buffer. Call {@link Buffer#release()} once its content has been copied.
+     */
+    Buffer borrow() {
+        byte[] bytes = idle.pollFirst();
+        if (bytes != null) {
+            idleBytes.addAndGet(-bytes.length);
+            hits.increment();
+            return new Buffer(bytes);
+        }
+        misses.increment();
+        long size = Long.highestOneBit(typicalSize - 1L) << 1;
+        return new Buffer(new byte[(int) Math.max(MIN_SIZE, Math.min(size, maxPooledSize))]);
+    }
+
+    int getIdleCount() {
+        return idle.size();
+    }
+
+    long getIdleBytes() {
+        return idleBytes.get();
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    private void release(byte[] bytes, int used) {
+        // Decaying maximum: follows larger content at once and smaller content slowly
+        int typical = typicalSize;
+        typicalSize = Math.max(used, typical - (typical >> 4));
+        
+        if (bytes.length > maxPooledSize) {
+            return;
+        }
+        if (idleBytes.addAndGet(bytes.length) > maxIdleBytes) {
+            idleBytes.addAndGet(-bytes.length);
+            return;
+        }
+        idle.offerFirst(bytes);
+    }
+
+    /**
+     * An output stream into a pooled array. Not thread-safe; unusable after release.
+     */
+    final class Buffer extends OutputStream {
+        private byte[] bytes;
+        private int count;
+
+        private Buffer(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, bytes, count, len);
+            count += len;
+        }
+
+        int size() {
+            return count;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, count);
+        }
+
+        /**
+         * Returns the array to the pool. Releasing twice has no effect.
+         */
+        void release() {
+            if (bytes != null) {
+                BufferPool.this.release(bytes, count);
+                bytes = null;
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (bytes == null) {
+                throw new IllegalStateException("Buffer was released");
+            }
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length << 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers recent builds so that later requests can compile incrementally on top of
+ * them. Each record keeps the fingerprint and bytecode of every model of the build and is
+ * evicted least-recently-used once {@code compiler.build-registry.max-weight} is exceeded.
+ */
+@Service
+public class BuildRegistry {
+
+    /**
+     * A previous build: model fingerprints, produced classes per model, and the outcome
+     * reported for it.
+     */
+    public record BuildRecord(Map<String, String> fingerprints, Map<String, Map<String, byte[]>> classesByModel,
+                              List<String> rebuiltModels, List<String> reusedModels) {
+    }
+
+    private final boolean enabled;
+    private final WeightedLruCache<BuildRecord> builds;
+
+    public BuildRegistry(CompilerProperties properties) {
+        this.enabled = properties.getBuildRegistry().isEnabled();
+        this.builds = new WeightedLruCache<>(properties.getBuildRegistry().getMaxWeight().toBytes(), BuildRegistry::weigh);
+    }
+
+    public BuildRecord get(String buildId) {
+        return enabled && buildId != null ? builds.get(buildId) : null;
+    }
+
+    public void put(String buildId, BuildRecord record) {
+        if (enabled) {
+            builds.put(buildId, record);
+        }
+    }
+
+    public int size() {
+        return builds.size();
+    }
+
+    private static long weigh(BuildRecord record) {
+        long total = 0;
+        for (Map.Entry<String, String> e : record.fingerprints().entrySet()) {
+            total += 128 + e.getKey().length() * 2L + e.getValue().length() * 2L;
+        }
+        for (Map<String, byte[]> classes : record.classesByModel().values()) {
+            for (byte[] bytes : classes.values()) {
+                total += 64 + bytes.length;
+            }
+        }
+        return total;
+    }
+}
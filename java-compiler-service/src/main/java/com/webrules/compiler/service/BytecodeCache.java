@@ -0,0 +1,76 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed cache of compiled model classes. Keys are hashes of the normalized
+ * model plus everything else that shapes its bytecode (javac options, codegen version,
+ * JDK version), so entries never need explicit invalidation: a change to any of them
+ * simply produces a different key. Entries are evicted least-recently-used once the
+ * total bytecode weight exceeds {@code compiler.bytecode-cache.max-weight}.
+ */
+@Slf4j
+@Service
+public class BytecodeCache {
+
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final boolean enabled;
+    private final WeightedLruCache<Map<String, byte[]>> cache;
+
+    public BytecodeCache(CompilerProperties properties) {
+        this.enabled = properties.getBytecodeCache().isEnabled();
+        this.cache = new WeightedLruCache<>(properties.getBytecodeCache().getMaxWeight().toBytes(), BytecodeCache::weigh);
+    }
+
+    /**
+     * Returns the classes compiled for the given key, or {@code null} on a miss.
+     */
+    public Map<String, byte[]> get(String key) {
+        return enabled ? cache.get(key) : null;
+    }
+
+    public void put(String key, Map<String, byte[]> classes) {
+        if (enabled && !cache.put(key, Collections.unmodifiableMap(new LinkedHashMap<>(classes)))) {
+            log.debug("Not caching {}: entry exceeds cache capacity", key);
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getWeight() {
+        return cache.getWeight();
+    }
+
+    private static long weigh(Map<String, byte[]> classes) {
+        long total = ENTRY_OVERHEAD_BYTES;
+        for (Map.Entry<String, byte[]> e : classes.entrySet()) {
+            total += ENTRY_OVERHEAD_BYTES + e.getKey().length() * 2L + e.getValue().length;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,579 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.DataModelFieldDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.springframework.stereotype.Service;
+
+import javax.lang.model.SourceVersion;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Fast-path backend that emits the class file of a plain data model directly with ASM,
+ * skipping source generation and javac. It mirrors what {@link JavaCompilerService}
+ * generates for the mutable POJO shape with list-typed arrays and no codec or accessors, the only
+ * shape it supports:
+ * private fields, a default constructor applying defaults, a required-fields constructor,
+ * getters/setters, {@code toString}, {@code equals} and {@code hashCode}.
+ *
+ * <p>Only models whose generated source would compile and resolve unambiguously are
+ * supported; everything else (unknown type names, names shadowing the types the
+ * generated code relies on, default literals javac would interpret differently) is left
+ * to javac, which stays the reference implementation.
+ */
+@Slf4j
+@Service
+public class BytecodeModelCompiler implements ModelCompiler {
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String STRING_DESC = "Ljava/lang/String;";
+    private static final String LIST = "java/util/List";
+    private static final String ARRAY_LIST = "java/util/ArrayList";
+    private static final String LOCAL_DATE_TIME = "java/time/LocalDateTime";
+
+    /**
+     * Simple names the generated source refers to unqualified; models or fields with
+     * these names would change how the source resolves.
+     */
+    private static final Set<String> RESERVED_TYPE_NAMES = Set.of(
+        "String", "Object", "Double", "Boolean", "Override", "Objects", "List", "ArrayList", "LocalDateTime");
+    private static final Set<String> RESERVED_FIELD_NAMES = Set.of("o", "that", "java", "LocalDateTime", "ArrayList");
+
+    private static final Pattern DECIMAL_LITERAL = Pattern.compile("-?(\\d+\\.\\d*|\\.\\d+|\\d+)([eE][+-]?\\d+)?");
+    private static final Pattern INTEGER_LITERAL = Pattern.compile("-?(0|[1-9]\\d*)");
+
+    /**
+     * The string concatenation bootstrap accepts at most 200 argument slots.
+     */
+    private static final int MAX_CONCAT_FIELDS = 99;
+
+    private static final Handle STRING_CONCAT = new Handle(Opcodes.H_INVOKESTATIC,
+        "java/lang/invoke/StringConcatFactory", "makeConcatWithConstants",
+        "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;"
+            + "Ljava/lang/String;[Ljava/lang/Object;)Ljava/lang/invoke/CallSite;", false);
+
+    @Override
+    public boolean supports(DataModelDTO model, CodegenOptions options, Set<String> requestClasses) {
+        if (options.isImmutable() || options.codecs() || options.accessors() || options.primitiveArrays() && hasPrimitiveItems(model)) {
+            return false;
+        }
+        
+        String pkg = model.getPackageName();
+        String name = model.getName();
+        List<DataModelFieldDTO> fields = model.getFields();
+        
+        if (pkg == null || !SourceVersion.isName(pkg) || !isIdentifier(name) || RESERVED_TYPE_NAMES.contains(name)
+                || "java".equals(name) || fields == null || fields.isEmpty() || fields.size() > MAX_CONCAT_FIELDS) {
+            return false;
+        }
+        
+        // A model with a reserved name shadows that type for the whole package
+        for (String reserved : RESERVED_TYPE_NAMES) {
+            if (requestClasses.contains(pkg + "." + reserved)) {
+                return false;
+            }
+        }
+        
+        Set<String> fieldNames = new HashSet<>();
+        Set<String> accessorNames = new HashSet<>();
+        for (DataModelFieldDTO field : fields) {
+            String fieldName = field.getName();
+            if (!isIdentifier(fieldName) || RESERVED_FIELD_NAMES.contains(fieldName) || !fieldNames.add(fieldName)) {
+                return false;
+            }
+            String capitalized = capitalizeFirstLetter(fieldName);
+            if ("Class".equals(capitalized) || !accessorNames.add(capitalized)) {
+                return false;
+            }
+        }
+        
+        for (DataModelFieldDTO field : fields) {
+            if (resolveType(field, pkg, requestClasses, fieldNames) == null || !supportsDefault(field)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Map<String, Map<String, byte[]>> compile(List<DataModelDTO> models, CodegenOptions options,
+                                                   Map<String, byte[]> classpath, CancellationToken cancellation) {
+        Set<String> requestClasses = new HashSet<>(classpath.keySet());
+        for (DataModelDTO model : models) {
+            requestClasses.add(model.getPackageName() + "." + model.getName());
+        }
+        
+        Map<String, Map<String, byte[]>> result = new LinkedHashMap<>();
+        for (DataModelDTO model : models) {
+            cancellation.throwIfCancelled();
+            String className = model.getPackageName() + "." + model.getName();
+            byte[] bytecode = emit(model, requestClasses);
+            log.debug("Emitted {} directly ({} bytes)", className, bytecode.length);
+            result.put(className, Map.of(className, bytecode));
+        }
+        return result;
+    }
+
+    private byte[] emit(DataModelDTO model, Set<String> requestClasses) {
+        String internalName = (model.getPackageName() + "." + model.getName()).replace('.', '/');
+        Set<String> fieldNames = new HashSet<>();
+        model.getFields().forEach(f -> fieldNames.add(f.getName()));
+        
+        List<FieldSpec> fields = new ArrayList<>();
+        for (DataModelFieldDTO field : model.getFields()) {
+            fields.add(new FieldSpec(field, resolveType(field, model.getPackageName(), requestClasses, fieldNames)));
+        }
+        
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                // Generated classes are not loadable here; all merges in the emitted code are of identical types
+                return OBJECT;
+            }
+        };
+        cw.visit(Opcodes.V21, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internalName, null, OBJECT, null);
+        cw.visitSource(model.getName() + ".java", null);
+        
+        for (FieldSpec field : fields) {
+            cw.visitField(Opcodes.ACC_PRIVATE, field.name(), field.type().descriptor(), field.type().signature(), null).visitEnd();
+        }
+        
+        emitDefaultConstructor(cw, internalName, fields);
+        emitRequiredConstructor(cw, internalName, fields);
+        emitAccessors(cw, internalName, fields);
+        emitToString(cw, internalName, model.getName(), fields);
+        emitEquals(cw, internalName, fields);
+        emitHashCode(cw, internalName, fields);
+        
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private void emitDefaultConstructor(ClassWriter cw, String owner, List<FieldSpec> fields) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        for (FieldSpec field : fields) {
+            emitDefaultAssignment(mv, owner, field);
+        }
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private void emitRequiredConstructor(ClassWriter cw, String owner, List<FieldSpec> fields) {
+        List<FieldSpec> required = fields.stream().filter(f -> f.field().isRequired()).toList();
+        if (required.isEmpty()) {
+            return;
+        }
+        
+        StringBuilder descriptor = new StringBuilder("(");
+        StringBuilder signature = new StringBuilder("(");
+        boolean generic = false;
+        for (FieldSpec field : required) {
+            descriptor.append(field.type().descriptor());
+            signature.append(field.type().signatureOrDescriptor());
+            generic |= field.type().signature() != null;
+        }
+        descriptor.append(")V");
+        signature.append(")V");
+        
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", descriptor.toString(),
+            generic ? signature.toString() : null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        
+        int slot = 1;
+        for (FieldSpec field : required) {
+            Type type = field.type().asmType();
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), slot);
+            mv.visitFieldInsn(Opcodes.PUTFIELD, owner, field.name(), field.type().descriptor());
+            slot += type.getSize();
+        }
+        for (FieldSpec field : fields) {
+            if (!field.field().isRequired()) {
+                emitDefaultAssignment(mv, owner, field);
+            }
+        }
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * Mirrors the default handling of the source generator: a non-empty default is
+     * assigned unless it formats to {@code null} for a primitive or unknown type, and array
+     * fields without a default start as an empty {@code ArrayList}.
+     */
+    private void emitDefaultAssignment(MethodVisitor mv, String owner, FieldSpec spec) {
+        DataModelFieldDTO field = spec.field();
+        String type = field.getType();
+        Object defaultValue = field.getDefaultValue();
+        boolean hasDefault = defaultValue != null && !defaultValue.toString().isEmpty();
+        
+        if (!hasDefault) {
+            if ("array".equals(type)) {
+                mv.visitVarInsn(Opcodes.ALOAD, 0);
+                newArrayList(mv);
+                mv.visitFieldInsn(Opcodes.PUTFIELD, owner, spec.name(), spec.type().descriptor());
+            }
+            return;
+        }
+        
+        String value = defaultValue.toString();
+        switch (type) {
+            case "string", "enum" -> {
+                mv.visitVarInsn(Opcodes.ALOAD, 0);
+                mv.visitLdcInsn(value);
+            }
+            case "number" -> {
+                if ("null".equals(value)) {
+                    return;
+                }
+                mv.visitVarInsn(Opcodes.ALOAD, 0);
+                mv.visitLdcInsn(parseNumber(value));
+            }
+            case "boolean" -> {
+                if ("null".equals(value)) {
+                    return;
+                }
+                mv.visitVarInsn(Opcodes.ALOAD, 0);
+                mv.visitInsn(Boolean.parseBoolean(value) ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
+            }
+            case "date" -> {
+                mv.visitVarInsn(Opcodes.ALOAD, 0);
+                mv.visitLdcInsn(value);
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, LOCAL_DATE_TIME, "parse",
+                    "(Ljava/lang/CharSequence;)Ljava/time/LocalDateTime;", false);
+            }
+            case "array" -> {
+                mv.visitVarInsn(Opcodes.ALOAD, 0);
+                newArrayList(mv);
+            }
+            case "object" -> {
+                mv.visitVarInsn(Opcodes.ALOAD, 0);
+                mv.visitInsn(Opcodes.ACONST_NULL);
+            }
+            default -> {
+                return;
+            }
+        }
+        mv.visitFieldInsn(Opcodes.PUTFIELD, owner, spec.name(), spec.type().descriptor());
+    }
+
+    private void emitAccessors(ClassWriter cw, String owner, List<FieldSpec> fields) {
+        for (FieldSpec field : fields) {
+            String capitalized = capitalizeFirstLetter(field.name());
+            FieldType type = field.type();
+            Type asmType = type.asmType();
+            
+            MethodVisitor getter = cw.visitMethod(Opcodes.ACC_PUBLIC, "get" + capitalized, "()" + type.descriptor(),
+                type.signature() != null ? "()" + type.signature() : null, null);
+            getter.visitCode();
+            getter.visitVarInsn(Opcodes.ALOAD, 0);
+            getter.visitFieldInsn(Opcodes.GETFIELD, owner, field.name(), type.descriptor());
+            getter.visitInsn(asmType.getOpcode(Opcodes.IRETURN));
+            getter.visitMaxs(0, 0);
+            getter.visitEnd();
+            
+            MethodVisitor setter = cw.visitMethod(Opcodes.ACC_PUBLIC, "set" + capitalized, "(" + type.descriptor() + ")V",
+                type.signature() != null ? "(" + type.signature() + ")V" : null, null);
+            setter.visitCode();
+            setter.visitVarInsn(Opcodes.ALOAD, 0);
+            setter.visitVarInsn(asmType.getOpcode(Opcodes.ILOAD), 1);
+            setter.visitFieldInsn(Opcodes.PUTFIELD, owner, field.name(), type.descriptor());
+            setter.visitInsn(Opcodes.RETURN);
+            setter.visitMaxs(0, 0);
+            setter.visitEnd();
+        }
+    }
+
+    /**
+     * Same recipe as the generated source:
+     * {@code "Name{a=', b='" + a + "'" + b + "'" + "}"}.
+     */
+    private void emitToString(ClassWriter cw, String owner, String modelName, List<FieldSpec> fields) {
+        StringBuilder recipe = new StringBuilder(modelName).append('{');
+        StringBuilder descriptor = new StringBuilder("(");
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) recipe.append(", ");
+            recipe.append(fields.get(i).name()).append("='");
+        }
+        for (FieldSpec field : fields) {
+            recipe.append('\u0001').append('\'');
+            descriptor.append(field.type().descriptor());
+        }
+        recipe.append('}');
+        descriptor.append(")Ljava/lang/String;");
+        
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "toString", "()Ljava/lang/String;", null, null);
+        mv.visitCode();
+        for (FieldSpec field : fields) {
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, owner, field.name(), field.type().descriptor());
+        }
+        mv.visitInvokeDynamicInsn("makeConcatWithConstants", descriptor.toString(), STRING_CONCAT, recipe.toString());
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * {@code Objects.equals} for reference fields and {@code ==} for primitives, exactly like
+     * the generated source.
+     */
+    private void emitEquals(ClassWriter cw, String owner, List<FieldSpec> fields) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "equals", "(Ljava/lang/Object;)Z", null, null);
+        mv.visitCode();
+        Label notSame = new Label();
+        Label sameClass = new Label();
+        Label notEqual = new Label();
+        
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitJumpInsn(Opcodes.IF_ACMPNE, notSame);
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitInsn(Opcodes.IRETURN);
+        
+        mv.visitLabel(notSame);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitJumpInsn(Opcodes.IFNULL, notEqual);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, OBJECT, "getClass", "()Ljava/lang/Class;", false);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, OBJECT, "getClass", "()Ljava/lang/Class;", false);
+        mv.visitJumpInsn(Opcodes.IF_ACMPEQ, sameClass);
+        mv.visitJumpInsn(Opcodes.GOTO, notEqual);
+        
+        mv.visitLabel(sameClass);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, owner);
+        mv.visitVarInsn(Opcodes.ASTORE, 2);
+        
+        for (FieldSpec field : fields) {
+            String descriptor = field.type().descriptor();
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, owner, field.name(), descriptor);
+            mv.visitVarInsn(Opcodes.ALOAD, 2);
+            mv.visitFieldInsn(Opcodes.GETFIELD, owner, field.name(), descriptor);
+            
+            if ("D".equals(descriptor)) {
+                mv.visitInsn(Opcodes.DCMPL);
+                mv.visitJumpInsn(Opcodes.IFNE, notEqual);
+            } else if ("Z".equals(descriptor)) {
+                mv.visitJumpInsn(Opcodes.IF_ICMPNE, notEqual);
+            } else {
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/util/Objects", "equals",
+                    "(Ljava/lang/Object;Ljava/lang/Object;)Z", false);
+                mv.visitJumpInsn(Opcodes.IFEQ, notEqual);
+            }
+        }
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitInsn(Opcodes.IRETURN);
+        
+        mv.visitLabel(notEqual);
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * {@code Objects.hash(fields...)}, boxing primitives the same way javac does.
+     */
+    private void emitHashCode(ClassWriter cw, String owner, List<FieldSpec> fields) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "hashCode", "()I", null, null);
+        mv.visitCode();
+        pushInt(mv, fields.size());
+        mv.visitTypeInsn(Opcodes.ANEWARRAY, OBJECT);
+        for (int i = 0; i < fields.size(); i++) {
+            FieldSpec field = fields.get(i);
+            String descriptor = field.type().descriptor();
+            mv.visitInsn(Opcodes.DUP);
+            pushInt(mv, i);
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, owner, field.name(), descriptor);
+            if ("D".equals(descriptor)) {
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Double", "valueOf", "(D)Ljava/lang/Double;", false);
+            } else if ("Z".equals(descriptor)) {
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", false);
+            }
+            mv.visitInsn(Opcodes.AASTORE);
+        }
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/util/Objects", "hash", "([Ljava/lang/Object;)I", false);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * Resolves the field's Java type the way the generated source would, or returns
+     * {@code null} if that resolution is not certain without javac.
+     */
+    private FieldType resolveType(DataModelFieldDTO field, String pkg, Set<String> requestClasses, Set<String> fieldNames) {
+        String type = field.getType();
+        if (type == null) {
+            return null;
+        }
+        return switch (type) {
+            case "string", "enum" -> FieldType.of(STRING_DESC);
+            case "number" -> FieldType.of("D");
+            case "boolean" -> FieldType.of("Z");
+            case "date" -> FieldType.of("L" + LOCAL_DATE_TIME + ";");
+            case "object" -> field.getObjectType() == null
+                ? FieldType.of("L" + OBJECT + ";")
+                : resolveClass(field.getObjectType(), pkg, requestClasses, fieldNames);
+            case "array" -> {
+                if (field.getItemsType() == null) {
+                    yield FieldType.of("L" + LIST + ";");
+                }
+                String itemDescriptor = switch (field.getItemsType()) {
+                    case "string", "enum" -> STRING_DESC;
+                    case "date" -> "L" + LOCAL_DATE_TIME + ";";
+                    case "object" -> "L" + OBJECT + ";";
+                    case "array" -> "L" + LIST + ";";
+                    case "number" -> "Ljava/lang/Double;";
+                    case "boolean" -> "Ljava/lang/Boolean;";
+                    default -> {
+                        FieldType item = resolveClass(field.getItemsType(), pkg, requestClasses, fieldNames);
+                        yield item != null ? item.descriptor() : null;
+                    }
+                };
+                yield itemDescriptor == null ? null
+                    : new FieldType("L" + LIST + ";", "L" + LIST + "<" + itemDescriptor + ">;");
+            }
+            default -> FieldType.of("L" + OBJECT + ";");
+        };
+    }
+
+    /**
+     * Resolves a model reference: a simple name must be a model in the same package, a
+     * qualified name must be a model of the request.
+     */
+    private FieldType resolveClass(String name, String pkg, Set<String> requestClasses, Set<String> fieldNames) {
+        if (!SourceVersion.isName(name)) {
+            return null;
+        }
+        
+        String qualified;
+        if (name.indexOf('.') < 0) {
+            if (RESERVED_TYPE_NAMES.contains(name)) {
+                return null;
+            }
+            qualified = pkg + "." + name;
+        } else {
+            String firstSegment = name.substring(0, name.indexOf('.'));
+            if (fieldNames.contains(firstSegment) || requestClasses.contains(pkg + "." + firstSegment)) {
+                return null;
+            }
+            qualified = name;
+        }
+        return requestClasses.contains(qualified) ? FieldType.of("L" + qualified.replace('.', '/') + ";") : null;
+    }
+
+    /**
+     * Accepts only defaults whose source literal javac would read exactly like we do.
+     */
+    private boolean supportsDefault(DataModelFieldDTO field) {
+        Object defaultValue = field.getDefaultValue();
+        if (defaultValue == null || defaultValue.toString().isEmpty()) {
+            return true;
+        }
+        
+        String value = defaultValue.toString();
+        return switch (field.getType()) {
+            case "number" -> "null".equals(value) || parseNumber(value) != null;
+            case "boolean" -> "null".equals(value) || "true".equals(value) || "false".equals(value);
+            default -> true;
+        };
+    }
+
+    private static boolean hasPrimitiveItems(DataModelDTO model) {
+        return model.getFields() != null && model.getFields().stream().anyMatch(field -> "array".equals(field.getType())
+            && ("number".equals(field.getItemsType()) || "boolean".equals(field.getItemsType())));
+    }
+
+    /**
+     * Parses a number default with the semantics of the equivalent Java literal assigned to
+     * a {@code double}, or returns {@code null} if javac would reject or reinterpret it.
+     */
+    private static Double parseNumber(String value) {
+        if (INTEGER_LITERAL.matcher(value).matches()) {
+            try {
+                return (double) Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        // Integers with leading zeros are octal literals in Java
+        if (!DECIMAL_LITERAL.matcher(value).matches() || value.matches("-?\\d+")) {
+            return null;
+        }
+        
+        double parsed = Double.parseDouble(value);
+        boolean nonZeroDigits = value.replaceAll("[eE].*", "").chars().anyMatch(c -> c >= '1' && c <= '9');
+        if (Double.isInfinite(parsed) || (parsed == 0 && nonZeroDigits)) {
+            return null;
+        }
+        return parsed;
+    }
+
+    private static void newArrayList(MethodVisitor mv) {
+        mv.visitTypeInsn(Opcodes.NEW, ARRAY_LIST);
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, ARRAY_LIST, "<init>", "()V", false);
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        }
+    }
+
+    private static boolean isIdentifier(String name) {
+        return name != null && SourceVersion.isIdentifier(name) && !SourceVersion.isKeyword(name);
+    }
+
+    private static String capitalizeFirstLetter(String str) {
+        return str.substring(0, 1).toUpperCase() + str.substring(1);
+    }
+
+    private record FieldSpec(DataModelFieldDTO field, FieldType type) {
+        String name() {
+            return field.getName();
+        }
+    }
+
+    private record FieldType(String descriptor, String signature) {
+        static FieldType of(String descriptor) {
+            return new FieldType(descriptor, null);
+        }
+
+        Type asmType() {
+            return Type.getType(descriptor);
+        }
+
+        String signatureOrDescriptor() {
+            return signature != null ? signature : descriptor;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.webrules.compiler.service;
+
+import java.time.Duration;
+
+/**
+ * Tells compilation work that its result is no longer wanted, either because its deadline
+ * passed or because everyone waiting for it has gone. Work checks the token between
+ * models, between batches and at javac phase boundaries, and stops by throwing
+ * {@link CompilationCancelledException}. Threads are never interrupted: an interrupt
+ * inside javac closes the channels of the pooled file manager it is reading from.
+ */
+public final class CancellationToken {
+
+    public enum Reason {
+        /**
+         * The request's deadline passed before its compilation finished.
+         */
+        DEADLINE,
+        /**
+         * Nobody waits for the result any more: the client went away, every caller of a
+         * shared compilation left, or another stage of the request failed.
+         */
+        ABANDONED
+    }
+
+    /**
+     * A token that is never cancelled.
+     */
+    public static final CancellationToken NONE = new CancellationToken(Long.MAX_VALUE, null);
+
+    private final long deadline;
+    private final Duration timeout;
+    private volatile Reason reason;
+
+    private CancellationToken(long deadline, Duration timeout) {
+        this.deadline = deadline;
+        this.timeout = timeout;
+    }
+
+    /**
+     * A token without a deadline that is only cancelled explicitly.
+     */
+    public static CancellationToken create() {
+        return new CancellationToken(Long.MAX_VALUE, null);
+    }
+
+    /**
+     * A token that cancels itself {@code timeout} from now; {@code null} or zero means no deadline.
+     */
+    public static CancellationToken withTimeout(Duration timeout) {
+        if (timeout == null || timeout.isZero() || timeout.isNegative()) {
+            return create();
+        }
+        return new CancellationToken(System.nanoTime() + timeout.toNanos(), timeout);
+    }
+
+    /**
+     * Cancels the work unless it was already cancelled for another reason. Has no effect
+     * on {@link #NONE}.
+     */
+    public void cancel(Reason reason) {
+        if (this != NONE && this.reason == null) {
+            this.reason = reason;
+        }
+    }
+
+    public boolean isCancelled() {
+        if (reason != null) {
+            return true;
+        }
+        if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0) {
+            cancel(Reason.DEADLINE);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Why the work was cancelled, or {@code null} while it was not.
+     */
+    public Reason getReason() {
+        return isCancelled() ? reason : null;
+    }
+
+    /**
+     * Time left until the deadline, or {@link Long#MAX_VALUE} without one.
+     */
+    public long remainingNanos() {
+        return deadline == Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(0, deadline - System.nanoTime());
+    }
+
+    /**
+     * @throws CompilationCancelledException if the work was cancelled
+     */
+    public void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new CompilationCancelledException(reason, reason == Reason.DEADLINE
+                ? "Compilation did not finish within " + timeout
+                : "Compilation was abandoned");
+        }
+    }
+}
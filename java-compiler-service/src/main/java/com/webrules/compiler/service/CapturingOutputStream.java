@@ -0,0 +1,51 @@
+package com.webrules.compiler.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Passes bytes through and keeps a copy of them as long as the total stays within
+ * {@code limit}. Past the limit the copy is dropped, so large streams are never held in
+ * memory.
+ */
+class CapturingOutputStream extends FilterOutputStream {
+    private final long limit;
+    private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+    CapturingOutputStream(OutputStream out, long limit) {
+        super(out);
+        this.limit = limit;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        if (reserve(1)) {
+            copy.write(b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        if (reserve(len)) {
+            copy.write(b, off, len);
+        }
+    }
+
+    /**
+     * Returns the captured bytes, or {@code null} if the stream outgrew the limit.
+     */
+    byte[] getCaptured() {
+        return copy != null ? copy.toByteArray() : null;
+    }
+
+    private boolean reserve(int len) {
+        if (copy != null && copy.size() + (long) len > limit) {
+            copy = null;
+        }
+        return copy != null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.dto.CompileRequestDTO;
+import com.webrules.compiler.dto.GenerationMode;
+
+/**
+ * Per-request settings of the source generator. Everything in here changes the generated
+ * bytecode and is therefore part of every cache key.
+ */
+public record CodegenOptions(GenerationMode generationMode, boolean primitiveArrays, boolean codecs,
+                             boolean accessors) {
+
+    public static final CodegenOptions DEFAULT = new CodegenOptions(GenerationMode.MUTABLE, false, false, false);
+
+    public CodegenOptions {
+        if (generationMode == null) {
+            generationMode = GenerationMode.MUTABLE;
+        }
+    }
+
+    public static CodegenOptions of(CompileRequestDTO request) {
+        return new CodegenOptions(request.getGenerationMode(), request.isPrimitiveArrays(),
+            request.isGenerateCodecs(), request.isGenerateAccessors());
+    }
+
+    public boolean isImmutable() {
+        return generationMode == GenerationMode.IMMUTABLE;
+    }
+
+    String fingerprint() {
+        return generationMode.name() + (primitiveArrays ? "/primitive-arrays" : "") + (codecs ? "/codecs" : "")
+            + (accessors ? "/accessors" : "");
+    }
+}
@@ -0,0 +1,21 @@
+package com.webrules.compiler.service;
+
+/**
+ * Thrown by compilation work that stopped because its {@link CancellationToken} was
+ * cancelled. Whatever the work produced so far has been discarded.
+ */
+public class CompilationCancelledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final CancellationToken.Reason reason;
+
+    public CompilationCancelledException(CancellationToken.Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public CancellationToken.Reason getReason() {
+        return reason;
+    }
+}
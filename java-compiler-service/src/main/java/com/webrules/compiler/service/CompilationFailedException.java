@@ -0,0 +1,21 @@
+package com.webrules.compiler.service;
+
+/**
+ * Thrown when javac rejects generated sources. {@code errors} lists the diagnostics
+ * grouped by the model that produced them.
+ */
+public class CompilationFailedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String errors;
+
+    public CompilationFailedException(String errors) {
+        super("Compilation failed:\n" + errors);
+        this.errors = errors;
+    }
+
+    public String getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,16 @@
+package com.webrules.compiler.service;
+
+import java.util.Map;
+
+/**
+ * Compiled classes of a request together with the metadata needed to package them.
+ * {@code key} is the artifact key of the request, or {@code null} for non-reproducible builds.
+ */
+public record CompilationResult(String key, String filename, String ruleName, String version,
+                                ModelBuild build, boolean includeDrools, String droolsContent,
+                                int compressionLevel) {
+
+    public Map<String, byte[]> classes() {
+        return build.classes();
+    }
+}
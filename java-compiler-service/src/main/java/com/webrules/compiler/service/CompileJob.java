@@ -0,0 +1,91 @@
+package com.webrules.compiler.service;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Mutable state of one asynchronous compile job. Updated by the job's worker and read by
+ * status requests, hence the volatile fields.
+ */
+@Getter
+public class CompileJob {
+
+    public enum Phase {
+        QUEUED,
+        COMPILING,
+        PACKAGING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    private final String id;
+    private final String artifactKey;
+    private final int totalModels;
+    private final Instant createdAt = Instant.now();
+
+    private volatile Phase phase = Phase.QUEUED;
+    private volatile int compiledModels;
+    private volatile String error;
+    private volatile String filename;
+    private volatile String buildId;
+    private volatile List<String> rebuiltModels = List.of();
+    private volatile List<String> reusedModels = List.of();
+    private volatile Path artifactPath;
+    private volatile long artifactSize;
+    private volatile Instant finishedAt;
+
+    CompileJob(String id, String artifactKey, int totalModels) {
+        this.id = id;
+        this.artifactKey = artifactKey;
+        this.totalModels = totalModels;
+    }
+
+    void compiling(int compiledModels) {
+        this.phase = Phase.COMPILING;
+        this.compiledModels = compiledModels;
+    }
+
+    void packaging(String filename) {
+        this.phase = Phase.PACKAGING;
+        this.compiledModels = totalModels;
+        this.filename = filename;
+    }
+
+    void built(ModelBuild build) {
+        this.buildId = build.buildId();
+        this.rebuiltModels = build.rebuiltModels();
+        this.reusedModels = build.reusedModels();
+    }
+
+    void succeeded(Path artifactPath, long artifactSize) {
+        this.artifactPath = artifactPath;
+        this.artifactSize = artifactSize;
+        this.finishedAt = Instant.now();
+        this.phase = Phase.SUCCEEDED;
+    }
+
+    void failed(String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.phase = Phase.FAILED;
+    }
+
+    /**
+     * Overall progress from 0 to 1: compilation counts for 90%, packaging for the rest.
+     */
+    public double getProgress() {
+        return switch (phase) {
+            case QUEUED -> 0.0;
+            case COMPILING -> totalModels == 0 ? 0.0 : 0.9 * compiledModels / totalModels;
+            case PACKAGING -> 0.9;
+            case SUCCEEDED, FAILED -> 1.0;
+        };
+    }
+
+    public boolean isFinished() {
+        return phase == Phase.SUCCEEDED || phase == Phase.FAILED;
+    }
+}
@@ -0,0 +1,123 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.CompileRequestDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs compile requests asynchronously. Compilation goes through the compile scheduler
+ * like synchronous requests; packaging then streams the JAR to the {@link ArtifactStore}
+ * on a virtual thread. Finished jobs and their artifacts are removed after
+ * {@code compiler.jobs.artifact-ttl}.
+ */
+@Slf4j
+@Service
+public class CompileJobService implements DisposableBean {
+
+    private final JarArtifactService artifactService;
+    private final ArtifactStore artifactStore;
+    private final Duration artifactTtl;
+    private final Map<String, CompileJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService packagingExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public CompileJobService(JarArtifactService artifactService, ArtifactStore artifactStore,
+                             CompilerProperties properties) {
+        this.artifactService = artifactService;
+        this.artifactStore = artifactStore;
+        this.artifactTtl = properties.getJobs().getArtifactTtl();
+    }
+
+    /**
+     * Creates and queues a job.
+     *
+     * @throws InvalidModelException if the models would not compile
+     * @throws CompilerBusyException if the compile queue is full
+     */
+    public CompileJob submit(CompileRequestDTO request) {
+        artifactService.validate(request);
+        String key = artifactService.artifactKey(request);
+        CompileJob job = new CompileJob(UUID.randomUUID().toString(), key, request.getDataModels().size());
+        
+        jobs.put(job.getId(), job);
+        
+        JarArtifact cached = artifactService.getCached(key);
+        if (cached != null) {
+            job.built(new ModelBuild(artifactService.buildId(request), Map.of(), List.of(),
+                ModelDependencyGraph.classNamesOf(request.getDataModels())));
+            job.packaging(cached.filename());
+            packagingExecutor.execute(() -> store(job, out -> out.write(cached.bytes())));
+            return job;
+        }
+        
+        try {
+            artifactService.submit(request, key, (compiled, total) -> job.compiling(compiled))
+                .thenAcceptAsync(result -> {
+                    job.built(result.build());
+                    job.packaging(result.filename());
+                    store(job, out -> artifactService.writeJar(result, out));
+                }, packagingExecutor)
+                .exceptionally(e -> {
+                    fail(job, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    return null;
+                });
+        } catch (CompilerBusyException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        
+        log.info("Queued compile job {} for {} data models", job.getId(), job.getTotalModels());
+        return job;
+    }
+
+    public CompileJob get(String id) {
+        return jobs.get(id);
+    }
+
+    @Scheduled(fixedDelayString = "${compiler.jobs.cleanup-interval:PT5M}")
+    public void removeExpired() {
+        Instant threshold = Instant.now().minus(artifactTtl);
+        jobs.values().removeIf(job -> {
+            if (job.isFinished() && job.getFinishedAt().isBefore(threshold)) {
+                artifactStore.delete(job.getId());
+                log.debug("Removed expired compile job {}", job.getId());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        packagingExecutor.shutdownNow();
+    }
+
+    private void store(CompileJob job, ArtifactStore.ArtifactWriter writer) {
+        try {
+            Path path = artifactStore.store(job.getId(), writer);
+            job.succeeded(path, Files.size(path));
+            log.info("Compile job {} finished: {} ({} bytes)", job.getId(), job.getFilename(), job.getArtifactSize());
+        } catch (Exception e) {
+            fail(job, e);
+        }
+    }
+
+    private void fail(CompileJob job, Throwable e) {
+        log.error("Compile job {} failed", job.getId(), e);
+        job.failed(e.getMessage());
+    }
+}
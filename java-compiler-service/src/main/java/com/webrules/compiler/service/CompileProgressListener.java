@@ -0,0 +1,15 @@
+package com.webrules.compiler.service;
+
+/**
+ * Receives progress updates while the models of a request are compiled.
+ */
+@FunctionalInterface
+public interface CompileProgressListener {
+
+    CompileProgressListener NONE = (compiled, total) -> { };
+
+    /**
+     * Called whenever another group of models has been compiled or served from cache.
+     */
+    void onProgress(int compiledModels, int totalModels);
+}
@@ -0,0 +1,218 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs compilations on a dedicated pool of {@code compiler.scheduler.max-concurrency}
+ * platform threads behind a bounded wait queue. A compilation that finds the queue full,
+ * or does not start within {@code compiler.scheduler.queue-timeout}, fails fast with
+ * {@link CompilerBusyException} instead of piling up and starving the rest of the service.
+ */
+@Slf4j
+@Service
+public class CompileScheduler implements DisposableBean {
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int ABANDONED = 2;
+
+    private final CompilerProperties.Scheduler config;
+    private final ThreadPoolExecutor executor;
+    private final CompilerMetrics metrics;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public CompileScheduler(CompilerProperties properties, CompilerMetrics metrics) {
+        this.config = properties.getScheduler();
+        this.metrics = metrics;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+            config.getMaxConcurrency(), config.getMaxConcurrency(),
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(config.getQueueCapacity()),
+            r -> {
+                Thread thread = new Thread(r, "compile-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Runs the work on the compile pool and waits for its result. The calling thread only
+     * blocks, so callers should be virtual threads. The work should check
+     * {@code cancellation}: it is cancelled if the calling thread is interrupted, and work
+     * whose deadline passes while it is still queued never starts. The compile thread
+     * itself is never interrupted.
+     *
+     * @throws CompilerBusyException if the work was not admitted or did not start in time
+     * @throws CompilationCancelledException if the deadline passed before the work started
+     */
+    public <T> T execute(Callable<T> work, CancellationToken cancellation) throws Exception {
+        long submittedAt = System.nanoTime();
+        AtomicInteger state = new AtomicInteger(QUEUED);
+        
+        FutureTask<T> task = new FutureTask<>(() -> {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return null;
+            }
+            recordWait(System.nanoTime() - submittedAt);
+            cancellation.throwIfCancelled();
+            return work.call();
+        });
+        
+        try {
+            executor.execute(task);
+            submitted.increment();
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw busy("Compile queue is full");
+        }
+        
+        try {
+            try {
+                long timeout = Math.min(config.getQueueTimeout().toNanos(), cancellation.remainingNanos());
+                return task.get(timeout, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (state.compareAndSet(QUEUED, ABANDONED)) {
+                    task.cancel(false);
+                    executor.remove(task);
+                    metrics.record(CompilerMetrics.QUEUE_WAIT, System.nanoTime() - submittedAt, false);
+                    cancellation.throwIfCancelled();
+                    timedOut.increment();
+                    throw busy("Compilation did not start within " + config.getQueueTimeout());
+                }
+                // Already running: the queue deadline no longer applies
+                return task.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            // Interrupting javac would break its pooled file manager, so let the work stop itself
+            cancellation.cancel(CancellationToken.Reason.ABANDONED);
+            if (state.compareAndSet(QUEUED, ABANDONED)) {
+                executor.remove(task);
+            }
+            task.cancel(false);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (CancellationException e) {
+            throw busy("Compilation was cancelled");
+        }
+    }
+
+    /**
+     * Queues the work without waiting for it and without a start deadline, for callers that
+     * track completion themselves. Admission is still bounded by the queue capacity.
+     *
+     * @throws CompilerBusyException if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> work) {
+        long submittedAt = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        
+        Runnable task = () -> {
+            if (result.isDone()) {
+                return;
+            }
+            recordWait(System.nanoTime() - submittedAt);
+            try {
+                result.complete(work.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        };
+        
+        try {
+            executor.execute(task);
+            submitted.increment();
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw busy("Compile queue is full");
+        }
+        return result;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getMaxConcurrency() {
+        return config.getMaxConcurrency();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getTimedOutCount() {
+        return timedOut.sum();
+    }
+
+    /**
+     * Average time started compilations spent waiting in the queue.
+     */
+    public double getAverageWaitMillis() {
+        long count = started.sum();
+        return count == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void recordWait(long waitNanos) {
+        started.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        metrics.record(CompilerMetrics.QUEUE_WAIT, waitNanos, true);
+        if (waitNanos > 1_000_000_000L) {
+            log.debug("Compilation waited {} ms for a free slot", waitNanos / 1_000_000);
+        }
+    }
+
+    private CompilerBusyException busy(String reason) {
+        log.warn("{}; rejecting compilation (queue depth {}, active {})", reason, getQueueDepth(), getActiveCount());
+        return new CompilerBusyException(reason, config.getRetryAfter());
+    }
+}
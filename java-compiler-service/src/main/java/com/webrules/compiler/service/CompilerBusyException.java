@@ -0,0 +1,22 @@
+package com.webrules.compiler.service;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a compilation is not admitted because the service is saturated.
+ */
+public class CompilerBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public CompilerBusyException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,97 @@
+package com.webrules.compiler.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * A javac instance together with a long-lived standard file manager. The file manager
+ * keeps the platform and classpath archives open and their indexes cached, so reusing it
+ * across tasks avoids re-reading them on every request. With a minimal class path the
+ * file manager sees no application class path and no annotation processor path, so javac
+ * only indexes the JDK and the in-memory classes added per task. Contexts are borrowed from
+ * {@link CompilerContextPool} and returned by {@link #close()}.
+ */
+@Slf4j
+public class CompilerContext implements AutoCloseable {
+
+    private final CompilerContextPool pool;
+    private final JavaCompiler compiler;
+    private final StandardJavaFileManager fileManager;
+    private volatile long lastUsedNanos = System.nanoTime();
+    private boolean invalid;
+
+    CompilerContext(CompilerContextPool pool, JavaCompiler compiler, boolean minimalClasspath) {
+        this.pool = pool;
+        this.compiler = compiler;
+        this.fileManager = compiler.getStandardFileManager(null, null, null);
+        if (minimalClasspath) {
+            try {
+                fileManager.setLocation(StandardLocation.CLASS_PATH, List.of());
+                fileManager.setLocation(StandardLocation.ANNOTATION_PROCESSOR_PATH, List.of());
+            } catch (IOException e) {
+                dispose();
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public JavaCompiler getCompiler() {
+        return compiler;
+    }
+
+    public StandardJavaFileManager getFileManager() {
+        return fileManager;
+    }
+
+    /**
+     * Marks the context as unusable, e.g. after javac failed with an unexpected exception,
+     * so that it is closed instead of being handed to the next caller.
+     */
+    public void invalidate() {
+        invalid = true;
+    }
+
+    /**
+     * Returns the context to its pool.
+     */
+    @Override
+    public void close() {
+        pool.release(this);
+    }
+
+    boolean isInvalid() {
+        return invalid;
+    }
+
+    long getLastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    /**
+     * Drops per-task state while keeping the cached archive indexes.
+     */
+    boolean reset() {
+        try {
+            fileManager.flush();
+            lastUsedNanos = System.nanoTime();
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to reset compiler context, discarding it", e);
+            return false;
+        }
+    }
+
+    void dispose() {
+        try {
+            fileManager.close();
+        } catch (IOException e) {
+            log.warn("Failed to close compiler file manager", e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of warmed {@link CompilerContext}s shared by all requests. At most
+ * {@code compiler.pool.max-size} contexts exist at any time; callers wait up to
+ * {@code compiler.pool.borrow-timeout} for one to become free. Contexts idle for longer
+ * than {@code compiler.pool.idle-timeout} are closed by a periodic sweep, and all
+ * contexts are closed on shutdown, including those still borrowed when it starts.
+ */
+@Slf4j
+@Service
+public class CompilerContextPool implements DisposableBean {
+
+    private final JavaCompiler compiler;
+    private final CompilerProperties.Pool config;
+    private final boolean minimalClasspath;
+    private final BufferPool classFileBuffers;
+    private final Semaphore permits;
+    private final Deque<CompilerContext> idle = new ArrayDeque<>();
+    private boolean closed;
+
+    public CompilerContextPool(CompilerProperties properties) {
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No Java compiler available. Ensure you are running on JDK, not JRE.");
+        }
+        this.config = properties.getPool();
+        this.minimalClasspath = properties.getJavac().isMinimalClasspath();
+        CompilerProperties.Buffers buffers = properties.getBuffers();
+        this.classFileBuffers = buffers.isEnabled() ? new BufferPool(buffers.getClassFilePool().toBytes()) : null;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+    }
+
+    /**
+     * Borrows a context, reusing the most recently returned one when available.
+     * Use with try-with-resources so the context is always returned.
+     */
+    public CompilerContext borrow() throws InterruptedException {
+        if (!permits.tryAcquire(config.getBorrowTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Timed out waiting for a free compiler context");
+        }
+        
+        synchronized (this) {
+            if (closed) {
+                permits.release();
+                throw new IllegalStateException("Compiler context pool is closed");
+            }
+            CompilerContext context = idle.pollFirst();
+            if (context != null) {
+                return context;
+            }
+        }
+        
+        try {
+            log.debug("Creating new compiler context");
+            return new CompilerContext(this, compiler, minimalClasspath);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void release(CompilerContext context) {
+        try {
+            boolean reusable = !context.isInvalid() && context.reset();
+            synchronized (this) {
+                if (reusable && !closed) {
+                    idle.addFirst(context);
+                    return;
+                }
+            }
+            context.dispose();
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${compiler.pool.eviction-interval:PT1M}")
+    public void evictIdle() {
+        long threshold = System.nanoTime() - config.getIdleTimeout().toNanos();
+        List<CompilerContext> evicted = new ArrayList<>();
+        
+        synchronized (this) {
+            Iterator<CompilerContext> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                CompilerContext context = it.next();
+                if (context.getLastUsedNanos() - threshold < 0) {
+                    it.remove();
+                    evicted.add(context);
+                }
+            }
+        }
+        
+        evicted.forEach(CompilerContext::dispose);
+        if (!evicted.isEmpty()) {
+            log.debug("Evicted {} idle compiler contexts", evicted.size());
+        }
+    }
+
+    /**
+     * Buffers javac writes class files into, or {@code null} when buffers are not pooled.
+     */
+    BufferPool getClassFileBuffers() {
+        return classFileBuffers;
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getActiveCount() {
+        return config.getMaxSize() - permits.availablePermits();
+    }
+
+    @Override
+    public void destroy() {
+        List<CompilerContext> remaining;
+        synchronized (this) {
+            closed = true;
+            remaining = new ArrayList<>(idle);
+            idle.clear();
+        }
+        remaining.forEach(CompilerContext::dispose);
+        log.info("Closed compiler context pool ({} idle contexts)", remaining.size());
+    }
+}
@@ -0,0 +1,113 @@
+package com.webrules.compiler.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Exposes the state of the caches, the compile scheduler, the compiler pool and the
+ * buffer pools as gauges and counters.
+ */
+@Component
+@RequiredArgsConstructor
+public class CompilerMeterBinder implements MeterBinder {
+
+    private final BytecodeCache bytecodeCache;
+    private final ArtifactCache artifactCache;
+    private final BuildRegistry buildRegistry;
+    private final CompileScheduler compileScheduler;
+    private final CompilerContextPool compilerPool;
+    private final JarArtifactService artifactService;
+    private final JarBuilderService jarBuilderService;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindCache(registry, "bytecode", bytecodeCache, BytecodeCache::getHitCount, BytecodeCache::getMissCount,
+            BytecodeCache::getEvictionCount, BytecodeCache::size, BytecodeCache::getWeight);
+        bindCache(registry, "artifact", artifactCache, ArtifactCache::getHitCount, ArtifactCache::getMissCount,
+            ArtifactCache::getEvictionCount, ArtifactCache::size, ArtifactCache::getWeight);
+        Gauge.builder("compiler.build.registry.size", buildRegistry, BuildRegistry::size)
+            .description("Builds available as incremental base")
+            .register(registry);
+        
+        Gauge.builder("compiler.scheduler.queue.depth", compileScheduler, CompileScheduler::getQueueDepth)
+            .register(registry);
+        Gauge.builder("compiler.scheduler.active", compileScheduler, CompileScheduler::getActiveCount)
+            .register(registry);
+        Gauge.builder("compiler.scheduler.max.concurrency", compileScheduler, CompileScheduler::getMaxConcurrency)
+            .register(registry);
+        FunctionCounter.builder("compiler.scheduler.submitted", compileScheduler, CompileScheduler::getSubmittedCount)
+            .register(registry);
+        FunctionCounter.builder("compiler.scheduler.rejected", compileScheduler, CompileScheduler::getRejectedCount)
+            .description("Compilations refused because the queue was full")
+            .register(registry);
+        FunctionCounter.builder("compiler.scheduler.timed.out", compileScheduler, CompileScheduler::getTimedOutCount)
+            .description("Compilations that did not start within the queue timeout")
+            .register(registry);
+        
+        FunctionCounter.builder("compiler.requests.coalesced", artifactService, JarArtifactService::getCoalescedCompilations)
+            .description("Requests that shared the compilation of an identical request in flight")
+            .tag("stage", "compile")
+            .register(registry);
+        FunctionCounter.builder("compiler.requests.coalesced", artifactService, JarArtifactService::getCoalescedPackagings)
+            .description("Requests that shared the in-memory JAR of an identical request in flight")
+            .tag("stage", "package")
+            .register(registry);
+        
+        Gauge.builder("compiler.pool.idle", compilerPool, CompilerContextPool::getIdleCount)
+            .register(registry);
+        Gauge.builder("compiler.pool.active", compilerPool, CompilerContextPool::getActiveCount)
+            .register(registry);
+        
+        bindBuffers(registry, "class-file", compilerPool.getClassFileBuffers());
+        bindBuffers(registry, "jar", jarBuilderService.getJarBuffers());
+    }
+
+    private static void bindBuffers(MeterRegistry registry, String name, BufferPool buffers) {
+        if (buffers == null) {
+            return;
+        }
+        FunctionCounter.builder("compiler.buffers.borrows", buffers, BufferPool::getHitCount)
+            .description("Buffers taken from the pool")
+            .tags("pool", name, "result", "hit")
+            .register(registry);
+        FunctionCounter.builder("compiler.buffers.borrows", buffers, BufferPool::getMissCount)
+            .description("Buffers allocated because the pool was empty")
+            .tags("pool", name, "result", "miss")
+            .register(registry);
+        Gauge.builder("compiler.buffers.idle", buffers, BufferPool::getIdleCount)
+            .tag("pool", name)
+            .register(registry);
+        Gauge.builder("compiler.buffers.idle.bytes", buffers, BufferPool::getIdleBytes)
+            .tag("pool", name)
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    private static <C> void bindCache(MeterRegistry registry, String name, C cache,
+                                      ToDoubleFunction<C> hits, ToDoubleFunction<C> misses,
+                                      ToDoubleFunction<C> evictions, ToDoubleFunction<C> size,
+                                      ToDoubleFunction<C> weight) {
+        FunctionCounter.builder("compiler.cache.gets", cache, hits)
+            .tags("cache", name, "result", "hit")
+            .register(registry);
+        FunctionCounter.builder("compiler.cache.gets", cache, misses)
+            .tags("cache", name, "result", "miss")
+            .register(registry);
+        FunctionCounter.builder("compiler.cache.evictions", cache, evictions)
+            .tag("cache", name)
+            .register(registry);
+        Gauge.builder("compiler.cache.size", cache, size)
+            .tag("cache", name)
+            .register(registry);
+        Gauge.builder("compiler.cache.weight", cache, weight)
+            .tag("cache", name)
+            .baseUnit("bytes")
+            .register(registry);
+    }
+}
@@ -0,0 +1,112 @@
+package com.webrules.compiler.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers and size distributions of the compile pipeline. Every phase has its own timer,
+ * tagged with {@code outcome=success|error}:
+ * <ul>
+ *   <li>{@code compiler.request.parse} - reading and binding the request body</li>
+ *   <li>{@code compiler.validation} - checking the models before compiling them; an
+ *       {@code error} outcome is a rejected request</li>
+ *   <li>{@code compiler.queue.wait} - waiting for a compile slot</li>
+ *   <li>{@code compiler.codegen} - generating the source of one model</li>
+ *   <li>{@code compiler.javac.batch} / {@code compiler.javac.class} - one javac task, and
+ *       the parse, attribution and code generation time javac spent on each class</li>
+ *   <li>{@code compiler.bytecode.emit} - the fast path for one batch of models</li>
+ *   <li>{@code compiler.jar.build} - assembling and compressing the JAR</li>
+ *   <li>{@code compiler.response.write} - writing the JAR to the client</li>
+ * </ul>
+ * Compilations stopped by their {@link CancellationToken} are counted by
+ * {@code compiler.cancellations}, tagged with the reason, and the CPU time the rest of
+ * their javac work would have taken is estimated by {@code compiler.cancellation.cpu.saved}.
+ */
+@Component
+public class CompilerMetrics {
+
+    public static final String REQUEST_PARSE = "compiler.request.parse";
+    public static final String VALIDATION = "compiler.validation";
+    public static final String QUEUE_WAIT = "compiler.queue.wait";
+    public static final String CODEGEN = "compiler.codegen";
+    public static final String JAVAC_BATCH = "compiler.javac.batch";
+    public static final String JAVAC_CLASS = "compiler.javac.class";
+    public static final String BYTECODE_EMIT = "compiler.bytecode.emit";
+    public static final String JAR_BUILD = "compiler.jar.build";
+    public static final String RESPONSE_WRITE = "compiler.response.write";
+
+    public static final String SOURCE_SIZE = "compiler.source.size";
+    public static final String BYTECODE_SIZE = "compiler.bytecode.size";
+    public static final String JAR_SIZE = "compiler.jar.size";
+    public static final String REQUEST_MODELS = "compiler.request.models";
+    public static final String MODEL_FIELDS = "compiler.model.fields";
+
+    public static final String CANCELLATIONS = "compiler.cancellations";
+    public static final String CANCELLATION_CPU_SAVED = "compiler.cancellation.cpu.saved";
+
+    private final MeterRegistry registry;
+
+    public CompilerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Runs the work and records its duration under {@code timer}, with the outcome
+     * depending on whether it threw.
+     */
+    public <T> T time(String timer, Callable<T> work) throws Exception {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = work.call();
+            success = true;
+            return result;
+        } finally {
+            record(timer, System.nanoTime() - start, success);
+        }
+    }
+
+    public void record(String timer, long nanos, boolean success) {
+        Timer.builder(timer)
+            .tag("outcome", success ? "success" : "error")
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBytes(String summary, long bytes) {
+        DistributionSummary.builder(summary)
+            .baseUnit("bytes")
+            .register(registry)
+            .record(bytes);
+    }
+
+    public void recordCount(String summary, long count) {
+        DistributionSummary.builder(summary)
+            .register(registry)
+            .record(count);
+    }
+
+    public void recordCancellation(CancellationToken.Reason reason) {
+        Counter.builder(CANCELLATIONS)
+            .tag("reason", reason.name().toLowerCase())
+            .register(registry)
+            .increment();
+    }
+
+    public void recordCpuSaved(long nanos) {
+        Counter.builder(CANCELLATION_CPU_SAVED)
+            .baseUnit("seconds")
+            .register(registry)
+            .increment(nanos / 1e9);
+    }
+}
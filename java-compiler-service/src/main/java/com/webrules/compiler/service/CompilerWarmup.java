@@ -0,0 +1,164 @@
+package com.webrules.compiler.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.CompileRequestDTO;
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.DataModelFieldDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Runs every stage of the pipeline on synthetic models at startup: request binding, source
+ * generation, javac (in partitions, which also fills the compiler pool), the bytecode fast
+ * path and JAR packaging. Caches are bypassed so the work really happens. Spring Boot only
+ * switches readiness to {@code ACCEPTING_TRAFFIC} once application runners have finished,
+ * so the service reports ready only after the warm-up. A failed warm-up is logged and
+ * does not prevent startup.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CompilerWarmup implements ApplicationRunner {
+
+    private static final String PACKAGE_NAME = "com.webrules.warmup";
+    private static final int FIELD_COUNT = 10;
+    private static final String[] SCALAR_TYPES = {"string", "number", "boolean", "date"};
+
+    private final CompilerProperties properties;
+    private final JavaCompilerService compilerService;
+    private final BytecodeModelCompiler bytecodeCompiler;
+    private final PartitionedCompiler partitionedCompiler;
+    private final JarBuilderService jarBuilderService;
+    private final ObjectMapper objectMapper;
+    private final ConfigurableApplicationContext context;
+
+    private volatile boolean finished;
+    private volatile long durationMillis = -1;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        CompilerProperties.Warmup config = properties.getWarmup();
+        if (config.isEnabled()) {
+            long start = System.nanoTime();
+            try {
+                for (int i = 0; i < config.getIterations(); i++) {
+                    warmUp(config.getModels());
+                }
+                durationMillis = (System.nanoTime() - start) / 1_000_000;
+                log.info("Compiler warm-up finished in {} ms", durationMillis);
+            } catch (Exception e) {
+                log.warn("Compiler warm-up failed, the first compilations will be slower", e);
+            }
+        }
+        finished = true;
+        
+        if (config.isExitAfterWarmup()) {
+            log.info("Exiting after warm-up");
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    /**
+     * Whether the warm-up has run, or was skipped.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Duration of a successful warm-up, or -1.
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    private void warmUp(int modelCount) throws Exception {
+        List<DataModelDTO> models = models(modelCount);
+        
+        CompileRequestDTO request = new CompileRequestDTO();
+        request.setDataModels(models);
+        objectMapper.readValue(objectMapper.writeValueAsBytes(request), CompileRequestDTO.class);
+        
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        partitionedCompiler.compile(models, compilerService, CodegenOptions.DEFAULT, Map.of(), CancellationToken.NONE)
+            .values().forEach(classes::putAll);
+        
+        Set<String> requestClasses = Set.copyOf(ModelDependencyGraph.classNamesOf(models));
+        List<DataModelDTO> plainModels = new ArrayList<>();
+        for (DataModelDTO model : models) {
+            if (bytecodeCompiler.supports(model, CodegenOptions.DEFAULT, requestClasses)) {
+                plainModels.add(model);
+            }
+        }
+        bytecodeCompiler.compile(plainModels, CodegenOptions.DEFAULT, Map.of(), CancellationToken.NONE);
+        
+        jarBuilderService.writeJar(OutputStream.nullOutputStream(), classes, "warmup", "1.0.0", "Web Rules",
+            "Warm-up", true, "rule \"warmup\" when then end", Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Models with every kind of field, defaults and references to the previous model, so
+     * that the warm-up takes the same code paths as real requests.
+     */
+    static List<DataModelDTO> models(int modelCount) {
+        List<DataModelDTO> models = new ArrayList<>(modelCount);
+        for (int m = 0; m < modelCount; m++) {
+            List<DataModelFieldDTO> fields = new ArrayList<>(FIELD_COUNT);
+            for (int f = 0; f < FIELD_COUNT; f++) {
+                fields.add(field(m, f));
+            }
+            
+            DataModelDTO model = new DataModelDTO();
+            model.setName("Model" + m);
+            model.setPackageName(PACKAGE_NAME);
+            model.setDescription("Warm-up model " + m);
+            model.setFields(fields);
+            models.add(model);
+        }
+        return models;
+    }
+
+    private static DataModelFieldDTO field(int modelIndex, int index) {
+        DataModelFieldDTO field = new DataModelFieldDTO();
+        field.setName("field" + index);
+        field.setType(SCALAR_TYPES[index % SCALAR_TYPES.length]);
+        field.setRequired(index % 2 == 0);
+        
+        switch ((modelIndex + index) % 6) {
+            case 0 -> {
+                field.setType("enum");
+                field.setEnumValues(List.of("A", "B", "C"));
+            }
+            case 1 -> {
+                field.setType("array");
+                field.setItemsType("string");
+            }
+            case 2 -> {
+                if (modelIndex > 0) {
+                    field.setType("object");
+                    field.setObjectType("Model" + (modelIndex - 1));
+                }
+            }
+            case 3 -> {
+                field.setType("number");
+                field.setDefaultValue(index);
+            }
+            default -> field.setDescription("Field " + index + " of model " + modelIndex);
+        }
+        return field;
+    }
+}
@@ -0,0 +1,84 @@
+package com.webrules.compiler.service;
+
+import javax.tools.SimpleJavaFileObject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+
+/**
+ * Class file held in memory, either written by javac or supplied as already compiled
+ * bytecode that later compilations can resolve against. javac writes into a buffer
+ * borrowed from {@code buffers} when given, which goes back to the pool once the class
+ * file is closed.
+ */
+class InMemoryClassFileObject extends SimpleJavaFileObject {
+    private final String className;
+    private final BufferPool buffers;
+    private ByteArrayOutputStream baos;
+    private BufferPool.Buffer buffer;
+    private byte[] bytes;
+
+    InMemoryClassFileObject(String className, Kind kind, BufferPool buffers) {
+        super(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind);
+        this.className = className;
+        this.buffers = buffers;
+        if (buffers == null) {
+            this.baos = new ByteArrayOutputStream();
+        }
+    }
+
+    InMemoryClassFileObject(String className, byte[] bytes) {
+        super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+        this.className = className;
+        this.buffers = null;
+        this.bytes = bytes;
+    }
+
+    String getClassName() {
+        return className;
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+        if (baos != null) {
+            return baos;
+        }
+        if (buffers == null || buffer != null) {
+            throw new IllegalStateException("Class file " + className + " is read-only");
+        }
+        buffer = buffers.borrow();
+        return new FilterOutputStream(buffer) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+            
+            @Override
+            public void close() {
+                if (bytes == null) {
+                    bytes = buffer.toByteArray();
+                    buffer.release();
+                }
+            }
+        };
+    }
+
+    @Override
+    public InputStream openInputStream() {
+        return new ByteArrayInputStream(getBytes());
+    }
+
+    byte[] getBytes() {
+        if (bytes != null) {
+            return bytes;
+        }
+        if (baos != null) {
+            return baos.toByteArray();
+        }
+        return buffer != null ? buffer.toByteArray() : new byte[0];
+    }
+}
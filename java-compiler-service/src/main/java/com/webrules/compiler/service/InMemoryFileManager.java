@@ -0,0 +1,88 @@
+package com.webrules.compiler.service;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects javac output in memory and exposes previously compiled classes on the class
+ * path, so a batch can reference models whose bytecode came from a cache or an earlier
+ * batch without recompiling them.
+ */
+class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+    private final Map<String, InMemoryClassFileObject> classObjects = new LinkedHashMap<>();
+    private final Map<InMemoryClassFileObject, String> classOwners = new LinkedHashMap<>();
+    private final Map<String, List<InMemoryClassFileObject>> classpathByPackage = new LinkedHashMap<>();
+    private final BufferPool outputBuffers;
+
+    /**
+     * @param outputBuffers pool for the class files javac writes, or {@code null}
+     */
+    InMemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classpath, BufferPool outputBuffers) {
+        super(fileManager);
+        this.outputBuffers = outputBuffers;
+        classpath.forEach((className, bytes) -> {
+            int lastDot = className.lastIndexOf('.');
+            String packageName = lastDot < 0 ? "" : className.substring(0, lastDot);
+            classpathByPackage.computeIfAbsent(packageName, k -> new ArrayList<>())
+                .add(new InMemoryClassFileObject(className, bytes));
+        });
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+        InMemoryClassFileObject fileObject = new InMemoryClassFileObject(className, kind, outputBuffers);
+        classObjects.put(className, fileObject);
+        if (sibling instanceof InMemoryJavaFileObject source) {
+            classOwners.put(fileObject, source.getClassName());
+        }
+        return fileObject;
+    }
+
+    @Override
+    public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException {
+        Iterable<JavaFileObject> listed = super.list(location, packageName, kinds, recurse);
+        if (location != StandardLocation.CLASS_PATH || !kinds.contains(JavaFileObject.Kind.CLASS) || classpathByPackage.isEmpty()) {
+            return listed;
+        }
+        
+        List<JavaFileObject> result = new ArrayList<>();
+        listed.forEach(result::add);
+        classpathByPackage.forEach((pkg, files) -> {
+            if (pkg.equals(packageName) || (recurse && pkg.startsWith(packageName + "."))) {
+                result.addAll(files);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public String inferBinaryName(Location location, JavaFileObject file) {
+        if (file instanceof InMemoryClassFileObject classFile) {
+            return classFile.getClassName();
+        }
+        return super.inferBinaryName(location, file);
+    }
+
+
+    /**
+     * Returns the produced classes grouped by the top-level source that generated them,
+     * e.g. {@code com.acme.Order -> {com.acme.Order, com.acme.Order$1}}.
+     */
+    Map<String, Map<String, byte[]>> getClassBytesBySource() {
+        Map<String, Map<String, byte[]>> result = new LinkedHashMap<>();
+        classObjects.forEach((className, fileObject) -> {
+            String owner = classOwners.getOrDefault(fileObject, className);
+            result.computeIfAbsent(owner, k -> new LinkedHashMap<>()).put(className, fileObject.getBytes());
+        });
+        return result;
+    }
+}
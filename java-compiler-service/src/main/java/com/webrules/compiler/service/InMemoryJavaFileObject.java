@@ -0,0 +1,31 @@
+package com.webrules.compiler.service;
+
+import javax.tools.SimpleJavaFileObject;
+import java.net.URI;
+
+/**
+ * Generated source of one data model, keyed by the binary name of its top-level class.
+ */
+class InMemoryJavaFileObject extends SimpleJavaFileObject {
+    private final String className;
+    private final String code;
+
+    InMemoryJavaFileObject(String className, String code) {
+        super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+        this.className = className;
+        this.code = code;
+    }
+
+    String getClassName() {
+        return className;
+    }
+
+    String getCode() {
+        return code;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return code;
+    }
+}
@@ -0,0 +1,31 @@
+package com.webrules.compiler.service;
+
+import java.util.List;
+
+/**
+ * Thrown when data models fail the {@link ModelValidator}, before anything was compiled.
+ * {@code problems} lists the first problems found; {@code problemCount} counts all of them.
+ */
+public class InvalidModelException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** An array rather than a list so that the exception stays serializable. */
+    private final ModelValidator.Problem[] problems;
+    private final int problemCount;
+
+    public InvalidModelException(List<ModelValidator.Problem> problems, int problemCount) {
+        super(problemCount + (problemCount == 1 ? " problem" : " problems") + " in the data models, first: "
+            + problems.getFirst());
+        this.problems = problems.toArray(ModelValidator.Problem[]::new);
+        this.problemCount = problemCount;
+    }
+
+    public List<ModelValidator.Problem> getProblems() {
+        return List.of(problems);
+    }
+
+    public int getProblemCount() {
+        return problemCount;
+    }
+}
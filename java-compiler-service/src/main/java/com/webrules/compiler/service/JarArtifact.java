@@ -0,0 +1,8 @@
+package com.webrules.compiler.service;
+
+/**
+ * A packaged JAR. {@code key} is the content hash of the request that produced it, or
+ * {@code null} if the build was not reproducible.
+ */
+public record JarArtifact(String key, String filename, byte[] bytes, int classCount) {
+}
@@ -0,0 +1,268 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.CompileRequestDTO;
+import com.webrules.compiler.dto.DataModelDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Turns a compile request into a packaged JAR, serving reproducible builds from the
+ * {@link ArtifactCache} when the same request was built before. Identical requests that
+ * arrive while one of them is compiling wait for that compilation instead of starting
+ * their own, unless {@code compiler.coalesce-requests} is off. Compilations that outlive
+ * {@code compiler.request-deadline}, or that every waiting request gave up on, are cancelled.
+ * Callers {@link #validate} a request before anything else, so invalid requests never
+ * reach javac and are never answered from the artifact cache.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JarArtifactService {
+
+    private static final String DEFAULT_RULE_NAME = "compiled-models";
+    private static final String DEFAULT_VERSION = "1.0.0";
+    static final String VENDOR = "Web Rules";
+    static final String DESCRIPTION = "Compiled data models from Web Rules Editor";
+
+    private final JavaCompilerService compilerService;
+    private final JarBuilderService jarBuilderService;
+    private final ArtifactCache artifactCache;
+    private final CompileScheduler compileScheduler;
+    private final CompilerProperties properties;
+    private final CompilerMetrics metrics;
+
+    private final SingleFlight<CompilationResult> compilations = new SingleFlight<>("compile-flight");
+    private final SingleFlight<JarArtifact> packagings = new SingleFlight<>("package-flight");
+
+    /**
+     * Content hash of everything that determines the JAR bytes, or {@code null} if JARs
+     * are not built reproducibly and therefore have no stable identity.
+     */
+    public String artifactKey(CompileRequestDTO request) {
+        return jarBuilderService.isReproducible() ? requestKey(request) : null;
+    }
+
+    /**
+     * Content hash of everything in the request that determines the JAR contents.
+     */
+    private String requestKey(CompileRequestDTO request) {
+        ModelHasher hasher = new ModelHasher()
+            .add(compilerService.compilerFingerprint())
+            .add(CodegenOptions.of(request).fingerprint())
+            .add(jarBuilderService.settingsFingerprint())
+            .add(ruleName(request))
+            .add(version(request))
+            .add(request.isIncludeDrools())
+            .add(request.isIncludeDrools() ? request.getDroolsContent() : null)
+            .add(String.valueOf(jarBuilderService.compressionLevel(request.getCompressionLevel())));
+        
+        hasher.add(String.valueOf(request.getDataModels().size()));
+        for (DataModelDTO model : request.getDataModels()) {
+            hasher.add(model);
+        }
+        return hasher.finish();
+    }
+
+    public boolean isStreaming() {
+        return jarBuilderService.isStreaming();
+    }
+
+    /**
+     * Returns the cached artifact for the given key, or {@code null}.
+     */
+    public JarArtifact getCached(String key) {
+        return key != null ? artifactCache.get(key) : null;
+    }
+
+    /**
+     * Id of the build the request's models produce; see {@link ModelBuild}.
+     */
+    public String buildId(CompileRequestDTO request) {
+        return compilerService.buildId(request.getDataModels(), CodegenOptions.of(request));
+    }
+
+    public JarArtifact build(CompileRequestDTO request) throws Exception {
+        validate(request);
+        String key = artifactKey(request);
+        JarArtifact cached = getCached(key);
+        if (cached != null) {
+            log.info("Serving cached artifact {} ({} bytes)", cached.filename(), cached.bytes().length);
+            return cached;
+        }
+        return packageJar(compile(request, key));
+    }
+
+    /**
+     * Packages a compiled request into an in-memory JAR and caches it when reproducible.
+     * Requests sharing a compilation also share the packaging.
+     */
+    public JarArtifact packageJar(CompilationResult result) throws Exception {
+        String key = result.key();
+        if (key == null || !properties.isCoalesceRequests()) {
+            return buildArtifact(result);
+        }
+        return packagings.execute(key, () -> {
+            JarArtifact cached = artifactCache.get(key);
+            return cached != null ? cached : buildArtifact(result);
+        }, CancellationToken.NONE);
+    }
+
+    /**
+     * Requests that got their compilation from an identical request in flight.
+     */
+    public long getCoalescedCompilations() {
+        return compilations.getCoalescedCount();
+    }
+
+    /**
+     * Requests that got their in-memory JAR from an identical request in flight.
+     */
+    public long getCoalescedPackagings() {
+        return packagings.getCoalescedCount();
+    }
+
+    private JarArtifact buildArtifact(CompilationResult result) throws IOException {
+        String key = result.key();
+        byte[] jarBytes = jarBuilderService.buildJar(
+            result.classes(),
+            result.ruleName(),
+            result.version(),
+            VENDOR,
+            DESCRIPTION,
+            result.includeDrools(),
+            result.droolsContent(),
+            result.compressionLevel()
+        );
+        
+        JarArtifact artifact = new JarArtifact(key, result.filename(), jarBytes, result.classes().size());
+        if (key != null) {
+            artifactCache.put(artifact);
+        }
+        return artifact;
+    }
+
+    /**
+     * Compiles the request without packaging it, so the JAR can be streamed afterwards with
+     * {@link #writeJar}. Compilation errors surface here, before any response is committed.
+     * If an identical request is already compiling, this waits for it without taking a
+     * compile slot and shares its result or its failure. A shared compilation has no
+     * deadline of its own; it is cancelled once the deadlines of all its waiters passed.
+     * The request must have passed {@link #validate}.
+     *
+     * @throws CompilerBusyException if the compile scheduler does not admit the request
+     * @throws CompilationCancelledException if {@code compiler.request-deadline} passed first
+     */
+    public CompilationResult compile(CompileRequestDTO request, String key) throws Exception {
+        CancellationToken cancellation = CancellationToken.withTimeout(properties.getRequestDeadline());
+        try {
+            if (!properties.isCoalesceRequests()) {
+                return compileScheduler.execute(
+                    () -> compileNow(request, key, CompileProgressListener.NONE, cancellation), cancellation);
+            }
+            // The base build only changes which models count as rebuilt, but that is reported too
+            String flightKey = (key != null ? key : requestKey(request)) + "/" + request.getBaseBuildId();
+            return compilations.execute(flightKey, () -> {
+                CancellationToken shared = CancellationToken.create();
+                return compileScheduler.execute(
+                    () -> compileNow(request, key, CompileProgressListener.NONE, shared), shared);
+            }, cancellation);
+        } catch (CompilationCancelledException e) {
+            metrics.recordCancellation(e.getReason());
+            log.warn("Compilation of {} models cancelled: {}", request.getDataModels().size(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Queues the compilation on the compile scheduler and returns at once. The request must
+     * have passed {@link #validate}.
+     *
+     * @throws CompilerBusyException if the compile queue is full
+     */
+    public CompletableFuture<CompilationResult> submit(CompileRequestDTO request, String key,
+                                                       CompileProgressListener listener) {
+        return compileScheduler.submit(() -> compileNow(request, key, listener, CancellationToken.NONE));
+    }
+
+    /**
+     * Checks that the request's models would compile. Runs before the artifact key, ETag or
+     * cache are consulted: the key does not capture every way a request can be invalid, so
+     * an invalid request could otherwise be answered with the JAR of a valid one.
+     *
+     * @throws InvalidModelException if the models would not compile
+     */
+    public void validate(CompileRequestDTO request) {
+        long start = System.nanoTime();
+        boolean valid = false;
+        try {
+            ModelValidator.validate(request.getDataModels(), CodegenOptions.of(request));
+            valid = true;
+        } finally {
+            metrics.record(CompilerMetrics.VALIDATION, System.nanoTime() - start, valid);
+        }
+    }
+
+    private CompilationResult compileNow(CompileRequestDTO request, String key, CompileProgressListener listener,
+                                         CancellationToken cancellation) throws Exception {
+        ModelBuild build = compilerService.build(request.getDataModels(), CodegenOptions.of(request),
+            request.getBaseBuildId(), listener, cancellation);
+        
+        if (build.classes().isEmpty()) {
+            throw new IllegalArgumentException("No classes were compiled successfully");
+        }
+        
+        String ruleName = ruleName(request);
+        String version = version(request);
+        
+        return new CompilationResult(key, filename(ruleName, version), ruleName, version, build,
+            request.isIncludeDrools(), request.getDroolsContent(),
+            jarBuilderService.compressionLevel(request.getCompressionLevel()));
+    }
+
+    /**
+     * Streams the JAR for a compiled request into {@code out}. JARs of reproducible builds
+     * that stay below {@code compiler.jar.streaming-cache-threshold} are captured on the way
+     * and put into the artifact cache once fully written.
+     */
+    public long writeJar(CompilationResult result, OutputStream out) throws IOException {
+        CapturingOutputStream capture = result.key() != null
+            ? new CapturingOutputStream(out, jarBuilderService.getStreamingCacheThreshold())
+            : null;
+        
+        long size = jarBuilderService.writeJar(
+            capture != null ? capture : out,
+            result.classes(),
+            result.ruleName(),
+            result.version(),
+            VENDOR,
+            DESCRIPTION,
+            result.includeDrools(),
+            result.droolsContent(),
+            result.compressionLevel()
+        );
+        
+        byte[] captured = capture != null ? capture.getCaptured() : null;
+        if (captured != null) {
+            artifactCache.put(new JarArtifact(result.key(), result.filename(), captured, result.classes().size()));
+        }
+        return size;
+    }
+
+    static String ruleName(CompileRequestDTO request) {
+        return request.getRuleName() != null ? request.getRuleName() : DEFAULT_RULE_NAME;
+    }
+
+    static String version(CompileRequestDTO request) {
+        return request.getVersion() != null ? request.getVersion() : DEFAULT_VERSION;
+    }
+
+    static String filename(String ruleName, String version) {
+        return ruleName.toLowerCase().replaceAll("\\s+", "-") + "-" + version + ".jar";
+    }
+}
@@ -1,43 +1,257 @@
 package com.webrules.compiler.service;
 
+import com.webrules.compiler.config.CompilerProperties;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.jar.*;
+import java.util.zip.CRC32;
 import java.util.zip.Deflater;
 
 @Slf4j
 @Service
-public class JarBuilderService {
+public class JarBuilderService implements DisposableBean {
+
+    private final CompilerProperties.Jar config;
+    private final CompilerMetrics metrics;
+    private final ForkJoinPool deflatePool;
+    private final BufferPool jarBuffers;
+
+    public JarBuilderService(CompilerProperties properties, CompilerMetrics metrics) {
+        this.config = properties.getJar();
+        this.metrics = metrics;
+        CompilerProperties.Buffers buffers = properties.getBuffers();
+        this.jarBuffers = buffers.isEnabled() ? new BufferPool(buffers.getJarPool().toBytes()) : null;
+        this.deflatePool = new ForkJoinPool(config.getParallelism(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("jar-deflate-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Whether identical input yields byte-identical JARs.
+     */
+    public boolean isReproducible() {
+        return config.isReproducible();
+    }
+
+    public boolean isStreaming() {
+        return config.isStreaming();
+    }
+
+    long getStreamingCacheThreshold() {
+        return config.getStreamingCacheThreshold().toBytes();
+    }
+
+    /**
+     * Identifies the packaging settings that influence the JAR bytes. The compression
+     * level is chosen per request and hashed separately.
+     */
+    String settingsFingerprint() {
+        return config.isReproducible() + "/" + config.getEntryTimestamp();
+    }
+
+    /**
+     * The level a request asked for, or the configured default.
+     */
+    public int compressionLevel(Integer requested) {
+        return requested != null ? requested : config.getCompressionLevel();
+    }
 
     public byte[] buildJar(Map<String, byte[]> compiledClasses, String ruleName, 
                           String version, String vendor, String description,
-                          boolean includeDrools, String droolsContent) throws IOException {
+                          boolean includeDrools, String droolsContent, int compressionLevel) throws IOException {
         
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        if (jarBuffers == null) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            writeJar(baos, compiledClasses, ruleName, version, vendor, description, includeDrools, droolsContent, compressionLevel);
+            return baos.toByteArray();
+        }
         
-        try (JarOutputStream jos = new JarOutputStream(baos)) {
-            jos.setLevel(Deflater.DEFAULT_COMPRESSION);
-            
-            addManifest(jos, ruleName, version, vendor, description);
-            addCompiledClasses(jos, compiledClasses);
+        BufferPool.Buffer buffer = jarBuffers.borrow();
+        try {
+            writeJar(buffer, compiledClasses, ruleName, version, vendor, description, includeDrools, droolsContent, compressionLevel);
+            return buffer.toByteArray();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Writes the JAR straight into {@code out} without buffering it. The stream is flushed
+     * but left open. If writing fails part-way, the central directory is never written,
+     * so a truncated stream can't be mistaken for a complete JAR. When {@code out} is a
+     * client connection, the recorded build time includes waiting on the client.
+     *
+     * @param compressionLevel deflate level 1-9, -1 for the zlib default, or 0 to store entries uncompressed
+     * @return number of bytes written
+     */
+    public long writeJar(OutputStream out, Map<String, byte[]> compiledClasses, String ruleName,
+                         String version, String vendor, String description,
+                         boolean includeDrools, String droolsContent, int compressionLevel) throws IOException {
+        
+        List<ParallelZipWriter.Entry> entries = new ArrayList<>();
+        addManifest(entries, ruleName, version, vendor, description);
+        addCompiledClasses(entries, compiledClasses);
+        
+        if (includeDrools && droolsContent != null && !droolsContent.isEmpty()) {
+            addDroolsFiles(entries, ruleName, droolsContent);
+        }
+        
+        CountingOutputStream counter = new CountingOutputStream(out);
+        LocalDateTime timestamp = config.isReproducible() ? config.getEntryTimestamp() : LocalDateTime.now();
+        long start = System.nanoTime();
+        boolean success = false;
+        
+        try {
+            if (entries.size() <= ParallelZipWriter.MAX_ENTRIES) {
+                // On the calling thread the writer produces the same bytes as on the pool
+                Executor executor = config.isParallel() ? deflatePool : Runnable::run;
+                new ParallelZipWriter(executor, compressionLevel, timestamp).write(entries, counter);
+            } else {
+                writeSequentially(entries, counter, compressionLevel, timestamp);
+            }
+            success = true;
+        } finally {
+            metrics.record(CompilerMetrics.JAR_BUILD, System.nanoTime() - start, success);
+        }
+        
+        metrics.recordBytes(CompilerMetrics.JAR_SIZE, counter.getCount());
+        log.info("Built JAR file: {} classes, {} bytes", compiledClasses.size(), counter.getCount());
+        return counter.getCount();
+    }
+
+    /**
+     * Starts a JAR whose classes are added as they are compiled, for requests that are
+     * compiled while they are still being read. The manifest is written right away, and
+     * entries are compressed sequentially in the order they are added.
+     */
+    public JarStream openJar(OutputStream out, String ruleName, String version, String vendor,
+                             String description, int compressionLevel) throws IOException {
+        return new JarStream(out, ruleName, version, vendor, description, compressionLevel);
+    }
+
+    /**
+     * Buffers in-memory JARs are assembled in, or {@code null} when buffers are not pooled.
+     */
+    BufferPool getJarBuffers() {
+        return jarBuffers;
+    }
+
+    @Override
+    public void destroy() {
+        deflatePool.shutdownNow();
+    }
+
+    /**
+     * A JAR being written into a stream, see {@link #openJar}. Not thread-safe.
+     */
+    public final class JarStream {
+        private final CountingOutputStream counter;
+        private final JarOutputStream jos;
+        private final int compressionLevel;
+        private final LocalDateTime timestamp;
+        private final String ruleName;
+        private int classCount;
+
+        private JarStream(OutputStream out, String ruleName, String version, String vendor,
+                          String description, int compressionLevel) throws IOException {
+            this.counter = new CountingOutputStream(out);
+            this.jos = new JarOutputStream(counter);
+            this.compressionLevel = compressionLevel;
+            this.timestamp = config.isReproducible() ? config.getEntryTimestamp() : LocalDateTime.now();
+            this.ruleName = ruleName;
+            jos.setLevel(compressionLevel);
             
+            List<ParallelZipWriter.Entry> entries = new ArrayList<>();
+            addManifest(entries, ruleName, version, vendor, description);
+            write(entries);
+        }
+
+        public void addClasses(Map<String, byte[]> compiledClasses) throws IOException {
+            List<ParallelZipWriter.Entry> entries = new ArrayList<>(compiledClasses.size());
+            addCompiledClasses(entries, compiledClasses);
+            write(entries);
+            classCount += compiledClasses.size();
+        }
+
+        /**
+         * Adds the Drools files, if any, and writes the central directory. The underlying
+         * stream is flushed but left open.
+         *
+         * @return number of bytes written
+         */
+        public long finish(boolean includeDrools, String droolsContent) throws IOException {
             if (includeDrools && droolsContent != null && !droolsContent.isEmpty()) {
-                addDroolsFiles(jos, ruleName, droolsContent);
+                List<ParallelZipWriter.Entry> entries = new ArrayList<>();
+                addDroolsFiles(entries, ruleName, droolsContent);
+                write(entries);
+            }
+            jos.close();
+            
+            metrics.recordBytes(CompilerMetrics.JAR_SIZE, counter.getCount());
+            log.info("Built JAR file: {} classes, {} bytes", classCount, counter.getCount());
+            return counter.getCount();
+        }
+
+        private void write(List<ParallelZipWriter.Entry> entries) throws IOException {
+            for (ParallelZipWriter.Entry entry : entries) {
+                writeEntry(jos, entry, compressionLevel, timestamp);
+            }
+        }
+    }
+
+    /**
+     * Compresses entry by entry on the calling thread through a {@link JarOutputStream},
+     * for archives too large for {@link ParallelZipWriter}.
+     */
+    private void writeSequentially(List<ParallelZipWriter.Entry> entries, OutputStream out, int compressionLevel,
+                                   LocalDateTime timestamp) throws IOException {
+        try (JarOutputStream jos = new JarOutputStream(out)) {
+            jos.setLevel(compressionLevel);
+            
+            for (ParallelZipWriter.Entry entry : entries) {
+                writeEntry(jos, entry, compressionLevel, timestamp);
             }
             
             jos.finish();
         }
+    }
+
+    private static void writeEntry(JarOutputStream jos, ParallelZipWriter.Entry entry, int compressionLevel,
+                                   LocalDateTime timestamp) throws IOException {
+        JarEntry jarEntry = new JarEntry(entry.name());
+        // The local-time setter keeps the stored DOS time independent of the server time zone
+        jarEntry.setTimeLocal(timestamp);
+        jarEntry.setSize(entry.data().length);
+        if (compressionLevel == Deflater.NO_COMPRESSION) {
+            CRC32 crc = new CRC32();
+            crc.update(entry.data());
+            jarEntry.setMethod(JarEntry.STORED);
+            jarEntry.setCompressedSize(entry.data().length);
+            jarEntry.setCrc(crc.getValue());
+        }
         
-        log.info("Built JAR file: {} classes, {} bytes", compiledClasses.size(), baos.size());
-        return baos.toByteArray();
+        jos.putNextEntry(jarEntry);
+        jos.write(entry.data());
+        jos.closeEntry();
     }
 
-    private void addManifest(JarOutputStream jos, String ruleName, String version, 
+    private void addManifest(List<ParallelZipWriter.Entry> entries, String ruleName, String version, 
                             String vendor, String description) throws IOException {
         Manifest manifest = new Manifest();
         Attributes attrs = manifest.getMainAttributes();
@@ -48,57 +262,36 @@ public class JarBuilderService {
         attrs.put(new Attributes.Name("Implementation-Vendor"), vendor != null ? vendor : "Web Rules");
         attrs.put(new Attributes.Name("Implementation-Description"), description != null ? description : "Compiled Data Models");
         attrs.put(new Attributes.Name("Created-By"), "Web Rules Java Compiler Service");
-        attrs.put(new Attributes.Name("Build-Time"), LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME));
+        if (!config.isReproducible()) {
+            attrs.put(new Attributes.Name("Build-Time"), LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME));
+        }
         
-        JarEntry manifestEntry = new JarEntry("META-INF/MANIFEST.MF");
-        jos.putNextEntry(manifestEntry);
-        manifest.write(jos);
-        jos.closeEntry();
+        ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+        manifest.write(manifestBytes);
+        entries.add(new ParallelZipWriter.Entry(JarFile.MANIFEST_NAME, manifestBytes.toByteArray()));
         
         log.debug("Added MANIFEST.MF");
     }
 
-    private void addCompiledClasses(JarOutputStream jos, Map<String, byte[]> compiledClasses) throws IOException {
-        for (Map.Entry<String, byte[]> entry : compiledClasses.entrySet()) {
-            String className = entry.getKey();
-            byte[] bytecode = entry.getValue();
-            
-            String entryName = className.replace('.', '/') + ".class";
-            JarEntry jarEntry = new JarEntry(entryName);
-            jarEntry.setSize(bytecode.length);
-            jarEntry.setTime(System.currentTimeMillis());
+    private void addCompiledClasses(List<ParallelZipWriter.Entry> entries, Map<String, byte[]> compiledClasses) {
+        // Sorted so that the entry order does not depend on compilation or map order
+        for (Map.Entry<String, byte[]> entry : new TreeMap<>(compiledClasses).entrySet()) {
+            String entryName = entry.getKey().replace('.', '/') + ".class";
+            entries.add(new ParallelZipWriter.Entry(entryName, entry.getValue()));
             
-            jos.putNextEntry(jarEntry);
-            jos.write(bytecode);
-            jos.closeEntry();
-            
-            log.debug("Added class: {} ({} bytes)", entryName, bytecode.length);
+            log.debug("Added class: {} ({} bytes)", entryName, entry.getValue().length);
         }
     }
 
-    private void addDroolsFiles(JarOutputStream jos, String ruleName, String droolsContent) throws IOException {
+    private void addDroolsFiles(List<ParallelZipWriter.Entry> entries, String ruleName, String droolsContent) {
         String packageName = "com/rules";
         String drlFileName = packageName + "/" + (ruleName != null ? ruleName : "Rules") + ".drl";
         
-        JarEntry drlEntry = new JarEntry(drlFileName);
-        byte[] drlBytes = droolsContent.getBytes();
-        drlEntry.setSize(drlBytes.length);
-        
-        jos.putNextEntry(drlEntry);
-        jos.write(drlBytes);
-        jos.closeEntry();
-        
+        entries.add(new ParallelZipWriter.Entry(drlFileName, droolsContent.getBytes(StandardCharsets.UTF_8)));
         log.debug("Added DRL file: {}", drlFileName);
         
         String kmoduleContent = generateKModuleXml(packageName.replace('/', '.'));
-        JarEntry kmoduleEntry = new JarEntry("META-INF/kmodule.xml");
-        byte[] kmoduleBytes = kmoduleContent.getBytes();
-        kmoduleEntry.setSize(kmoduleBytes.length);
-        
-        jos.putNextEntry(kmoduleEntry);
-        jos.write(kmoduleBytes);
-        jos.closeEntry();
-        
+        entries.add(new ParallelZipWriter.Entry("META-INF/kmodule.xml", kmoduleContent.getBytes(StandardCharsets.UTF_8)));
         log.debug("Added kmodule.xml");
     }
 
@@ -1,20 +1,30 @@
 package com.webrules.compiler.service;
 
+import com.sun.source.util.JavacTask;
+import com.webrules.compiler.accessor.IndexedFields;
+import com.webrules.compiler.accessor.MutableIndexedFields;
+import com.webrules.compiler.codec.CodecSupport;
+import com.webrules.compiler.config.CompilerProperties;
 import com.webrules.compiler.dto.DataModelDTO;
 import com.webrules.compiler.dto.DataModelFieldDTO;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import javax.tools.*;
-import java.io.*;
-import java.net.URI;
-import java.nio.file.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
-public class JavaCompilerService {
+@RequiredArgsConstructor
+public class JavaCompilerService implements ModelCompiler {
 
     private static final Map<String, String> TYPE_MAP = Map.of(
         "string", "String",
@@ -26,6 +36,14 @@ public class JavaCompilerService {
         "array", "java.util.List"
     );
 
+    /**
+     * Wrapper types for the item types that map to primitives; list elements can't be primitive.
+     */
+    private static final Map<String, String> BOXED_ITEM_TYPE_MAP = Map.of(
+        "number", "Double",
+        "boolean", "Boolean"
+    );
+
     private static final Map<String, List<String>> IMPORT_MAP = Map.of(
         "date", List.of("import java.time.LocalDateTime;"),
         "array", List.of("import java.util.List;", "import java.util.ArrayList;")
@@ -35,28 +53,354 @@ public class JavaCompilerService {
         "import java.util.Objects;"
     );
 
+    private static final String CODEC_SUPPORT = CodecSupport.class.getName();
+
+    /**
+     * Runtime support of the generated codecs, compiled against by javac and packaged
+     * into every JAR that has codecs.
+     */
+    private static final Map<String, byte[]> CODEC_SUPPORT_CLASSES = Map.of(CODEC_SUPPORT, classFile(CodecSupport.class));
+
+    /**
+     * Interfaces implemented by classes with indexed accessors, compiled against and packaged
+     * like the codec support.
+     */
+    private static final Map<String, byte[]> ACCESSOR_CLASSES = Map.of(
+        IndexedFields.class.getName(), classFile(IndexedFields.class),
+        MutableIndexedFields.class.getName(), classFile(MutableIndexedFields.class));
+
+    private static final List<String> JAVAC_OPTIONS = List.of("-source", "21", "-target", "21");
+
+    /**
+     * Keeps javac from looking for annotation processors and from compiling sources other
+     * than the generated ones, which it would otherwise do on every task.
+     */
+    private static final List<String> ISOLATION_OPTIONS = List.of("-proc:none", "-implicit:none");
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Version of the source generator. Bump whenever generated code changes so that
+     * cached bytecode from older generators is no longer used.
+     */
+    static final int CODEGEN_VERSION = 4;
+
+    private final CompilerProperties properties;
+    private final CompilerContextPool compilerPool;
+    private final BytecodeCache bytecodeCache;
+    private final BytecodeModelCompiler bytecodeCompiler;
+    private final BuildRegistry buildRegistry;
+    private final CompilerMetrics metrics;
+    private final PartitionedCompiler partitionedCompiler;
+
+    /**
+     * Moving average of the CPU time javac needed per model, to estimate what cancelled
+     * compilations would have cost. It follows cheaper samples faster than dearer ones, so
+     * that the cold first compilations do not inflate the estimate for long.
+     */
+    private volatile long cpuNanosPerModel;
+
     public Map<String, byte[]> compileDataModels(List<DataModelDTO> dataModels) throws Exception {
-        Map<String, byte[]> compiledClasses = new HashMap<>();
+        return compileDataModels(dataModels, CompileProgressListener.NONE);
+    }
+
+    public Map<String, byte[]> compileDataModels(List<DataModelDTO> dataModels,
+                                                 CompileProgressListener listener) throws Exception {
+        return build(dataModels, CodegenOptions.DEFAULT, null, listener, CancellationToken.NONE).classes();
+    }
+
+    /**
+     * Compiles the models, building incrementally on top of {@code baseBuildId} when that
+     * build is still known: only models whose fingerprint changed since the base build,
+     * plus every model that depends on them, are recompiled; the rest reuse the base
+     * build's bytecode. Without a usable base build, unchanged models are served from the
+     * bytecode cache instead. The result is recorded under its own build id. A base build
+     * made with other options shares no fingerprints with this one and is rebuilt in full.
+     * A cancelled build records nothing; only models it fully compiled are cached.
+     */
+    public ModelBuild build(List<DataModelDTO> dataModels, CodegenOptions options, String baseBuildId,
+                            CompileProgressListener listener, CancellationToken cancellation) throws Exception {
+        cancellation.throwIfCancelled();
+        ModelDependencyGraph graph = new ModelDependencyGraph(dataModels);
+        Map<String, String> fingerprints = new LinkedHashMap<>();
+        Set<String> fastPathClasses = new HashSet<>();
+        metrics.recordCount(CompilerMetrics.REQUEST_MODELS, dataModels.size());
+        for (DataModelDTO model : dataModels) {
+            String className = ModelDependencyGraph.classNameOf(model);
+            boolean fastPath = usesFastPath(model, options, graph.classNames());
+            if (fastPath) {
+                fastPathClasses.add(className);
+            }
+            fingerprints.put(className, cacheKey(model, options, fastPath));
+            metrics.recordCount(CompilerMetrics.MODEL_FIELDS, model.getFields() != null ? model.getFields().size() : 0);
+        }
+        String buildId = buildId(fingerprints);
+        
+        BuildRegistry.BuildRecord base = buildRegistry.get(baseBuildId);
+        Set<String> affected = Set.of();
+        if (base != null) {
+            affected = graph.withDependents(changedSince(base, graph, fingerprints));
+            log.info("Incremental build on {}: {} of {} models affected", baseBuildId, affected.size(), dataModels.size());
+        } else if (baseBuildId != null) {
+            log.info("Base build {} is unknown, building from scratch", baseBuildId);
+        }
+        
+        Map<String, Map<String, byte[]>> classesByModel = new LinkedHashMap<>();
+        Map<String, byte[]> compiledClasses = new LinkedHashMap<>();
+        Map<String, String> cacheKeys = new HashMap<>();
+        compiledClasses.putAll(runtimeClasses(options));
+        List<DataModelDTO> fastPathModels = new ArrayList<>();
+        List<DataModelDTO> javacModels = new ArrayList<>();
+        List<String> reused = new ArrayList<>();
+        
+        int total = dataModels.size();
         
         for (DataModelDTO model : dataModels) {
-            String javaCode = generateJavaCode(model);
-            String className = model.getPackageName() + "." + model.getName();
+            String className = ModelDependencyGraph.classNameOf(model);
+            String cacheKey = fingerprints.get(className);
             
-            log.info("Compiling class: {}", className);
-            log.debug("Generated Java code:\n{}", javaCode);
+            // Affected models are recompiled even when cached, so that they are checked
+            // against the current version of the models they depend on
+            Map<String, byte[]> previous;
+            if (base != null) {
+                previous = affected.contains(className) ? null : base.classesByModel().get(className);
+            } else {
+                previous = bytecodeCache.get(cacheKey);
+            }
+            if (previous != null) {
+                log.debug("Reusing bytecode for {}", className);
+                classesByModel.put(className, previous);
+                compiledClasses.putAll(previous);
+                reused.add(className);
+                continue;
+            }
             
-            byte[] bytecode = compileJavaCode(className, javaCode);
+            cacheKeys.put(className, cacheKey);
+            if (fastPathClasses.contains(className)) {
+                fastPathModels.add(model);
+            } else {
+                javacModels.add(model);
+            }
+        }
+        
+        listener.onProgress(total - cacheKeys.size(), total);
+        
+        // Fast-path classes first, so that javac can resolve references to them
+        if (!fastPathModels.isEmpty()) {
+            log.info("Emitting {} classes directly", fastPathModels.size());
+            Map<String, Map<String, byte[]>> emitted = metrics.time(CompilerMetrics.BYTECODE_EMIT,
+                () -> bytecodeCompiler.compile(fastPathModels, options, compiledClasses, cancellation));
+            collect(emitted, cacheKeys, classesByModel, compiledClasses);
+            listener.onProgress(total - javacModels.size(), total);
+        }
+        
+        if (!javacModels.isEmpty()) {
+            log.info("Compiling {} classes with javac ({} reused)", javacModels.size(), reused.size());
+            collect(partitionedCompiler.compile(javacModels, this, options, compiledClasses, cancellation),
+                cacheKeys, classesByModel, compiledClasses);
+            listener.onProgress(total, total);
+        }
+        
+        // Callers log one summary per build; listing every class only pays off when debugging
+        if (log.isDebugEnabled()) {
+            for (Map.Entry<String, byte[]> entry : compiledClasses.entrySet()) {
+                log.debug("Successfully compiled: {} ({} bytes)", entry.getKey(), entry.getValue().length);
+            }
+        }
+        
+        List<String> rebuilt = new ArrayList<>(cacheKeys.keySet());
+        rebuilt.sort(null);
+        buildRegistry.put(buildId, new BuildRegistry.BuildRecord(fingerprints, classesByModel,
+            List.copyOf(rebuilt), List.copyOf(reused)));
+        return new ModelBuild(buildId, compiledClasses, List.copyOf(rebuilt), List.copyOf(reused));
+    }
+
+    /**
+     * Compiles one batch of a streamed request against {@code classpath}, which holds the
+     * classes of earlier batches and the runtime classes for the options, and adds the
+     * produced classes to it. Uses the bytecode cache and the fast path like {@link #build}
+     * but records no build. Returns the class files grouped by the model that produced them.
+     */
+    Map<String, Map<String, byte[]>> compileBatch(List<DataModelDTO> models, CodegenOptions options,
+                                                  Map<String, byte[]> classpath, CancellationToken cancellation)
+            throws Exception {
+        Set<String> requestClasses = new HashSet<>(classpath.keySet());
+        requestClasses.addAll(ModelDependencyGraph.classNamesOf(models));
+        
+        Map<String, Map<String, byte[]>> classesByModel = new LinkedHashMap<>();
+        Map<String, String> cacheKeys = new HashMap<>();
+        List<DataModelDTO> fastPathModels = new ArrayList<>();
+        List<DataModelDTO> javacModels = new ArrayList<>();
+        
+        for (DataModelDTO model : models) {
+            metrics.recordCount(CompilerMetrics.MODEL_FIELDS, model.getFields() != null ? model.getFields().size() : 0);
+            String className = ModelDependencyGraph.classNameOf(model);
+            boolean fastPath = usesFastPath(model, options, requestClasses);
+            String cacheKey = cacheKey(model, options, fastPath);
+            Map<String, byte[]> cached = bytecodeCache.get(cacheKey);
+            if (cached != null) {
+                classesByModel.put(className, cached);
+                classpath.putAll(cached);
+                continue;
+            }
             
-            if (bytecode != null) {
-                compiledClasses.put(className, bytecode);
-                log.info("Successfully compiled: {} ({} bytes)", className, bytecode.length);
+            cacheKeys.put(className, cacheKey);
+            if (fastPath) {
+                fastPathModels.add(model);
+            } else {
+                javacModels.add(model);
             }
         }
         
-        return compiledClasses;
+        if (!fastPathModels.isEmpty()) {
+            Map<String, Map<String, byte[]>> emitted = metrics.time(CompilerMetrics.BYTECODE_EMIT,
+                () -> bytecodeCompiler.compile(fastPathModels, options, classpath, cancellation));
+            collect(emitted, cacheKeys, classesByModel, classpath);
+        }
+        if (!javacModels.isEmpty()) {
+            collect(partitionedCompiler.compile(javacModels, this, options, classpath, cancellation),
+                cacheKeys, classesByModel, classpath);
+        }
+        return classesByModel;
+    }
+
+    /**
+     * Id of the build for the given model fingerprints; independent of model order.
+     */
+    public String buildId(List<DataModelDTO> dataModels, CodegenOptions options) {
+        Set<String> requestClasses = new HashSet<>(ModelDependencyGraph.classNamesOf(dataModels));
+        Map<String, String> fingerprints = new LinkedHashMap<>();
+        for (DataModelDTO model : dataModels) {
+            fingerprints.put(ModelDependencyGraph.classNameOf(model),
+                cacheKey(model, options, usesFastPath(model, options, requestClasses)));
+        }
+        return buildId(fingerprints);
+    }
+
+    private String buildId(Map<String, String> fingerprints) {
+        ModelHasher hasher = new ModelHasher().add(String.valueOf(fingerprints.size()));
+        new TreeMap<>(fingerprints).forEach((className, fingerprint) -> hasher.add(className).add(fingerprint));
+        return hasher.finish();
+    }
+
+    /**
+     * Models that are new or changed since the base build, plus models that refer to a
+     * model the base build had but this request dropped.
+     */
+    private Set<String> changedSince(BuildRegistry.BuildRecord base, ModelDependencyGraph graph,
+                                     Map<String, String> fingerprints) {
+        Set<String> removed = new HashSet<>(base.fingerprints().keySet());
+        removed.removeAll(fingerprints.keySet());
+        
+        Set<String> changed = new LinkedHashSet<>();
+        for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
+            String className = entry.getKey();
+            if (!entry.getValue().equals(base.fingerprints().get(className))
+                || !Collections.disjoint(graph.referencesOf(className), removed)) {
+                changed.add(className);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Reference backend: generates Java source for every model and compiles the batch with javac.
+     */
+    @Override
+    public boolean supports(DataModelDTO model, CodegenOptions options, Set<String> requestClasses) {
+        return true;
+    }
+
+    @Override
+    public Map<String, Map<String, byte[]>> compile(List<DataModelDTO> models, CodegenOptions options,
+                                                   Map<String, byte[]> classpath, CancellationToken cancellation)
+            throws Exception {
+        if (cancellation.isCancelled()) {
+            metrics.recordCpuSaved(models.size() * cpuNanosPerModel);
+            cancellation.throwIfCancelled();
+        }
+        Map<String, byte[]> runtimeClasses = runtimeClasses(options);
+        if (!classpath.keySet().containsAll(runtimeClasses.keySet())) {
+            classpath = new HashMap<>(classpath);
+            classpath.putAll(runtimeClasses);
+        }
+        Set<String> requestClasses = new HashSet<>(ModelDependencyGraph.classNamesOf(models));
+        requestClasses.addAll(classpath.keySet());
+        
+        List<InMemoryJavaFileObject> sources = new ArrayList<>(models.size());
+        for (DataModelDTO model : models) {
+            String className = model.getPackageName() + "." + model.getName();
+            String javaCode = metrics.time(CompilerMetrics.CODEGEN, () -> generateJavaCode(model, options, requestClasses));
+            metrics.recordBytes(CompilerMetrics.SOURCE_SIZE, javaCode.length());
+            log.debug("Generated Java code for {}:\n{}", className, javaCode);
+            sources.add(new InMemoryJavaFileObject(className, javaCode));
+        }
+        return compileJavaCode(sources, classpath, cancellation);
+    }
+
+    private void collect(Map<String, Map<String, byte[]>> compiled, Map<String, String> cacheKeys,
+                         Map<String, Map<String, byte[]>> classesByModel, Map<String, byte[]> compiledClasses) {
+        compiled.forEach((className, classes) -> {
+            String cacheKey = cacheKeys.get(className);
+            if (cacheKey != null) {
+                bytecodeCache.put(cacheKey, classes);
+            }
+            classesByModel.put(className, classes);
+            compiledClasses.putAll(classes);
+            for (byte[] bytes : classes.values()) {
+                metrics.recordBytes(CompilerMetrics.BYTECODE_SIZE, bytes.length);
+            }
+        });
     }
 
-    private String generateJavaCode(DataModelDTO model) {
+    /**
+     * Whether the model is emitted by the ASM fast path rather than javac. This depends on
+     * the other classes of the request, so it is decided once per request and recorded in
+     * the cache key: the two backends produce equivalent but not identical class files.
+     */
+    private boolean usesFastPath(DataModelDTO model, CodegenOptions options, Set<String> requestClasses) {
+        return properties.getBackend() == CompilerProperties.Backend.AUTO
+            && bytecodeCompiler.supports(model, options, requestClasses);
+    }
+
+    /**
+     * Content hash of everything that determines the bytecode of a model, including the
+     * backend that compiles it.
+     */
+    private String cacheKey(DataModelDTO model, CodegenOptions options, boolean fastPath) {
+        return new ModelHasher()
+            .add(compilerFingerprint())
+            .add(fastPath ? "asm" : "javac")
+            .add(options.fingerprint())
+            .add(model)
+            .finish();
+    }
+
+    /**
+     * Identifies the toolchain: JDK version, generator version, backend and javac options.
+     */
+    String compilerFingerprint() {
+        return Runtime.version() + "/" + CODEGEN_VERSION + "/" + properties.getBackend() + "/" + String.join(" ", javacOptions());
+    }
+
+    /**
+     * The javac options for the configured class path isolation and debug info.
+     */
+    List<String> javacOptions() {
+        CompilerProperties.Javac config = properties.getJavac();
+        List<String> options = new ArrayList<>(JAVAC_OPTIONS);
+        if (config.isMinimalClasspath()) {
+            options.addAll(ISOLATION_OPTIONS);
+        }
+        options.add(config.isDebugInfo() ? "-g" : "-g:none");
+        return options;
+    }
+
+    /**
+     * @param requestClasses classes that can be referenced by name; references to models
+     *                       among them are encoded with their own codec
+     */
+    String generateJavaCode(DataModelDTO model, CodegenOptions options, Set<String> requestClasses) {
         StringBuilder sb = new StringBuilder();
         
         sb.append("package ").append(model.getPackageName()).append(";\n\n");
@@ -80,35 +424,43 @@ public class JavaCompilerService {
             sb.append("\n");
         }
         
-        sb.append("public class ").append(model.getName()).append(" {\n\n");
-        
-        for (DataModelFieldDTO field : model.getFields()) {
-            if (field.getDescription() != null && !field.getDescription().isEmpty()) {
-                sb.append("    /**\n");
-                sb.append("     * ").append(field.getDescription()).append("\n");
-                sb.append("     */\n");
+        if (options.isImmutable()) {
+            sb.append(generateImmutableClass(model, options));
+        } else {
+            sb.append("public class ").append(model.getName());
+            if (options.accessors()) {
+                sb.append(" implements ").append(MutableIndexedFields.class.getName());
+            }
+            sb.append(" {\n\n");
+            sb.append(generateFields(model, options, "private "));
+            sb.append(generateConstructors(model, options));
+            sb.append(generateGettersAndSetters(model, options, true));
+            sb.append(generateToString(model, options));
+            sb.append(generateEquals(model, options));
+            sb.append(generateHashCode(model, options));
+            if (options.accessors()) {
+                sb.append(generateIndexedAccessors(model, options, true));
             }
-            
-            String javaType = getJavaType(field);
-            sb.append("    private ").append(javaType).append(" ").append(field.getName()).append(";\n\n");
         }
         
-        sb.append(generateConstructors(model));
-        sb.append(generateGettersAndSetters(model));
-        sb.append(generateToString(model));
-        sb.append(generateEquals(model));
-        sb.append(generateHashCode(model));
+        if (options.codecs()) {
+            sb.append(generateCodec(model, options, requestClasses));
+        }
         
         sb.append("}\n");
         
         return sb.toString();
     }
 
-    private String getJavaType(DataModelFieldDTO field) {
+    private String getJavaType(DataModelFieldDTO field, CodegenOptions options) {
         String baseType = TYPE_MAP.getOrDefault(field.getType(), "Object");
         
         if ("array".equals(field.getType()) && field.getItemsType() != null) {
-            String itemType = TYPE_MAP.getOrDefault(field.getItemsType(), field.getItemsType());
+            if (isPrimitiveArray(field, options)) {
+                return TYPE_MAP.get(field.getItemsType()) + "[]";
+            }
+            String itemType = BOXED_ITEM_TYPE_MAP.getOrDefault(field.getItemsType(),
+                TYPE_MAP.getOrDefault(field.getItemsType(), field.getItemsType()));
             return "List<" + itemType + ">";
         }
         
@@ -119,22 +471,34 @@ public class JavaCompilerService {
         return baseType;
     }
 
-    private String generateConstructors(DataModelDTO model) {
+    private String generateFields(DataModelDTO model, CodegenOptions options, String modifiers) {
+        StringBuilder sb = new StringBuilder();
+        
+        for (DataModelFieldDTO field : model.getFields()) {
+            if (field.getDescription() != null && !field.getDescription().isEmpty()) {
+                sb.append("    /**\n");
+                sb.append("     * ").append(javadocText(field.getDescription())).append("\n");
+                sb.append("     */\n");
+            }
+            
+            String javaType = getJavaType(field, options);
+            sb.append("    ").append(modifiers).append(javaType).append(" ").append(field.getName()).append(";\n\n");
+        }
+        
+        return sb.toString();
+    }
+
+    private String generateConstructors(DataModelDTO model, CodegenOptions options) {
         StringBuilder sb = new StringBuilder();
         
         // Default constructor
         sb.append("    public ").append(model.getName()).append("() {");
         
         for (DataModelFieldDTO field : model.getFields()) {
-            if (field.getDefaultValue() != null && !field.getDefaultValue().toString().isEmpty()) {
-                String defaultValue = formatDefaultValue(field);
-                if (!"null".equals(defaultValue) || isNullableType(field)) {
-                    sb.append("\n        this.").append(field.getName())
-                      .append(" = ").append(defaultValue).append(";");
-                }
-            } else if ("array".equals(field.getType())) {
+            String initialValue = initialValue(field, options);
+            if (initialValue != null) {
                 sb.append("\n        this.").append(field.getName())
-                  .append(" = new ArrayList<>();");
+                  .append(" = ").append(initialValue).append(";");
             }
         }
         
@@ -148,7 +512,7 @@ public class JavaCompilerService {
         if (!requiredFields.isEmpty()) {
             sb.append("    public ").append(model.getName()).append("(");
             sb.append(requiredFields.stream()
-                .map(f -> getJavaType(f) + " " + f.getName())
+                .map(f -> getJavaType(f, options) + " " + f.getName())
                 .collect(Collectors.joining(", ")));
             sb.append(") {\n");
             
@@ -158,17 +522,10 @@ public class JavaCompilerService {
             }
             
             for (DataModelFieldDTO field : model.getFields()) {
-                if (!field.isRequired()) {
-                    if (field.getDefaultValue() != null && !field.getDefaultValue().toString().isEmpty()) {
-                        String defaultValue = formatDefaultValue(field);
-                        if (!"null".equals(defaultValue) || isNullableType(field)) {
-                            sb.append("        this.").append(field.getName())
-                              .append(" = ").append(defaultValue).append(";\n");
-                        }
-                    } else if ("array".equals(field.getType())) {
-                        sb.append("        this.").append(field.getName())
-                          .append(" = new ArrayList<>();\n");
-                    }
+                String initialValue = initialValue(field, options);
+                if (!field.isRequired() && initialValue != null) {
+                    sb.append("        this.").append(field.getName())
+                      .append(" = ").append(initialValue).append(";\n");
                 }
             }
             
@@ -178,6 +535,29 @@ public class JavaCompilerService {
         return sb.toString();
     }
 
+    /**
+     * Whether an array field is generated as a primitive array rather than a list of wrappers.
+     */
+    private boolean isPrimitiveArray(DataModelFieldDTO field, CodegenOptions options) {
+        return options.primitiveArrays() && "array".equals(field.getType())
+            && field.getItemsType() != null && BOXED_ITEM_TYPE_MAP.containsKey(field.getItemsType());
+    }
+
+    /**
+     * Value a field starts out with when the caller does not set it: its default value,
+     * or an empty list or array for arrays. {@code null} if it keeps the JVM default.
+     */
+    private String initialValue(DataModelFieldDTO field, CodegenOptions options) {
+        if (isPrimitiveArray(field, options)) {
+            return "new " + TYPE_MAP.get(field.getItemsType()) + "[0]";
+        }
+        if (field.getDefaultValue() != null && !field.getDefaultValue().toString().isEmpty()) {
+            String defaultValue = formatDefaultValue(field);
+            return !"null".equals(defaultValue) || isNullableType(field) ? defaultValue : null;
+        }
+        return "array".equals(field.getType()) ? "new ArrayList<>()" : null;
+    }
+
     private String formatDefaultValue(DataModelFieldDTO field) {
         Object value = field.getDefaultValue();
         if (value == null) return "null";
@@ -186,21 +566,21 @@ public class JavaCompilerService {
         if (strValue.isEmpty()) return "null";
         
         return switch (field.getType()) {
-            case "string", "enum" -> "\"" + strValue + "\"";
+            case "string", "enum" -> stringLiteral(strValue);
             case "number" -> strValue;
             case "boolean" -> strValue;
-            case "date" -> "LocalDateTime.parse(\"" + strValue + "\")";
+            case "date" -> "LocalDateTime.parse(" + stringLiteral(strValue) + ")";
             case "array" -> "new ArrayList<>()";
             default -> "null";
         };
     }
 
-    private String generateGettersAndSetters(DataModelDTO model) {
+    private String generateGettersAndSetters(DataModelDTO model, CodegenOptions options, boolean setters) {
         StringBuilder sb = new StringBuilder();
         
         for (DataModelFieldDTO field : model.getFields()) {
             String capitalizedName = capitalizeFirstLetter(field.getName());
-            String javaType = getJavaType(field);
+            String javaType = getJavaType(field, options);
             
             // Getter
             sb.append("    public ").append(javaType).append(" get")
@@ -208,17 +588,18 @@ public class JavaCompilerService {
             sb.append("        return ").append(field.getName()).append(";\n");
             sb.append("    }\n\n");
             
-            // Setter
-            sb.append("    public void set").append(capitalizedName)
-              .append("(").append(javaType).append(" ").append(field.getName()).append(") {\n");
-            sb.append("        this.").append(field.getName()).append(" = ").append(field.getName()).append(";\n");
-            sb.append("    }\n\n");
+            if (setters) {
+                sb.append("    public void set").append(capitalizedName)
+                  .append("(").append(javaType).append(" ").append(field.getName()).append(") {\n");
+                sb.append("        this.").append(field.getName()).append(" = ").append(field.getName()).append(";\n");
+                sb.append("    }\n\n");
+            }
         }
         
         return sb.toString();
     }
 
-    private String generateToString(DataModelDTO model) {
+    private String generateToString(DataModelDTO model, CodegenOptions options) {
         StringBuilder sb = new StringBuilder();
         sb.append("    @Override\n");
         sb.append("    public String toString() {\n");
@@ -233,7 +614,10 @@ public class JavaCompilerService {
         sb.append("\"");
         
         for (DataModelFieldDTO field : model.getFields()) {
-            sb.append(" + ").append(field.getName()).append(" + \"'\"");
+            String value = isPrimitiveArray(field, options)
+                ? "java.util.Arrays.toString(" + field.getName() + ")"
+                : field.getName();
+            sb.append(" + ").append(value).append(" + \"'\"");
         }
         
         sb.append(" + \"}\";\n");
@@ -241,7 +625,7 @@ public class JavaCompilerService {
         return sb.toString();
     }
 
-    private String generateEquals(DataModelDTO model) {
+    private String generateEquals(DataModelDTO model, CodegenOptions options) {
         StringBuilder sb = new StringBuilder();
         sb.append("    @Override\n");
         sb.append("    public boolean equals(Object o) {\n");
@@ -249,17 +633,23 @@ public class JavaCompilerService {
         sb.append("        if (o == null || getClass() != o.getClass()) return false;\n");
         sb.append("        ").append(model.getName()).append(" that = (").append(model.getName()).append(") o;\n");
         sb.append("        return ");
+        if (model.getFields().isEmpty()) {
+            sb.append("true");
+        }
         
         for (int i = 0; i < model.getFields().size(); i++) {
             DataModelFieldDTO field = model.getFields().get(i);
             if (i > 0) sb.append(" &&\n               ");
             
-            String type = field.getType();
-            if ("string".equals(type) || "array".equals(type) || "object".equals(type)) {
-                sb.append("java.util.Objects.equals(").append(field.getName())
+            // Qualified, since fields named o or that are shadowed here
+            if (isPrimitiveArray(field, options)) {
+                sb.append("java.util.Arrays.equals(this.").append(field.getName())
+                  .append(", that.").append(field.getName()).append(")");
+            } else if (isNullableType(field)) {
+                sb.append("java.util.Objects.equals(this.").append(field.getName())
                   .append(", that.").append(field.getName()).append(")");
             } else {
-                sb.append(field.getName()).append(" == that.").append(field.getName());
+                sb.append("this.").append(field.getName()).append(" == that.").append(field.getName());
             }
         }
         
@@ -268,10 +658,22 @@ public class JavaCompilerService {
         return sb.toString();
     }
 
-    private String generateHashCode(DataModelDTO model) {
+    private String generateHashCode(DataModelDTO model, CodegenOptions options) {
         StringBuilder sb = new StringBuilder();
         sb.append("    @Override\n");
         sb.append("    public int hashCode() {\n");
+        
+        // Objects.hash would hash a primitive array by identity; hash it element-wise, without boxing
+        if (model.getFields().stream().anyMatch(f -> isPrimitiveArray(f, options))) {
+            sb.append("        int result = 1;\n");
+            for (DataModelFieldDTO field : model.getFields()) {
+                sb.append("        result = 31 * result + ").append(hashExpression(field, options, "this." + field.getName())).append(";\n");
+            }
+            sb.append("        return result;\n");
+            sb.append("    }\n\n");
+            return sb.toString();
+        }
+        
         sb.append("        return java.util.Objects.hash(");
         
         for (int i = 0; i < model.getFields().size(); i++) {
@@ -284,98 +686,618 @@ public class JavaCompilerService {
         return sb.toString();
     }
 
-    private byte[] compileJavaCode(String className, String javaCode) throws Exception {
-        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-        if (compiler == null) {
-            throw new IllegalStateException("No Java compiler available. Ensure you are running on JDK, not JRE.");
+    /**
+     * Immutable shape: final fields set once by an all-args constructor that enforces
+     * required fields and copies lists and arrays, a hash code computed in that constructor, getters,
+     * and a builder that starts from the same defaults as the mutable class's no-arg
+     * constructor. The hash combines the fields like {@code Objects.hash} without boxing or
+     * a varargs array, so both shapes hash alike.
+     */
+    private String generateImmutableClass(DataModelDTO model, CodegenOptions options) {
+        String name = model.getName();
+        List<DataModelFieldDTO> fields = model.getFields();
+        StringBuilder sb = new StringBuilder();
+        
+        sb.append("public final class ").append(name);
+        if (options.accessors()) {
+            sb.append(" implements ").append(IndexedFields.class.getName());
+        }
+        sb.append(" {\n\n");
+        sb.append(generateFields(model, options, "private final "));
+        sb.append("    private final int $hash;\n\n");
+        
+        sb.append("    public ").append(name).append("(");
+        sb.append(fields.stream()
+            .map(f -> getJavaType(f, options) + " " + f.getName())
+            .collect(Collectors.joining(", ")));
+        sb.append(") {\n");
+        for (DataModelFieldDTO field : fields) {
+            String value = field.getName();
+            if (field.isRequired() && isNullableType(field)) {
+                value = "java.util.Objects.requireNonNull(" + value + ", \"" + field.getName() + " is required\")";
+            }
+            if (isPrimitiveArray(field, options)) {
+                value = field.isRequired() ? value + ".clone()" : field.getName() + " != null ? " + value + ".clone() : null";
+            } else if ("array".equals(field.getType())) {
+                String copy = "java.util.Collections.unmodifiableList(new ArrayList<>(" + value + "))";
+                value = field.isRequired() ? copy : field.getName() + " != null ? " + copy + " : null";
+            }
+            sb.append("        this.").append(field.getName()).append(" = ").append(value).append(";\n");
+        }
+        sb.append("        this.$hash = computeHash();\n");
+        sb.append("    }\n\n");
+        
+        sb.append("    public static Builder builder() {\n");
+        sb.append("        return new Builder();\n");
+        sb.append("    }\n\n");
+        sb.append("    public Builder toBuilder() {\n");
+        sb.append("        return new Builder(this);\n");
+        sb.append("    }\n\n");
+        
+        sb.append(generateGettersAndSetters(model, options, false));
+        sb.append(generateToString(model, options));
+        sb.append(generateImmutableEquals(model, options));
+        
+        sb.append("    @Override\n");
+        sb.append("    public int hashCode() {\n");
+        sb.append("        return $hash;\n");
+        sb.append("    }\n\n");
+        
+        sb.append("    private int computeHash() {\n");
+        sb.append("        int result = 1;\n");
+        for (DataModelFieldDTO field : fields) {
+            sb.append("        result = 31 * result + ").append(hashExpression(field, options, "this." + field.getName())).append(";\n");
+        }
+        sb.append("        return result;\n");
+        sb.append("    }\n\n");
+        
+        if (options.accessors()) {
+            sb.append(generateIndexedAccessors(model, options, false));
         }
+        sb.append(generateBuilder(model, options));
+        return sb.toString();
+    }
 
-        InMemoryJavaFileObject fileObject = new InMemoryJavaFileObject(className, javaCode);
-        Iterable<? extends JavaFileObject> compilationUnits = Collections.singletonList(fileObject);
+    /**
+     * Compares the cached hash codes first, then every field with the null-safe and
+     * allocation-free comparison for its type. Doubles are compared like
+     * {@code Double.hashCode} sees them, so that equal facts always hash alike.
+     */
+    private String generateImmutableEquals(DataModelDTO model, CodegenOptions options) {
+        String name = model.getName();
+        StringBuilder sb = new StringBuilder();
+        sb.append("    @Override\n");
+        sb.append("    public boolean equals(Object o) {\n");
+        sb.append("        if (this == o) return true;\n");
+        sb.append("        if (!(o instanceof ").append(name).append(")) return false;\n");
+        sb.append("        ").append(name).append(" that = (").append(name).append(") o;\n");
+        sb.append("        return $hash == that.$hash");
+        
+        for (DataModelFieldDTO field : model.getFields()) {
+            String fieldName = field.getName();
+            sb.append(" &&\n               ");
+            switch (getJavaType(field, options)) {
+                case "double" -> sb.append("Double.compare(this.").append(fieldName)
+                    .append(", that.").append(fieldName).append(") == 0");
+                case "boolean" -> sb.append("this.").append(fieldName).append(" == that.").append(fieldName);
+                case "double[]", "boolean[]" -> sb.append("java.util.Arrays.equals(this.").append(fieldName)
+                    .append(", that.").append(fieldName).append(")");
+                default -> sb.append("java.util.Objects.equals(this.").append(fieldName)
+                    .append(", that.").append(fieldName).append(")");
+            }
+        }
+        
+        sb.append(";\n");
+        sb.append("    }\n\n");
+        return sb.toString();
+    }
 
-        InMemoryFileManager fileManager = new InMemoryFileManager(
-            compiler.getStandardFileManager(null, null, null)
-        );
+    private String hashExpression(DataModelFieldDTO field, CodegenOptions options, String value) {
+        return switch (getJavaType(field, options)) {
+            case "double" -> "Double.hashCode(" + value + ")";
+            case "boolean" -> "Boolean.hashCode(" + value + ")";
+            case "double[]", "boolean[]" -> "java.util.Arrays.hashCode(" + value + ")";
+            default -> "java.util.Objects.hashCode(" + value + ")";
+        };
+    }
 
-        List<String> options = Arrays.asList("-source", "21", "-target", "21");
+    private String generateBuilder(DataModelDTO model, CodegenOptions options) {
+        String name = model.getName();
+        List<DataModelFieldDTO> fields = model.getFields();
+        StringBuilder sb = new StringBuilder();
         
-        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-        JavaCompiler.CompilationTask task = compiler.getTask(
-            null, fileManager, diagnostics, options, null, compilationUnits
-        );
-
-        boolean success = task.call();
+        sb.append("    public static final class Builder {\n\n");
+        for (DataModelFieldDTO field : fields) {
+            String initialValue = initialValue(field, options);
+            sb.append("        private ").append(getJavaType(field, options)).append(" ").append(field.getName());
+            if (initialValue != null) {
+                sb.append(" = ").append(initialValue);
+            }
+            sb.append(";\n");
+        }
+        if (!fields.isEmpty()) {
+            sb.append("\n");
+        }
+        
+        sb.append("        private Builder() {\n");
+        sb.append("        }\n\n");
+        sb.append("        private Builder(").append(name).append(" source) {\n");
+        for (DataModelFieldDTO field : fields) {
+            sb.append("            this.").append(field.getName()).append(" = source.").append(field.getName()).append(";\n");
+        }
+        sb.append("        }\n\n");
         
-        if (!success) {
-            String errors = diagnostics.getDiagnostics().stream()
-                .map(d -> d.getMessage(null))
-                .collect(Collectors.joining("\n"));
-            log.error("Compilation failed. Generated code:\n{}", javaCode);
-            throw new RuntimeException("Compilation failed:\n" + errors);
+        for (DataModelFieldDTO field : fields) {
+            sb.append("        public Builder ").append(field.getName())
+              .append("(").append(getJavaType(field, options)).append(" ").append(field.getName()).append(") {\n");
+            sb.append("            this.").append(field.getName()).append(" = ").append(field.getName()).append(";\n");
+            sb.append("            return this;\n");
+            sb.append("        }\n\n");
         }
+        
+        if (options.accessors()) {
+            sb.append(generateIndexedSetters(model, options, "        ", "Builder"));
+        }
+        
+        sb.append("        public ").append(name).append(" build() {\n");
+        sb.append("            return new ").append(name).append("(");
+        sb.append(fields.stream()
+            .map(f -> "this." + f.getName())
+            .collect(Collectors.joining(", ")));
+        sb.append(");\n");
+        sb.append("        }\n");
+        sb.append("    }\n\n");
+        return sb.toString();
+    }
 
-        return fileManager.getClassBytes(className);
+    /**
+     * Generates the {@link IndexedFields} implementation: field indexes follow the field
+     * list, and every access is a {@code switch} over the index instead of a reflective
+     * lookup. With {@code setters}, also the {@link MutableIndexedFields} methods.
+     */
+    private String generateIndexedAccessors(DataModelDTO model, CodegenOptions options, boolean setters) {
+        List<DataModelFieldDTO> fields = model.getFields();
+        StringBuilder sb = new StringBuilder();
+        
+        sb.append("    public static final int FIELD_COUNT = ").append(fields.size()).append(";\n\n");
+        sb.append("    private static final String[] FIELD_NAMES = {");
+        sb.append(fields.stream()
+            .map(f -> "\"" + f.getName() + "\"")
+            .collect(Collectors.joining(", ")));
+        sb.append("};\n\n");
+        
+        sb.append("    public static int fieldIndexOf(String name) {\n");
+        sb.append("        return switch (name) {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            sb.append("            case \"").append(fields.get(i).getName()).append("\" -> ").append(i).append(";\n");
+        }
+        sb.append("            case null, default -> -1;\n");
+        sb.append("        };\n");
+        sb.append("    }\n\n");
+        
+        sb.append("    @Override\n");
+        sb.append("    public int fieldCount() {\n");
+        sb.append("        return FIELD_COUNT;\n");
+        sb.append("    }\n\n");
+        sb.append("    @Override\n");
+        sb.append("    public String fieldName(int index) {\n");
+        sb.append("        return FIELD_NAMES[index];\n");
+        sb.append("    }\n\n");
+        sb.append("    @Override\n");
+        sb.append("    public int fieldIndex(String name) {\n");
+        sb.append("        return fieldIndexOf(name);\n");
+        sb.append("    }\n\n");
+        
+        sb.append(generateIndexedGetter(model, "Object", "get", field -> true,
+            "throw new IndexOutOfBoundsException(index)"));
+        sb.append(generateIndexedGetter(model, "double", "getDouble", field -> "double".equals(getJavaType(field, options)),
+            "throw new IllegalArgumentException(\"Not a number field: \" + index)"));
+        sb.append(generateIndexedGetter(model, "boolean", "getBoolean", field -> "boolean".equals(getJavaType(field, options)),
+            "throw new IllegalArgumentException(\"Not a boolean field: \" + index)"));
+        
+        if (setters) {
+            sb.append(generateIndexedSetters(model, options, "    ", null));
+        }
+        return sb.toString();
     }
 
-    private String capitalizeFirstLetter(String str) {
-        if (str == null || str.isEmpty()) return str;
-        return str.substring(0, 1).toUpperCase() + str.substring(1);
+    private String generateIndexedGetter(DataModelDTO model, String returnType, String methodName,
+                                         Predicate<DataModelFieldDTO> included, String otherwise) {
+        List<DataModelFieldDTO> fields = model.getFields();
+        StringBuilder sb = new StringBuilder();
+        sb.append("    @Override\n");
+        sb.append("    public ").append(returnType).append(" ").append(methodName).append("(int index) {\n");
+        List<String> cases = new ArrayList<>();
+        for (int i = 0; i < fields.size(); i++) {
+            if (included.test(fields.get(i))) {
+                cases.add("            case " + i + " -> this." + fields.get(i).getName() + ";\n");
+            }
+        }
+        // A switch expression needs at least one case that yields a value
+        if (cases.isEmpty()) {
+            sb.append("        ").append(otherwise).append(";\n");
+        } else {
+            sb.append("        return switch (index) {\n");
+            cases.forEach(sb::append);
+            sb.append("            default -> ").append(otherwise).append(";\n");
+            sb.append("        };\n");
+        }
+        sb.append("    }\n\n");
+        return sb.toString();
     }
 
-    private boolean isNullableType(DataModelFieldDTO field) {
-        String type = field.getType();
-        return "string".equals(type) || "enum".equals(type) || "date".equals(type) 
-               || "array".equals(type) || "object".equals(type);
+    /**
+     * Generates {@code set(int, Object)}, {@code setDouble} and {@code setBoolean}. With a
+     * {@code returnType} they return {@code this} for chaining, as builder methods do;
+     * otherwise they implement {@link MutableIndexedFields}.
+     */
+    private String generateIndexedSetters(DataModelDTO model, CodegenOptions options, String indent, String returnType) {
+        List<DataModelFieldDTO> fields = model.getFields();
+        StringBuilder sb = new StringBuilder();
+        
+        List<String> cases = new ArrayList<>();
+        for (int i = 0; i < fields.size(); i++) {
+            DataModelFieldDTO field = fields.get(i);
+            String javaType = getJavaType(field, options);
+            String cast = switch (javaType) {
+                case "double" -> "(Double) ";
+                case "boolean" -> "(Boolean) ";
+                case "Object" -> "";
+                default -> "(" + javaType + ") ";
+            };
+            cases.add(indent + "        case " + i + " -> this." + field.getName() + " = " + cast + "value;\n");
+        }
+        sb.append(indexedSetter(indent, returnType, "set", "Object", cases, "throw new IndexOutOfBoundsException(index)"));
+        
+        for (String[] primitive : new String[][] {{"double", "Double", "number"}, {"boolean", "Boolean", "boolean"}}) {
+            cases = new ArrayList<>();
+            for (int i = 0; i < fields.size(); i++) {
+                if (primitive[0].equals(getJavaType(fields.get(i), options))) {
+                    cases.add(indent + "        case " + i + " -> this." + fields.get(i).getName() + " = value;\n");
+                }
+            }
+            sb.append(indexedSetter(indent, returnType, "set" + primitive[1], primitive[0], cases,
+                "throw new IllegalArgumentException(\"Not a " + primitive[2] + " field: \" + index)"));
+        }
+        return sb.toString();
     }
 
-    private static class InMemoryJavaFileObject extends SimpleJavaFileObject {
-        private final String code;
+    private String indexedSetter(String indent, String returnType, String methodName, String valueType,
+                                 List<String> cases, String otherwise) {
+        StringBuilder sb = new StringBuilder();
+        if (returnType == null) {
+            sb.append(indent).append("@Override\n");
+        }
+        if ("Object".equals(valueType)) {
+            sb.append(indent).append("@SuppressWarnings(\"unchecked\")\n");
+        }
+        sb.append(indent).append("public ").append(returnType != null ? returnType : "void").append(" ")
+          .append(methodName).append("(int index, ").append(valueType).append(" value) {\n");
+        if (cases.isEmpty()) {
+            sb.append(indent).append("    ").append(otherwise).append(";\n");
+            sb.append(indent).append("}\n\n");
+            return sb.toString();
+        }
+        sb.append(indent).append("    switch (index) {\n");
+        cases.forEach(sb::append);
+        sb.append(indent).append("        default -> ").append(otherwise).append(";\n");
+        sb.append(indent).append("    }\n");
+        if (returnType != null) {
+            sb.append(indent).append("    return this;\n");
+        }
+        sb.append(indent).append("}\n\n");
+        return sb.toString();
+    }
 
-        InMemoryJavaFileObject(String className, String code) {
-            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
-            this.code = code;
+    /**
+     * Generates the nested {@code Codec} class that writes and reads the model in the
+     * {@link CodecSupport} wire format, field by field in declaration order without
+     * reflection. The schema fingerprint covers field names and types, so a fact encoded
+     * for another version of the model is rejected instead of misread.
+     */
+    private String generateCodec(DataModelDTO model, CodegenOptions options, Set<String> requestClasses) {
+        String name = model.getName();
+        List<DataModelFieldDTO> fields = model.getFields();
+        StringBuilder schema = new StringBuilder();
+        for (DataModelFieldDTO field : fields) {
+            schema.append(field.getName()).append(':').append(getJavaType(field, options)).append(';');
+        }
+        
+        StringBuilder sb = new StringBuilder();
+        sb.append("    public static final class Codec {\n\n");
+        sb.append("        public static final int SCHEMA = ").append(schema.toString().hashCode()).append(";\n\n");
+        sb.append("        private Codec() {\n");
+        sb.append("        }\n\n");
+        
+        sb.append("        public static void encode(java.nio.ByteBuffer buffer, ").append(name).append(" value) {\n");
+        sb.append("            ").append(CODEC_SUPPORT).append(".writeHeader(buffer, SCHEMA);\n");
+        sb.append("            write(buffer, value);\n");
+        sb.append("        }\n\n");
+        
+        sb.append("        public static ").append(name).append(" decode(java.nio.ByteBuffer buffer) {\n");
+        sb.append("            ").append(CODEC_SUPPORT).append(".readHeader(buffer, SCHEMA, \"")
+          .append(ModelDependencyGraph.classNameOf(model)).append("\");\n");
+        sb.append("            return read(buffer);\n");
+        sb.append("        }\n\n");
+        
+        sb.append("        public static void write(java.nio.ByteBuffer buffer, ").append(name).append(" value) {\n");
+        sb.append("            if (value == null) {\n");
+        sb.append("                buffer.put((byte) 0);\n");
+        sb.append("                return;\n");
+        sb.append("            }\n");
+        sb.append("            buffer.put((byte) 1);\n");
+        for (DataModelFieldDTO field : fields) {
+            sb.append("            ").append(codecWrite(model, field, options, requestClasses, "value." + field.getName())).append(";\n");
         }
+        sb.append("        }\n\n");
+        
+        sb.append("        public static ").append(name).append(" read(java.nio.ByteBuffer buffer) {\n");
+        sb.append("            if (!").append(CODEC_SUPPORT).append(".readPresent(buffer)) {\n");
+        sb.append("                return null;\n");
+        sb.append("            }\n");
+        if (options.isImmutable()) {
+            sb.append("            return new ").append(name).append("(");
+            sb.append(fields.stream()
+                .map(f -> "\n                " + codecRead(model, f, options, requestClasses))
+                .collect(Collectors.joining(",")));
+            sb.append(");\n");
+        } else {
+            sb.append("            ").append(name).append(" value = new ").append(name).append("();\n");
+            for (DataModelFieldDTO field : fields) {
+                sb.append("            value.").append(field.getName()).append(" = ")
+                  .append(codecRead(model, field, options, requestClasses)).append(";\n");
+            }
+            sb.append("            return value;\n");
+        }
+        sb.append("        }\n");
+        sb.append("    }\n\n");
+        return sb.toString();
+    }
 
-        @Override
-        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
-            return code;
+    private String codecWrite(DataModelDTO model, DataModelFieldDTO field, CodegenOptions options,
+                              Set<String> requestClasses, String value) {
+        String javaType = getJavaType(field, options);
+        return switch (javaType) {
+            case "double" -> "buffer.putDouble(" + value + ")";
+            case "boolean" -> CODEC_SUPPORT + ".writeBoolean(buffer, " + value + ")";
+            case "String" -> CODEC_SUPPORT + ".writeString(buffer, " + value + ")";
+            case "java.time.LocalDateTime" -> CODEC_SUPPORT + ".writeDateTime(buffer, " + value + ")";
+            case "double[]" -> CODEC_SUPPORT + ".writeDoubles(buffer, " + value + ")";
+            case "boolean[]" -> CODEC_SUPPORT + ".writeBooleans(buffer, " + value + ")";
+            default -> {
+                if ("array".equals(field.getType())) {
+                    yield CODEC_SUPPORT + ".writeList(buffer, " + value + ", "
+                        + codecElement(model, field.getItemsType(), requestClasses, "write") + ")";
+                }
+                if (isCodecModel(model, field.getObjectType(), requestClasses)) {
+                    yield javaType + ".Codec.write(buffer, " + value + ")";
+                }
+                yield CODEC_SUPPORT + ".writeAny(buffer, " + value + ")";
+            }
+        };
+    }
+
+    private String codecRead(DataModelDTO model, DataModelFieldDTO field, CodegenOptions options,
+                             Set<String> requestClasses) {
+        String javaType = getJavaType(field, options);
+        return switch (javaType) {
+            case "double" -> "buffer.getDouble()";
+            case "boolean" -> CODEC_SUPPORT + ".readBoolean(buffer)";
+            case "String" -> CODEC_SUPPORT + ".readString(buffer)";
+            case "java.time.LocalDateTime" -> CODEC_SUPPORT + ".readDateTime(buffer)";
+            case "double[]" -> CODEC_SUPPORT + ".readDoubles(buffer)";
+            case "boolean[]" -> CODEC_SUPPORT + ".readBooleans(buffer)";
+            case "Object" -> CODEC_SUPPORT + ".readAny(buffer)";
+            default -> {
+                if ("array".equals(field.getType())) {
+                    String element = codecElement(model, field.getItemsType(), requestClasses, "read");
+                    String read = CODEC_SUPPORT + ".readList(buffer, " + element + ")";
+                    // Untyped elements come back as Object; raw List lets the typed field take them
+                    boolean untyped = element.endsWith("::readAny") && field.getItemsType() != null
+                        && !"object".equals(field.getItemsType());
+                    yield untyped ? "(java.util.List) " + read : read;
+                }
+                if (isCodecModel(model, field.getObjectType(), requestClasses)) {
+                    yield javaType + ".Codec.read(buffer)";
+                }
+                yield "(" + javaType + ") " + CODEC_SUPPORT + ".readAny(buffer)";
+            }
+        };
+    }
+
+    /**
+     * Method reference that writes or reads one list element of the given item type.
+     */
+    private String codecElement(DataModelDTO model, String itemsType, Set<String> requestClasses, String operation) {
+        if (itemsType == null) {
+            return CODEC_SUPPORT + "::" + operation + "Any";
         }
+        return switch (itemsType) {
+            case "string", "enum" -> CODEC_SUPPORT + "::" + operation + "String";
+            case "number" -> CODEC_SUPPORT + "::" + operation + "DoubleObject";
+            case "boolean" -> CODEC_SUPPORT + "::" + operation + "BooleanObject";
+            case "date" -> CODEC_SUPPORT + "::" + operation + "DateTime";
+            default -> isCodecModel(model, itemsType, requestClasses)
+                ? itemsType + ".Codec::" + operation
+                : CODEC_SUPPORT + "::" + operation + "Any";
+        };
     }
 
-    private static class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
-        private final Map<String, InMemoryClassFileObject> classObjects = new HashMap<>();
+    /**
+     * Whether a referenced type is a model compiled with this request, and so has a codec.
+     */
+    private boolean isCodecModel(DataModelDTO model, String typeName, Set<String> requestClasses) {
+        String className = ModelDependencyGraph.resolveReference(model.getPackageName(), typeName);
+        return className != null && requestClasses.contains(className);
+    }
 
-        InMemoryFileManager(StandardJavaFileManager fileManager) {
-            super(fileManager);
+    /**
+     * Classes of this application that the generated code uses for the given options.
+     */
+    static Map<String, byte[]> runtimeClasses(CodegenOptions options) {
+        Map<String, byte[]> classes = new HashMap<>();
+        if (options.codecs()) {
+            classes.putAll(CODEC_SUPPORT_CLASSES);
+        }
+        if (options.accessors()) {
+            classes.putAll(ACCESSOR_CLASSES);
         }
+        return classes;
+    }
 
-        @Override
-        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
-            InMemoryClassFileObject fileObject = new InMemoryClassFileObject(className, kind);
-            classObjects.put(className, fileObject);
-            return fileObject;
+    /**
+     * Reads a class file of this application, to hand it to javac and the JAR builder.
+     */
+    private static byte[] classFile(Class<?> type) {
+        String resource = type.getSimpleName() + ".class";
+        try (InputStream in = type.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Class file not found: " + resource);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        byte[] getClassBytes(String className) {
-            InMemoryClassFileObject fileObject = classObjects.get(className);
-            return fileObject != null ? fileObject.getBytes() : null;
+    /**
+     * Compiles all given sources in one javac task so the compiler is started once per
+     * request and models can reference each other. Classes in {@code classpath} are
+     * visible to the task without being recompiled. Returns every class file produced,
+     * including nested and anonymous classes, grouped by the source that produced it.
+     * A cancelled task stops at its next phase boundary and produces nothing.
+     */
+    Map<String, Map<String, byte[]>> compileJavaCode(List<InMemoryJavaFileObject> sources,
+                                                     Map<String, byte[]> classpath,
+                                                     CancellationToken cancellation) throws Exception {
+        try (CompilerContext context = compilerPool.borrow()) {
+            InMemoryFileManager fileManager = new InMemoryFileManager(context.getFileManager(), classpath,
+                compilerPool.getClassFileBuffers());
+            
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            JavaCompiler.CompilationTask task = context.getCompiler().getTask(
+                null, fileManager, diagnostics, javacOptions(), null, sources
+            );
+            JavacTimingListener timing = new JavacTimingListener(sources);
+            ((JavacTask) task).addTaskListener(timing);
+            ((JavacTask) task).addTaskListener(new JavacCancellationListener(cancellation));
+        
+            long start = System.nanoTime();
+            long startCpu = cpuTime();
+            boolean success = false;
+            try {
+                success = task.call();
+                updateCpuPerModel((cpuTime() - startCpu) / sources.size());
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof CompilationCancelledException cancelled) {
+                    // Thrown from our own listener: javac stopped cleanly and the context stays usable
+                    metrics.recordCpuSaved(Math.max(0, sources.size() * cpuNanosPerModel - (cpuTime() - startCpu)));
+                    throw cancelled;
+                }
+                context.invalidate();
+                throw e;
+            } finally {
+                metrics.record(CompilerMetrics.JAVAC_BATCH, System.nanoTime() - start, success);
+                for (long nanos : timing.getNanosByClass().values()) {
+                    metrics.record(CompilerMetrics.JAVAC_CLASS, nanos, success);
+                }
+            }
+            
+            if (!success) {
+                throw new CompilationFailedException(describeErrors(diagnostics));
+            }
+        
+            return fileManager.getClassBytesBySource();
         }
     }
 
-    private static class InMemoryClassFileObject extends SimpleJavaFileObject {
-        private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    /**
+     * CPU time of the current thread, or wall-clock time where the JVM does not measure it.
+     */
+    private static long cpuTime() {
+        long cpu = THREADS.getCurrentThreadCpuTime();
+        return cpu >= 0 ? cpu : System.nanoTime();
+    }
 
-        InMemoryClassFileObject(String className, Kind kind) {
-            super(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind);
+    private void updateCpuPerModel(long sample) {
+        long average = cpuNanosPerModel;
+        if (average == 0) {
+            cpuNanosPerModel = sample;
+        } else {
+            cpuNanosPerModel = average + (sample - average) / (sample < average ? 2 : 8);
         }
+    }
 
-        @Override
-        public OutputStream openOutputStream() {
-            return baos;
+    /**
+     * Groups error diagnostics by the model whose source produced them, logging the
+     * generated code of each failing model once.
+     */
+    private String describeErrors(DiagnosticCollector<JavaFileObject> diagnostics) {
+        Map<String, List<String>> errorsByClass = new LinkedHashMap<>();
+        Map<String, String> failedSources = new LinkedHashMap<>();
+        
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            if (d.getKind() != Diagnostic.Kind.ERROR) continue;
+            
+            String owner = "<unknown>";
+            if (d.getSource() instanceof InMemoryJavaFileObject source) {
+                owner = source.getClassName();
+                failedSources.putIfAbsent(owner, source.getCode());
+            }
+            errorsByClass.computeIfAbsent(owner, k -> new ArrayList<>())
+                .add("line " + d.getLineNumber() + ": " + d.getMessage(null));
         }
+        
+        failedSources.forEach((className, code) ->
+            log.error("Compilation of {} failed. Generated code:\n{}", className, code));
+        
+        return errorsByClass.entrySet().stream()
+            .map(e -> "[" + e.getKey() + "]\n  " + String.join("\n  ", e.getValue()))
+            .collect(Collectors.joining("\n"));
+    }
 
-        byte[] getBytes() {
-            return baos.toByteArray();
+    /**
+     * A Java string literal with the given value. Backslashes are escaped too, so the value
+     * cannot form escape sequences, including the unicode escapes javac translates first.
+     */
+    private static String stringLiteral(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\%03o", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
         }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Descriptions go into javadoc comments, which a {@code *}{@code /} would close and an
+     * invalid unicode escape would break; both are replaced by HTML entities.
+     */
+    private static String javadocText(String text) {
+        return text.replace("*/", "*&#47;").replace("\\", "&#92;");
+    }
+
+    private String capitalizeFirstLetter(String str) {
+        if (str == null || str.isEmpty()) return str;
+        return str.substring(0, 1).toUpperCase() + str.substring(1);
+    }
+
+    private boolean isNullableType(DataModelFieldDTO field) {
+        String type = field.getType();
+        return "string".equals(type) || "enum".equals(type) || "date".equals(type) 
+               || "array".equals(type) || "object".equals(type);
     }
 }
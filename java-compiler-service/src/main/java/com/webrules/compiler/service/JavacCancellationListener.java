@@ -0,0 +1,23 @@
+package com.webrules.compiler.service;
+
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+/**
+ * Stops a javac task at the next phase boundary of any source file once its compilation
+ * is cancelled. javac hands the exception thrown here to the caller of {@code call()},
+ * wrapped in a {@code RuntimeException}, and leaves its file manager usable.
+ */
+class JavacCancellationListener implements TaskListener {
+
+    private final CancellationToken cancellation;
+
+    JavacCancellationListener(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    @Override
+    public void started(TaskEvent e) {
+        cancellation.throwIfCancelled();
+    }
+}
@@ -0,0 +1,61 @@
+package com.webrules.compiler.service;
+
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+import java.net.URI;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sums the time javac spends parsing, analyzing and generating each source file, so that
+ * a batched task can still be broken down by class. These phases run one file at a time;
+ * enter is skipped because javac enters all files together. javac hands listeners
+ * wrapped file objects, so sources are matched by URI.
+ */
+class JavacTimingListener implements TaskListener {
+
+    private static final Set<TaskEvent.Kind> TIMED_KINDS =
+        EnumSet.of(TaskEvent.Kind.PARSE, TaskEvent.Kind.ANALYZE, TaskEvent.Kind.GENERATE);
+
+    private final Map<URI, String> classNames = new HashMap<>();
+    private final Map<URI, Long> started = new HashMap<>();
+    private final Map<String, Long> nanosByClass = new HashMap<>();
+
+    JavacTimingListener(List<InMemoryJavaFileObject> sources) {
+        for (InMemoryJavaFileObject source : sources) {
+            classNames.put(source.toUri(), source.getClassName());
+        }
+    }
+
+    @Override
+    public void started(TaskEvent e) {
+        if (isTimed(e)) {
+            started.put(e.getSourceFile().toUri(), System.nanoTime());
+        }
+    }
+
+    @Override
+    public void finished(TaskEvent e) {
+        if (!isTimed(e)) {
+            return;
+        }
+        URI uri = e.getSourceFile().toUri();
+        Long start = started.remove(uri);
+        String className = classNames.get(uri);
+        if (start != null && className != null) {
+            nanosByClass.merge(className, System.nanoTime() - start, Long::sum);
+        }
+    }
+
+    Map<String, Long> getNanosByClass() {
+        return nanosByClass;
+    }
+
+    private static boolean isTimed(TaskEvent e) {
+        return e.getSourceFile() != null && TIMED_KINDS.contains(e.getKind());
+    }
+}
@@ -0,0 +1,14 @@
+package com.webrules.compiler.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of compiling the models of a request. {@code buildId} identifies the set of
+ * model fingerprints and can be passed as {@code baseBuildId} to build incrementally on
+ * top of it. {@code rebuiltModels} were compiled by this build; {@code reusedModels} were
+ * taken from the base build or the bytecode cache.
+ */
+public record ModelBuild(String buildId, Map<String, byte[]> classes,
+                         List<String> rebuiltModels, List<String> reusedModels) {
+}
@@ -0,0 +1,31 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.dto.DataModelDTO;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A backend that turns data models into class files.
+ */
+public interface ModelCompiler {
+
+    /**
+     * Whether this backend can compile the model with the given options exactly like the
+     * reference javac backend. {@code requestClasses} holds the binary names of all models
+     * in the request.
+     */
+    boolean supports(DataModelDTO model, CodegenOptions options, Set<String> requestClasses);
+
+    /**
+     * Compiles the models, resolving references against the already compiled classes in
+     * {@code classpath}. Returns the produced class files grouped by the binary name of
+     * the model that produced them.
+     *
+     * @throws CompilationCancelledException if {@code cancellation} is cancelled first
+     */
+    Map<String, Map<String, byte[]>> compile(List<DataModelDTO> models, CodegenOptions options,
+                                            Map<String, byte[]> classpath, CancellationToken cancellation)
+            throws Exception;
+}
@@ -0,0 +1,181 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.DataModelFieldDTO;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reference graph between the models of one request, built from the {@code objectType}
+ * and {@code itemsType} of their fields. Nodes are binary class names. A simple type name
+ * refers to a model in the same package, a qualified one to any model.
+ */
+public final class ModelDependencyGraph {
+
+    private static final Set<String> BUILT_IN_TYPES = Set.of(
+        "string", "number", "boolean", "date", "enum", "object", "array");
+
+    private final Map<String, DataModelDTO> models = new LinkedHashMap<>();
+    private final Map<String, Set<String>> references = new LinkedHashMap<>();
+    private final Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+    private final Map<String, Set<String>> dependents = new LinkedHashMap<>();
+
+    public ModelDependencyGraph(Collection<DataModelDTO> dataModels) {
+        for (DataModelDTO model : dataModels) {
+            String className = classNameOf(model);
+            models.put(className, model);
+            dependencies.put(className, new LinkedHashSet<>());
+            dependents.put(className, new LinkedHashSet<>());
+        }
+        for (Map.Entry<String, DataModelDTO> entry : models.entrySet()) {
+            Set<String> referenced = referencedClasses(entry.getValue());
+            references.put(entry.getKey(), referenced);
+            for (String target : referenced) {
+                if (models.containsKey(target) && !target.equals(entry.getKey())) {
+                    dependencies.get(entry.getKey()).add(target);
+                    dependents.get(target).add(entry.getKey());
+                }
+            }
+        }
+    }
+
+    public static String classNameOf(DataModelDTO model) {
+        return model.getPackageName() + "." + model.getName();
+    }
+
+    public static List<String> classNamesOf(Collection<DataModelDTO> dataModels) {
+        List<String> classNames = new ArrayList<>(dataModels.size());
+        for (DataModelDTO model : dataModels) {
+            classNames.add(classNameOf(model));
+        }
+        return classNames;
+    }
+
+    /**
+     * Qualified names of the model classes the model's fields refer to, whether or not
+     * they exist in the request.
+     */
+    public static Set<String> referencedClasses(DataModelDTO model) {
+        Set<String> referenced = new LinkedHashSet<>();
+        List<DataModelFieldDTO> fields = model.getFields() != null ? model.getFields() : List.of();
+        for (DataModelFieldDTO field : fields) {
+            if ("object".equals(field.getType())) {
+                addReference(referenced, model.getPackageName(), field.getObjectType());
+            } else if ("array".equals(field.getType())) {
+                addReference(referenced, model.getPackageName(), field.getItemsType());
+            }
+        }
+        return referenced;
+    }
+
+    public Set<String> classNames() {
+        return models.keySet();
+    }
+
+    public DataModelDTO model(String className) {
+        return models.get(className);
+    }
+
+    /**
+     * Models in the request that the given model refers to.
+     */
+    public Set<String> dependenciesOf(String className) {
+        return dependencies.getOrDefault(className, Set.of());
+    }
+
+    /**
+     * Models in the request that refer to the given model.
+     */
+    public Set<String> dependentsOf(String className) {
+        return dependents.getOrDefault(className, Set.of());
+    }
+
+    /**
+     * All references of the model, including those to classes missing from the request.
+     */
+    public Set<String> referencesOf(String className) {
+        return references.getOrDefault(className, Set.of());
+    }
+
+    /**
+     * The given models plus every model that depends on them, directly or transitively.
+     */
+    public Set<String> withDependents(Collection<String> classNames) {
+        Set<String> result = new LinkedHashSet<>();
+        Deque<String> queue = new ArrayDeque<>(classNames);
+        while (!queue.isEmpty()) {
+            String className = queue.poll();
+            if (result.add(className)) {
+                queue.addAll(dependentsOf(className));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Groups of models connected by references in either direction, each in request order.
+     * Models of different groups can be compiled independently of each other.
+     */
+    public List<List<String>> connectedComponents() {
+        Map<String, Integer> componentOf = new HashMap<>();
+        int count = 0;
+        for (String root : models.keySet()) {
+            if (componentOf.containsKey(root)) {
+                continue;
+            }
+            int component = count++;
+            Deque<String> queue = new ArrayDeque<>();
+            componentOf.put(root, component);
+            queue.add(root);
+            while (!queue.isEmpty()) {
+                String className = queue.poll();
+                for (String next : dependenciesOf(className)) {
+                    if (componentOf.putIfAbsent(next, component) == null) {
+                        queue.add(next);
+                    }
+                }
+                for (String next : dependentsOf(className)) {
+                    if (componentOf.putIfAbsent(next, component) == null) {
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+        
+        List<List<String>> components = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            components.add(new ArrayList<>());
+        }
+        for (String className : models.keySet()) {
+            components.get(componentOf.get(className)).add(className);
+        }
+        return components;
+    }
+
+    /**
+     * Qualified name of the class an {@code objectType} or {@code itemsType} refers to, or
+     * {@code null} for built-in types.
+     */
+    public static String resolveReference(String packageName, String typeName) {
+        if (typeName == null || typeName.isEmpty() || BUILT_IN_TYPES.contains(typeName)) {
+            return null;
+        }
+        return typeName.indexOf('.') < 0 ? packageName + "." + typeName : typeName;
+    }
+
+    private static void addReference(Set<String> referenced, String packageName, String typeName) {
+        String className = resolveReference(packageName, typeName);
+        if (className != null) {
+            referenced.add(className);
+        }
+    }
+}
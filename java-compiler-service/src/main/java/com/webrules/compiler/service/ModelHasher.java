@@ -0,0 +1,90 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.DataModelFieldDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Builds SHA-256 content hashes over the parts of a request that influence the generated
+ * bytecode. Values are length-prefixed so that adjacent fields cannot run into each other.
+ */
+final class ModelHasher {
+
+    private final MessageDigest digest;
+
+    ModelHasher() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    ModelHasher add(String value) {
+        if (value == null) {
+            addInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            addInt(bytes.length);
+            digest.update(bytes);
+        }
+        return this;
+    }
+
+    ModelHasher add(boolean value) {
+        digest.update((byte) (value ? 1 : 0));
+        return this;
+    }
+
+    ModelHasher add(List<String> values) {
+        if (values == null) {
+            addInt(-1);
+        } else {
+            addInt(values.size());
+            values.forEach(this::add);
+        }
+        return this;
+    }
+
+    /**
+     * Adds the normalized form of a model: package, name and the ordered fields with
+     * everything that reaches the generated code. Descriptions only end up in comments
+     * and are left out. Missing fields hash differently from an empty list, since only the
+     * latter is valid.
+     */
+    ModelHasher add(DataModelDTO model) {
+        add(model.getPackageName());
+        add(model.getName());
+        List<DataModelFieldDTO> fields = model.getFields();
+        if (fields == null) {
+            addInt(-1);
+            return this;
+        }
+        addInt(fields.size());
+        for (DataModelFieldDTO field : fields) {
+            add(field.getName());
+            add(field.getType());
+            add(field.isRequired());
+            add(field.getDefaultValue() != null ? field.getDefaultValue().toString() : null);
+            add(field.getItemsType());
+            add(field.getObjectType());
+        }
+        return this;
+    }
+
+    String finish() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void addInt(int value) {
+        digest.update((byte) (value >>> 24));
+        digest.update((byte) (value >>> 16));
+        digest.update((byte) (value >>> 8));
+        digest.update((byte) value);
+    }
+}
@@ -0,0 +1,546 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.codec.CodecSupport;
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.DataModelFieldDTO;
+
+import javax.lang.model.SourceVersion;
+import java.io.Serializable;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Checks data models for what would make their generated source fail to compile, or their
+ * classes fail when constructed, so that such requests are rejected with all their problems
+ * at once instead of after a javac run: names that are not Java identifiers or clash with
+ * names the generated code uses, duplicate models and fields, type references that resolve
+ * to neither a model of the request nor a public JDK class, default values that are not
+ * literals of their type, and constructors with more parameters than the JVM allows.
+ * <p>
+ * Models are added one at a time, so that streamed requests can be checked while they are
+ * read. References to public JDK classes are resolved at once; references to models that
+ * have not been added yet stay open until {@link #finish}.
+ * javac remains the final judge; this only catches what it would reject, cheaply.
+ */
+public final class ModelValidator {
+
+    /**
+     * Problems beyond this many are counted but not listed.
+     */
+    static final int MAX_PROBLEMS = 100;
+
+    /**
+     * Restricted identifiers, which may name fields but not classes.
+     */
+    private static final Set<String> RESTRICTED_TYPE_NAMES = Set.of("var", "yield", "record", "sealed", "permits");
+
+    /**
+     * Simple names the generated source uses unqualified; a model with one of these names
+     * hides the real type from its own class or from its whole package.
+     */
+    private static final Set<String> RESERVED_TYPE_NAMES = Set.of(
+        "String", "Object", "Double", "Boolean", "Override", "Objects", "List", "ArrayList", "LocalDateTime");
+
+    /**
+     * Names the generated code starts qualified expressions with, which a field of the same
+     * name would obscure.
+     */
+    private static final Set<String> RESERVED_FIELD_NAMES = Set.of("java", "LocalDateTime");
+
+    private static final Set<String> BUILT_IN_TYPES = Set.of(
+        "string", "number", "boolean", "date", "enum", "object", "array");
+
+    private static final Set<String> PRIMITIVE_TYPES = Set.of(
+        "boolean", "byte", "char", "short", "int", "long", "float", "double");
+
+    /**
+     * Parameter slots a constructor may use: 255 minus one for {@code this}. Doubles and
+     * longs take two.
+     */
+    private static final int MAX_PARAMETER_SLOTS = 254;
+
+    private static final String DIGITS = "\\d(?:_*\\d)*";
+    private static final String HEX_DIGITS = "[0-9a-fA-F](?:_*[0-9a-fA-F])*";
+    private static final Pattern DECIMAL_INTEGER = Pattern.compile("(?:0|[1-9](?:_*\\d)*)[lL]?");
+    private static final Pattern HEX_INTEGER = Pattern.compile("0[xX]" + HEX_DIGITS + "[lL]?");
+    private static final Pattern OCTAL_INTEGER = Pattern.compile("0(?:_*[0-7])+[lL]?");
+    private static final Pattern BINARY_INTEGER = Pattern.compile("0[bB][01](?:_*[01])*[lL]?");
+    private static final Pattern DECIMAL_FLOATING = Pattern.compile("(?:" + DIGITS + "\\.(?:" + DIGITS + ")?|\\."
+        + DIGITS + "|" + DIGITS + ")(?:[eE][+-]?" + DIGITS + ")?[fFdD]?");
+    private static final Pattern HEX_FLOATING = Pattern.compile("0[xX](?:" + HEX_DIGITS + "\\.?|(?:" + HEX_DIGITS
+        + ")?\\." + HEX_DIGITS + ")[pP][+-]?" + DIGITS + "[fFdD]?");
+
+    /**
+     * Canonical names of the JDK classes found visible to the generated code. Other names
+     * are not remembered, so this is bounded by the JDK.
+     */
+    private static final Set<String> JDK_CLASSES = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Packages of the JDK modules, to tell model names from JDK names without a class lookup.
+     */
+    private static final Set<String> JDK_PACKAGES = ModuleLayer.boot().modules().stream()
+        .flatMap(module -> module.getPackages().stream())
+        .collect(Collectors.toUnmodifiableSet());
+
+    private final boolean codecs;
+    private final boolean immutable;
+    private final Set<String> reservedTypeNames = new HashSet<>(RESERVED_TYPE_NAMES);
+    private final Set<String> reservedFieldNames = new HashSet<>(RESERVED_FIELD_NAMES);
+
+    private final List<Problem> problems = new ArrayList<>();
+    private int problemCount;
+    private int modelCount;
+    private final Set<String> classNames = new HashSet<>();
+    private final Set<String> packages = new HashSet<>();
+
+    /**
+     * References to models not added yet, by the class they would resolve to. Only the
+     * first reference to each class is kept.
+     */
+    private final Map<String, Reference> openReferences = new LinkedHashMap<>();
+
+    /**
+     * Qualified references resolved to JDK classes, by the model that would shadow them:
+     * one named like their first segment, in the package of the referring model.
+     */
+    private final Map<String, Reference> shadowableReferences = new HashMap<>();
+
+    public ModelValidator(CodegenOptions options) {
+        this.codecs = options.codecs();
+        this.immutable = options.isImmutable();
+        if (immutable) {
+            reservedTypeNames.add("Builder");
+        }
+        if (codecs) {
+            String codecSupport = CodecSupport.class.getName();
+            reservedTypeNames.add("Codec");
+            reservedFieldNames.add("Codec");
+            reservedFieldNames.add(codecSupport.substring(0, codecSupport.indexOf('.')));
+        }
+        if (options.accessors()) {
+            reservedTypeNames.addAll(List.of("IllegalArgumentException", "IndexOutOfBoundsException"));
+            reservedFieldNames.addAll(List.of("FIELD_COUNT", "FIELD_NAMES"));
+        }
+    }
+
+    /**
+     * One problem: where it is in the request, such as {@code dataModels[2].fields[0].name},
+     * the model and field concerned as far as they have names, and what is wrong.
+     */
+    public record Problem(String path, String model, String field, String message) implements Serializable {
+
+        @Override
+        public String toString() {
+            return path + ": " + message;
+        }
+    }
+
+    private record Reference(String path, String model, String field, String packageName, String typeName) {
+    }
+
+    /**
+     * Checks all models of a request.
+     *
+     * @throws InvalidModelException listing the problems, if there are any
+     */
+    public static void validate(List<DataModelDTO> models, CodegenOptions options) {
+        ModelValidator validator = new ModelValidator(options);
+        models.forEach(validator::add);
+        validator.finish();
+    }
+
+    /**
+     * Checks the next model of the request.
+     *
+     * @return whether the request is still free of problems
+     */
+    public boolean add(DataModelDTO model) {
+        String path = "dataModels[" + modelCount++ + "]";
+        if (model == null) {
+            report(path, null, null, "model is missing");
+            return false;
+        }
+
+        String pkg = model.getPackageName();
+        String name = model.getName();
+        String label = pkg != null && name != null ? pkg + "." + name : name;
+
+        boolean validPackage = checkPackage(pkg, path, label);
+        String nameProblem = identifierProblem(name);
+        if (nameProblem == null && RESTRICTED_TYPE_NAMES.contains(name)) {
+            nameProblem = "'" + name + "' cannot name a class";
+        } else if (nameProblem == null && reservedTypeNames.contains(name)) {
+            nameProblem = "'" + name + "' would hide a type the generated code uses";
+        }
+        if (nameProblem != null) {
+            report(path + ".name", label, null, "name " + nameProblem);
+        }
+        if (validPackage && nameProblem == null) {
+            addClass(pkg, pkg + "." + name, path, label);
+        }
+
+        if (model.getFields() == null) {
+            report(path + ".fields", label, null, "fields is missing");
+        } else {
+            checkFields(model.getFields(), validPackage ? pkg : null, path, label);
+        }
+        return problemCount == 0;
+    }
+
+    /**
+     * Resolves the references that are still open against the JDK.
+     *
+     * @throws InvalidModelException listing the problems, if there are any
+     */
+    public void finish() {
+        for (Reference reference : openReferences.values()) {
+            String typeName = reference.typeName();
+            boolean qualified = typeName.indexOf('.') >= 0;
+            if (qualified && isShadowed(reference.packageName(), typeName)) {
+                reportShadowed(reference);
+            } else if (!isJdkClass(qualified ? typeName : "java.lang." + typeName)) {
+                report(reference.path(), reference.model(), reference.field(), "type '" + typeName
+                    + "' is neither a model of the request nor a public JDK class; a simple name refers to a"
+                    + " model in the same package or to java.lang");
+            }
+        }
+        openReferences.clear();
+        shadowableReferences.clear();
+
+        if (problemCount > 0) {
+            throw new InvalidModelException(problems, problemCount);
+        }
+    }
+
+    public boolean isValid() {
+        return problemCount == 0;
+    }
+
+    private boolean checkPackage(String pkg, String path, String label) {
+        if (pkg == null || pkg.isEmpty()) {
+            report(path + ".packageName", label, null, "packageName is missing");
+            return false;
+        }
+        for (String segment : pkg.split("\\.", -1)) {
+            String problem = identifierProblem(segment);
+            if (problem != null) {
+                report(path + ".packageName", label, null, "packageName '" + pkg + "' is invalid: "
+                    + (segment.isEmpty() ? "it has an empty segment" : "segment " + problem));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addClass(String pkg, String className, String path, String label) {
+        if (!classNames.add(className)) {
+            report(path + ".name", label, null, "duplicate model " + className);
+            return;
+        }
+        openReferences.remove(className);
+        Reference shadowed = shadowableReferences.remove(className);
+        if (shadowed != null) {
+            reportShadowed(shadowed);
+        }
+        if (packages.contains(className)) {
+            report(path + ".name", label, null, "class " + className + " has the name of a package of the request");
+        }
+        // Every enclosing package exists too, and may not share its name with a class either
+        String prefix = pkg;
+        while (packages.add(prefix)) {
+            if (classNames.contains(prefix)) {
+                report(path + ".packageName", label, null, "package " + prefix + " has the name of a model class");
+            }
+            int dot = prefix.lastIndexOf('.');
+            if (dot < 0) {
+                break;
+            }
+            prefix = prefix.substring(0, dot);
+        }
+    }
+
+    private void checkFields(List<DataModelFieldDTO> fields, String pkg, String path, String label) {
+        Set<String> fieldNames = new HashSet<>();
+        Set<String> accessorNames = new HashSet<>();
+        List<Reference> references = new ArrayList<>();
+        int parameterSlots = 0;
+
+        for (int i = 0; i < fields.size(); i++) {
+            DataModelFieldDTO field = fields.get(i);
+            String fieldPath = path + ".fields[" + i + "]";
+            if (field == null) {
+                report(fieldPath, label, null, "field is missing");
+                continue;
+            }
+
+            String name = field.getName();
+            String nameProblem = identifierProblem(name);
+            if (nameProblem == null && reservedFieldNames.contains(name)) {
+                nameProblem = "'" + name + "' would obscure a name the generated code uses";
+            } else if (nameProblem == null && !fieldNames.add(name)) {
+                nameProblem = "'" + name + "' is used by another field";
+            } else if (nameProblem == null) {
+                String accessor = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+                if ("Class".equals(accessor)) {
+                    nameProblem = "'" + name + "' would need a getter overriding Object.getClass()";
+                } else if (!accessorNames.add(accessor)) {
+                    nameProblem = "'" + name + "' needs the same accessors get" + accessor + " and set" + accessor
+                        + " as another field";
+                }
+            }
+            if (nameProblem != null) {
+                report(fieldPath + ".name", label, name, "name " + nameProblem);
+            }
+
+            String type = field.getType();
+            if (type == null) {
+                report(fieldPath + ".type", label, name, "type is missing");
+                continue;
+            }
+            if ("object".equals(type) && field.getObjectType() != null
+                    && !PRIMITIVE_TYPES.contains(field.getObjectType())) {
+                checkReference(field.getObjectType(), pkg, fieldPath + ".objectType", label, name, references);
+            } else if ("array".equals(type) && field.getItemsType() != null
+                    && !BUILT_IN_TYPES.contains(field.getItemsType())) {
+                checkReference(field.getItemsType(), pkg, fieldPath + ".itemsType", label, name, references);
+            }
+            checkDefault(field, fieldPath, label);
+
+            if (immutable || field.isRequired()) {
+                parameterSlots += "number".equals(type)
+                    || "object".equals(type) && ("double".equals(field.getObjectType()) || "long".equals(field.getObjectType()))
+                    ? 2 : 1;
+            }
+        }
+
+        if (parameterSlots > MAX_PARAMETER_SLOTS) {
+            report(path + ".fields", label, null, "the generated constructor would need " + parameterSlots
+                + " parameter slots, more than the " + MAX_PARAMETER_SLOTS + " the JVM allows; number fields take two"
+                + (immutable ? "" : " and only required fields count"));
+        }
+
+        // Codecs call the codecs of referenced models through their type name
+        if (codecs) {
+            for (Reference reference : references) {
+                String typeName = reference.typeName();
+                String first = typeName.indexOf('.') < 0 ? typeName : typeName.substring(0, typeName.indexOf('.'));
+                if (fieldNames.contains(first)) {
+                    report(reference.path(), label, reference.field(), "type '" + typeName + "' is obscured by field '"
+                        + first + "' in the generated codec");
+                }
+            }
+        }
+    }
+
+    private void checkReference(String typeName, String pkg, String path, String label, String fieldName,
+                                List<Reference> references) {
+        if (!SourceVersion.isName(typeName)) {
+            report(path, label, fieldName, "'" + typeName + "' is not a Java type name");
+            return;
+        }
+        Reference reference = new Reference(path, label, fieldName, pkg, typeName);
+        references.add(reference);
+        if (pkg == null) {
+            return;
+        }
+
+        boolean qualified = typeName.indexOf('.') >= 0;
+        if (qualified && isShadowed(pkg, typeName)) {
+            reportShadowed(reference);
+            return;
+        }
+        String className = qualified ? typeName : pkg + "." + typeName;
+        if (classNames.contains(className)) {
+            return;
+        }
+        // Models cannot be declared in JDK packages, and a model added later that a simple
+        // name would refer to instead is just as valid, so only shadowing remains to check
+        if (isJdkClass(qualified ? typeName : "java.lang." + typeName)) {
+            if (qualified) {
+                shadowableReferences.putIfAbsent(pkg + "." + typeName.substring(0, typeName.indexOf('.')), reference);
+            }
+            return;
+        }
+        openReferences.putIfAbsent(className, reference);
+    }
+
+    /**
+     * Whether the first segment of a qualified name is a model of the same package, which
+     * javac would then take it for.
+     */
+    private boolean isShadowed(String pkg, String typeName) {
+        return classNames.contains(pkg + "." + typeName.substring(0, typeName.indexOf('.')));
+    }
+
+    private void reportShadowed(Reference reference) {
+        String typeName = reference.typeName();
+        report(reference.path(), reference.model(), reference.field(), "type '" + typeName + "' is shadowed by model "
+            + reference.packageName() + "." + typeName.substring(0, typeName.indexOf('.')));
+    }
+
+    private void checkDefault(DataModelFieldDTO field, String path, String label) {
+        Object defaultValue = field.getDefaultValue();
+        if (defaultValue == null || defaultValue.toString().isEmpty()) {
+            return;
+        }
+
+        String value = defaultValue.toString();
+        String problem = switch (field.getType()) {
+            case "number" -> numberLiteralProblem(value);
+            case "boolean" -> switch (value.strip()) {
+                case "true", "false", "null" -> null;
+                default -> "is neither true nor false";
+            };
+            case "date" -> {
+                try {
+                    LocalDateTime.parse(value);
+                    yield null;
+                } catch (DateTimeParseException e) {
+                    yield "is not an ISO local date-time such as 2024-01-31T09:30";
+                }
+            }
+            default -> null;
+        };
+        if (problem != null) {
+            report(path + ".defaultValue", label, field.getName(), "defaultValue '" + value + "' " + problem);
+        }
+    }
+
+    /**
+     * What javac would reject about a number default assigned to a {@code double}, or
+     * {@code null} if it is a numeric literal javac accepts, or {@code null} itself.
+     */
+    static String numberLiteralProblem(String value) {
+        String literal = value.strip();
+        if ("null".equals(literal)) {
+            return null;
+        }
+        boolean negative = literal.startsWith("-");
+        if (negative || literal.startsWith("+")) {
+            literal = literal.substring(1).strip();
+        }
+        String digits = literal.replace("_", "");
+        char last = digits.isEmpty() ? ' ' : digits.charAt(digits.length() - 1);
+
+        boolean decimal = DECIMAL_INTEGER.matcher(literal).matches();
+        if (decimal || HEX_INTEGER.matcher(literal).matches() || OCTAL_INTEGER.matcher(literal).matches()
+                || BINARY_INTEGER.matcher(literal).matches()) {
+            boolean isLong = last == 'l' || last == 'L';
+            if (isLong) {
+                digits = digits.substring(0, digits.length() - 1);
+            }
+            int bits = isLong ? 64 : 32;
+            boolean inRange;
+            if (decimal) {
+                // The largest magnitude is only allowed as the operand of a minus
+                BigInteger limit = BigInteger.ONE.shiftLeft(bits - 1);
+                int comparison = new BigInteger(digits).compareTo(limit);
+                inRange = comparison < 0 || negative && comparison == 0;
+            } else {
+                char prefix = digits.length() > 1 ? Character.toLowerCase(digits.charAt(1)) : '0';
+                BigInteger magnitude = prefix == 'x' ? new BigInteger(digits.substring(2), 16)
+                    : prefix == 'b' ? new BigInteger(digits.substring(2), 2)
+                    : new BigInteger(digits, 8);
+                inRange = magnitude.bitLength() <= bits;
+            }
+            return inRange ? null : "is out of range for " + (isLong ? "a long" : "an int") + " literal";
+        }
+
+        boolean hex = HEX_FLOATING.matcher(literal).matches();
+        if (hex || DECIMAL_FLOATING.matcher(literal).matches() && literal.matches(".*[.eEfFdD].*")) {
+            boolean isFloat = last == 'f' || last == 'F';
+            double parsed = isFloat ? Float.parseFloat(digits) : Double.parseDouble(digits);
+            String mantissa = hex ? digits.substring(2).split("[pP]")[0] : digits.split("[eEfFdD]")[0];
+            boolean nonZero = mantissa.chars().anyMatch(c -> c != '0' && c != '.');
+            if (Double.isInfinite(parsed)) {
+                return "is too large for " + (isFloat ? "a float" : "a double");
+            }
+            if (parsed == 0 && nonZero) {
+                return "is too small for " + (isFloat ? "a float" : "a double");
+            }
+            return null;
+        }
+        return "is not a number literal";
+    }
+
+    /**
+     * Whether a class of that canonical name is public, in a package its module exports to
+     * everyone, and therefore visible to the generated code.
+     */
+    static boolean isJdkClass(String canonicalName) {
+        if (JDK_CLASSES.contains(canonicalName)) {
+            return true;
+        }
+        if (!inJdkPackage(canonicalName)) {
+            return false;
+        }
+        // Nested classes have dots in their canonical name but dollars in their binary name
+        String binaryName = canonicalName;
+        while (true) {
+            try {
+                Class<?> type = Class.forName(binaryName, false, ClassLoader.getPlatformClassLoader());
+                if (!canonicalName.equals(type.getCanonicalName()) || !isAccessible(type)) {
+                    return false;
+                }
+                JDK_CLASSES.add(canonicalName);
+                return true;
+            } catch (ClassNotFoundException | LinkageError e) {
+                int dot = binaryName.lastIndexOf('.');
+                if (dot < 0) {
+                    return false;
+                }
+                binaryName = binaryName.substring(0, dot) + "$" + binaryName.substring(dot + 1);
+            }
+        }
+    }
+
+    private static boolean inJdkPackage(String canonicalName) {
+        for (int dot = canonicalName.lastIndexOf('.'); dot > 0; dot = canonicalName.lastIndexOf('.', dot - 1)) {
+            if (JDK_PACKAGES.contains(canonicalName.substring(0, dot))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAccessible(Class<?> type) {
+        for (Class<?> c = type; c != null; c = c.getDeclaringClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return type.getModule().isExported(type.getPackageName());
+    }
+
+    private static String identifierProblem(String name) {
+        if (name == null || name.isEmpty()) {
+            return "is missing";
+        }
+        if (SourceVersion.isKeyword(name)) {
+            return "'" + name + "' is a Java keyword";
+        }
+        if (!SourceVersion.isIdentifier(name)) {
+            return "'" + name + "' is not a Java identifier";
+        }
+        return null;
+    }
+
+    private void report(String path, String model, String field, String message) {
+        if (problemCount++ < MAX_PROBLEMS) {
+            problems.add(new Problem(path, model, field, message));
+        }
+    }
+}
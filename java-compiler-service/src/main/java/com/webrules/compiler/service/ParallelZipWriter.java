@@ -0,0 +1,231 @@
+package com.webrules.compiler.service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a ZIP archive whose entries are compressed concurrently. Entries are grouped into
+ * chunks that are deflated on the given executor, each with CRC and sizes computed up
+ * front, and then written in their original order as plain STORED or DEFLATED records
+ * without data descriptors. The output depends only on the entries, the compression level
+ * and the timestamp, never on the number of threads. Writing starts as soon as the first
+ * chunk is ready.
+ */
+class ParallelZipWriter {
+
+    /**
+     * Entry limit of a ZIP without ZIP64 extensions.
+     */
+    static final int MAX_ENTRIES = 0xFFFF;
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+    private static final int UTF8_FLAG = 0x0800;
+
+    record Entry(String name, byte[] data) {
+    }
+
+    private record CompressedEntry(byte[] name, int method, long crc, int size, byte[] data, int dataLength) {
+    }
+
+    private final Executor executor;
+    private final int level;
+    private final int dosTime;
+
+    /**
+     * @param level deflate level 1-9 or {@link Deflater#DEFAULT_COMPRESSION}; 0 stores entries uncompressed
+     */
+    ParallelZipWriter(Executor executor, int level, LocalDateTime timestamp) {
+        this.executor = executor;
+        this.level = level;
+        this.dosTime = dosTime(timestamp);
+    }
+
+    void write(List<Entry> entries, OutputStream target) throws IOException {
+        if (entries.size() > MAX_ENTRIES) {
+            throw new ZipException("Too many entries: " + entries.size());
+        }
+        
+        List<CompletableFuture<List<CompressedEntry>>> chunks = new ArrayList<>();
+        List<List<Entry>> split = split(entries);
+        for (List<Entry> chunk : split) {
+            // A single chunk is not worth the hand-off to another thread
+            chunks.add(split.size() == 1
+                ? CompletableFuture.completedFuture(compress(chunk))
+                : CompletableFuture.supplyAsync(() -> compress(chunk), executor));
+        }
+        
+        OutputStream out = new BufferedOutputStream(target, CHUNK_BYTES);
+        ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+        long offset = 0;
+        try {
+            for (CompletableFuture<List<CompressedEntry>> chunk : chunks) {
+                for (CompressedEntry entry : join(chunk)) {
+                    checkOffset(offset);
+                    writeHeader(centralDirectory, entry, true, offset);
+                    offset += writeHeader(out, entry, false, 0);
+                    out.write(entry.data(), 0, entry.dataLength());
+                    offset += entry.dataLength();
+                }
+            }
+        } finally {
+            chunks.forEach(chunk -> chunk.cancel(false));
+        }
+        
+        checkOffset(offset);
+        centralDirectory.writeTo(out);
+        writeEndOfCentralDirectory(out, entries.size(), centralDirectory.size(), offset);
+        out.flush();
+    }
+
+    private static List<List<Entry>> split(List<Entry> entries) {
+        List<List<Entry>> chunks = new ArrayList<>();
+        List<Entry> current = new ArrayList<>();
+        long currentBytes = 0;
+        for (Entry entry : entries) {
+            current.add(entry);
+            currentBytes += entry.data().length;
+            if (currentBytes >= CHUNK_BYTES) {
+                chunks.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    private List<CompressedEntry> compress(List<Entry> chunk) {
+        List<CompressedEntry> compressed = new ArrayList<>(chunk.size());
+        Deflater deflater = new Deflater(level, true);
+        try {
+            for (Entry entry : chunk) {
+                compressed.add(compress(entry, deflater));
+            }
+        } finally {
+            deflater.end();
+        }
+        return compressed;
+    }
+
+    private CompressedEntry compress(Entry entry, Deflater deflater) {
+        byte[] data = entry.data();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+        
+        if (level == 0) {
+            return new CompressedEntry(name, Deflater.NO_COMPRESSION, crc.getValue(), data.length, data, data.length);
+        }
+        
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        
+        byte[] buffer = new byte[Math.max(64, data.length / 2 + 64)];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        return new CompressedEntry(name, Deflater.DEFLATED, crc.getValue(), data.length, buffer, length);
+    }
+
+    /**
+     * Writes a local file header, or a central directory header pointing at {@code offset}.
+     *
+     * @return number of bytes written
+     */
+    private int writeHeader(OutputStream out, CompressedEntry entry, boolean central, long offset) throws IOException {
+        int versionNeeded = entry.method() == Deflater.DEFLATED ? 20 : 10;
+        
+        writeInt(out, central ? 0x02014b50 : 0x04034b50);
+        if (central) {
+            writeShort(out, 20);
+        }
+        writeShort(out, versionNeeded);
+        writeShort(out, UTF8_FLAG);
+        writeShort(out, entry.method());
+        writeInt(out, dosTime);
+        writeInt(out, entry.crc());
+        writeInt(out, entry.dataLength());
+        writeInt(out, entry.size());
+        writeShort(out, entry.name().length);
+        writeShort(out, 0);
+        if (central) {
+            writeShort(out, 0);
+            writeShort(out, 0);
+            writeShort(out, 0);
+            writeInt(out, 0);
+            writeInt(out, offset);
+        }
+        out.write(entry.name());
+        return (central ? 46 : 30) + entry.name().length;
+    }
+
+    private static void writeEndOfCentralDirectory(OutputStream out, int entries, long size, long offset)
+            throws IOException {
+        writeInt(out, 0x06054b50);
+        writeShort(out, 0);
+        writeShort(out, 0);
+        writeShort(out, entries);
+        writeShort(out, entries);
+        writeInt(out, size);
+        writeInt(out, offset);
+        writeShort(out, 0);
+    }
+
+    private static void checkOffset(long offset) throws ZipException {
+        if (offset >= 0xFFFFFFFFL) {
+            throw new ZipException("Archive exceeds 4 GB");
+        }
+    }
+
+    private static List<CompressedEntry> join(CompletableFuture<List<CompressedEntry>> chunk) throws IOException {
+        try {
+            return chunk.join();
+        } catch (CompletionException e) {
+            throw new IOException("Compressing JAR entries failed", e.getCause());
+        }
+    }
+
+    /**
+     * MS-DOS date in the high and time in the low 16 bits, in local time like
+     * {@code ZipEntry.setTimeLocal}.
+     */
+    private static int dosTime(LocalDateTime t) {
+        if (t.getYear() < 1980) {
+            t = LocalDateTime.of(1980, 1, 1, 0, 0);
+        }
+        return (t.getYear() - 1980) << 25 | t.getMonthValue() << 21 | t.getDayOfMonth() << 16
+            | t.getHour() << 11 | t.getMinute() << 5 | t.getSecond() >> 1;
+    }
+
+    private static void writeShort(OutputStream out, int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >>> 8) & 0xff);
+    }
+
+    private static void writeInt(OutputStream out, long value) throws IOException {
+        out.write((int) (value & 0xff));
+        out.write((int) ((value >>> 8) & 0xff));
+        out.write((int) ((value >>> 16) & 0xff));
+        out.write((int) ((value >>> 24) & 0xff));
+    }
+}
@@ -0,0 +1,177 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.DataModelDTO;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Compiles large batches as several independent partitions at once, since one javac task
+ * only ever uses one core. Models are split along the connected components of their
+ * reference graph, so no partition needs another partition's classes, and components are
+ * packed into at most {@code compiler.partitioning.parallelism} partitions of similar
+ * weight. Each partition is compiled on its own pooled file manager.
+ */
+@Slf4j
+@Service
+public class PartitionedCompiler implements DisposableBean {
+
+    private final CompilerProperties.Partitioning config;
+    private final ForkJoinPool pool;
+
+    public PartitionedCompiler(CompilerProperties properties) {
+        this.config = properties.getPartitioning();
+        this.pool = new ForkJoinPool(Math.max(1, config.getParallelism()), forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("compile-partition-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Compiles the models with the given backend, in parallel partitions when the batch
+     * is large enough and splits into independent parts. Classes in {@code classpath} must
+     * not change while this runs. Once {@code cancellation} is cancelled, partitions that
+     * have not started yet do not start and running ones stop at their next check.
+     */
+    public Map<String, Map<String, byte[]>> compile(List<DataModelDTO> models, ModelCompiler compiler,
+                                                   CodegenOptions options, Map<String, byte[]> classpath,
+                                                   CancellationToken cancellation)
+            throws Exception {
+        List<List<DataModelDTO>> partitions = partition(models);
+        if (partitions.size() == 1) {
+            return compiler.compile(models, options, classpath, cancellation);
+        }
+        
+        log.info("Compiling {} models in {} partitions", models.size(), partitions.size());
+        List<ForkJoinTask<Map<String, Map<String, byte[]>>>> tasks = new ArrayList<>(partitions.size());
+        for (List<DataModelDTO> partition : partitions) {
+            tasks.add(pool.submit(() -> compiler.compile(partition, options, classpath, cancellation)));
+        }
+        
+        // Wait for every partition so that all compilation errors are reported together;
+        // after a cancellation the others stop at their next check, so this stays short
+        Map<String, Map<String, byte[]>> compiled = new LinkedHashMap<>();
+        List<String> errors = new ArrayList<>();
+        Exception failure = null;
+        for (ForkJoinTask<Map<String, Map<String, byte[]>>> task : tasks) {
+            try {
+                compiled.putAll(task.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof CompilationFailedException compilationFailed) {
+                    errors.add(compilationFailed.getErrors());
+                } else if (failure == null) {
+                    failure = e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        if (!errors.isEmpty()) {
+            throw new CompilationFailedException(String.join("\n", errors));
+        }
+        return compiled;
+    }
+
+    /**
+     * Splits the models into partitions: as many as the parallelism allows without going
+     * below {@code min-partition-models} per partition, balanced by packing the heaviest
+     * component into the lightest partition first. A model weighs one plus its field
+     * count. Models keep their request order within a partition.
+     */
+    List<List<DataModelDTO>> partition(List<DataModelDTO> models) {
+        int maxPartitions = Math.min(config.getParallelism(), models.size() / Math.max(1, config.getMinPartitionModels()));
+        if (!config.isEnabled() || maxPartitions < 2) {
+            return List.of(models);
+        }
+        
+        ModelDependencyGraph graph = new ModelDependencyGraph(models);
+        if (graph.classNames().size() != models.size()) {
+            // Duplicate class names: leave it to javac to report them
+            return List.of(models);
+        }
+        List<Component> components = new ArrayList<>();
+        for (List<String> classNames : graph.connectedComponents()) {
+            components.add(new Component(classNames, weight(graph, classNames)));
+        }
+        if (components.size() < 2) {
+            return List.of(models);
+        }
+        
+        components.sort(Comparator.comparingLong(Component::weight).reversed());
+        PriorityQueue<Partition> partitions = new PriorityQueue<>(
+            Comparator.comparingLong(Partition::getWeight).thenComparingInt(Partition::getIndex));
+        for (int i = 0; i < Math.min(maxPartitions, components.size()); i++) {
+            partitions.add(new Partition(i));
+        }
+        for (Component component : components) {
+            Partition lightest = partitions.poll();
+            lightest.add(component);
+            partitions.add(lightest);
+        }
+        
+        List<List<DataModelDTO>> result = new ArrayList<>(partitions.size());
+        Map<String, Integer> partitionOf = new HashMap<>();
+        List<Partition> ordered = new ArrayList<>(partitions);
+        ordered.sort(Comparator.comparingInt(Partition::getIndex));
+        for (Partition partition : ordered) {
+            for (String className : partition.getClassNames()) {
+                partitionOf.put(className, result.size());
+            }
+            result.add(new ArrayList<>());
+        }
+        for (DataModelDTO model : models) {
+            result.get(partitionOf.get(ModelDependencyGraph.classNameOf(model))).add(model);
+        }
+        return result;
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    private static long weight(ModelDependencyGraph graph, List<String> component) {
+        long weight = 0;
+        for (String className : component) {
+            DataModelDTO model = graph.model(className);
+            weight += 1 + (model.getFields() != null ? model.getFields().size() : 0);
+        }
+        return weight;
+    }
+
+    private record Component(List<String> classNames, long weight) {
+    }
+
+    @Getter
+    private static final class Partition {
+        private final int index;
+        private final List<String> classNames = new ArrayList<>();
+        private long weight;
+
+        Partition(int index) {
+            this.index = index;
+        }
+
+        void add(Component component) {
+            classNames.addAll(component.classNames());
+            weight += component.weight();
+        }
+    }
+}
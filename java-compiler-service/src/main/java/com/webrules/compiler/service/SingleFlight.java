@@ -0,0 +1,138 @@
+package com.webrules.compiler.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs at most one computation per key at a time. Callers asking for a key whose
+ * computation is in flight wait for it and share its result, or its exception; once it
+ * finishes, the next caller starts afresh.
+ *
+ * <p>The computation runs on its own virtual thread, so it does not belong to any one
+ * caller. A caller that is interrupted, or whose own cancellation token is cancelled,
+ * stops waiting and leaves the others unaffected; only when every caller has gone is the
+ * computation's thread interrupted and the computation forgotten. The computation should
+ * therefore translate an interrupt into cancelling its work, as
+ * {@link CompileScheduler#execute} does.
+ */
+final class SingleFlight<V> {
+
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String name;
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @throws CompilationCancelledException if {@code cancellation} is cancelled before the
+     *                                       result is available
+     */
+    V execute(String key, Callable<V> work, CancellationToken cancellation) throws Exception {
+        Flight candidate = new Flight(key);
+        Flight flight = flights.compute(key, (k, running) -> running != null && running.join() ? running : candidate);
+        if (flight == candidate) {
+            flight.start(work);
+        } else {
+            coalesced.increment();
+        }
+        
+        try {
+            return await(flight, cancellation);
+        } catch (InterruptedException | CompilationCancelledException e) {
+            flight.leave();
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the result, checking the caller's token at least every 100 ms.
+     */
+    private V await(Flight flight, CancellationToken cancellation) throws InterruptedException, ExecutionException {
+        if (cancellation == CancellationToken.NONE) {
+            return flight.result.get();
+        }
+        while (true) {
+            cancellation.throwIfCancelled();
+            try {
+                return flight.result.get(Math.min(POLL_NANOS, cancellation.remainingNanos()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Check the token again
+            }
+        }
+    }
+
+    /**
+     * Callers that were served by another caller's computation instead of running their own.
+     */
+    long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * The waiter count is lock-free: {@link #join} runs inside {@code flights.compute}, under
+     * the map's lock for the key, and {@link #leave} removes the flight from the map, so
+     * taking a lock of its own in either would order the two locks differently.
+     */
+    private final class Flight {
+        private final String key;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger(1);
+        private volatile Thread runner;
+        
+        Flight(String key) {
+            this.key = key;
+        }
+        
+        void start(Callable<V> work) {
+            runner = Thread.ofVirtual().name(name).start(() -> {
+                try {
+                    result.complete(work.call());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    flights.remove(key, this);
+                }
+            });
+        }
+        
+        /**
+         * Adds a waiter, unless everyone has already left.
+         */
+        boolean join() {
+            while (true) {
+                int current = waiters.get();
+                if (current == 0) {
+                    return false;
+                }
+                if (waiters.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+        
+        void leave() {
+            if (waiters.decrementAndGet() == 0 && !result.isDone()) {
+                flights.remove(key, this);
+                runner.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.webrules.compiler.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.CompileRequestDTO;
+import com.webrules.compiler.dto.DataModelDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compiles a request while it is still being read, for payloads too large to bind in one
+ * piece. The request thread parses {@code dataModels} one model at a time into a bounded
+ * queue. A compile stage takes whatever was parsed since its last batch, up to
+ * {@code compiler.streaming.max-batch-models}, and compiles it against the classes of the
+ * earlier batches on the compile scheduler. A package stage appends the classes to a JAR
+ * spooled to the {@link ArtifactStore}. Full queues stop the parser from reading, so the
+ * models in memory do not grow with the request; the compiled classes of earlier batches
+ * are kept for later batches to compile against.
+ * <p>
+ * A model that references a model not compiled yet waits until that model has arrived.
+ * Qualified references to JDK classes never wait, since no model can take their name.
+ * Whatever still waits when the input ends, such as reference cycles and simple names of
+ * {@code java.lang} classes, which a later model of the same package would take
+ * precedence over, is compiled in one last batch. Every request property other than
+ * {@code dataModels} shapes the classes or the JAR and must come before it.
+ * <p>
+ * Each model is validated as it is parsed, and references to models that never arrived
+ * once the input ends. After the first invalid model nothing more is compiled, but the
+ * rest of the request is still read so that all its problems are reported together.
+ * <p>
+ * A request that fails in any stage, including the client breaking off the upload, or that
+ * runs past {@code compiler.request-deadline}, cancels the batch being compiled.
+ */
+@Slf4j
+@Service
+public class StreamingCompileService {
+
+    private static final String DATA_MODELS = "dataModels";
+    private static final long POLL_MILLIS = 100;
+
+    private static final DataModelDTO END_OF_MODELS = new DataModelDTO();
+    private static final Map<String, byte[]> END_OF_CLASSES = new HashMap<>();
+
+    private final ObjectMapper objectMapper;
+    private final JavaCompilerService compilerService;
+    private final JarBuilderService jarBuilderService;
+    private final CompileScheduler compileScheduler;
+    private final ArtifactStore artifactStore;
+    private final CompilerMetrics metrics;
+    private final CompilerProperties.Streaming config;
+    private final Duration requestDeadline;
+
+    public StreamingCompileService(ObjectMapper objectMapper, JavaCompilerService compilerService,
+                                   JarBuilderService jarBuilderService, CompileScheduler compileScheduler,
+                                   ArtifactStore artifactStore, CompilerMetrics metrics,
+                                   CompilerProperties properties) {
+        this.objectMapper = objectMapper;
+        this.compilerService = compilerService;
+        this.jarBuilderService = jarBuilderService;
+        this.compileScheduler = compileScheduler;
+        this.artifactStore = artifactStore;
+        this.metrics = metrics;
+        this.config = properties.getStreaming();
+        this.requestDeadline = properties.getRequestDeadline();
+    }
+
+    /**
+     * A JAR spooled to disk. Call {@link #release} once it has been sent.
+     */
+    public record StreamedJar(String id, Path path, String filename, int modelCount, int classCount) {
+    }
+
+    /**
+     * Reads a compile request from {@code body} and compiles and packages it on the way.
+     *
+     * @throws IllegalArgumentException if the request is malformed or out of order
+     * @throws InvalidModelException if models would not compile
+     * @throws CompilationFailedException if a batch does not compile
+     * @throws CompilerBusyException if the compile scheduler does not admit a batch
+     * @throws CompilationCancelledException if {@code compiler.request-deadline} passed first
+     */
+    public StreamedJar compile(InputStream body) throws Exception {
+        String id = "stream-" + UUID.randomUUID();
+        Pipeline pipeline = new Pipeline();
+        Path path;
+        try {
+            path = artifactStore.store(id, out -> pipeline.run(body, out));
+        } catch (Exception e) {
+            CancellationToken.Reason reason = pipeline.cancellation.getReason();
+            if (reason != null) {
+                metrics.recordCancellation(reason);
+            }
+            throw e;
+        }
+        
+        metrics.recordCount(CompilerMetrics.REQUEST_MODELS, pipeline.modelCount);
+        log.info("Compiled streamed request: {} models, {} classes", pipeline.modelCount, pipeline.classCount);
+        return new StreamedJar(id, path, pipeline.filename, pipeline.modelCount, pipeline.classCount);
+    }
+
+    public void release(StreamedJar jar) {
+        artifactStore.delete(jar.id());
+    }
+
+    /**
+     * The stages of one request. The first failure of any stage stops all of them.
+     */
+    private final class Pipeline {
+        private final BlockingQueue<DataModelDTO> parsed = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        private final BlockingQueue<Map<String, byte[]>> compiled = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final CancellationToken cancellation = CancellationToken.withTimeout(requestDeadline);
+
+        private CodegenOptions options;
+        private ModelValidator validator;
+        private String filename;
+        private volatile int modelCount;
+        private volatile int classCount;
+
+        void run(InputStream body, OutputStream out) throws Exception {
+            try (JsonParser parser = objectMapper.createParser(body)) {
+                CompileRequestDTO request = readProperties(parser);
+                options = CodegenOptions.of(request);
+                validator = new ModelValidator(options);
+                String ruleName = JarArtifactService.ruleName(request);
+                String version = JarArtifactService.version(request);
+                filename = JarArtifactService.filename(ruleName, version);
+                JarBuilderService.JarStream jar = jarBuilderService.openJar(out, ruleName, version,
+                    JarArtifactService.VENDOR, JarArtifactService.DESCRIPTION,
+                    jarBuilderService.compressionLevel(request.getCompressionLevel()));
+                
+                Thread compiler = Thread.ofVirtual().name("stream-compile").start(() -> stage(this::compileModels));
+                Thread packager = Thread.ofVirtual().name("stream-package").start(() -> stage(() -> packageClasses(jar)));
+                readModels(parser);
+                try {
+                    compiler.join();
+                    packager.join();
+                } catch (InterruptedException e) {
+                    fail(e);
+                    throw e;
+                }
+                
+                Throwable failed = failure.get();
+                if (failed instanceof Exception e) {
+                    throw e;
+                } else if (failed != null) {
+                    throw (Error) failed;
+                }
+                if (modelCount == 0) {
+                    throw new IllegalArgumentException("Data models cannot be empty");
+                }
+                jar.finish(request.isIncludeDrools(), request.getDroolsContent());
+            }
+        }
+
+        /**
+         * Binds the properties in front of {@code dataModels} and leaves the parser on the
+         * start of the array.
+         */
+        private CompileRequestDTO readProperties(JsonParser parser) throws Exception {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Request body must be a JSON object");
+            }
+            ObjectNode properties = objectMapper.createObjectNode();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (DATA_MODELS.equals(name)) {
+                    if (value != JsonToken.START_ARRAY) {
+                        throw new IllegalArgumentException("Data models cannot be empty");
+                    }
+                    CompileRequestDTO request = objectMapper.treeToValue(properties, CompileRequestDTO.class);
+                    Integer level = request.getCompressionLevel();
+                    if (level != null && (level < -1 || level > 9)) {
+                        throw new IllegalArgumentException("compressionLevel must be between -1 and 9");
+                    }
+                    return request;
+                }
+                properties.set(name, parser.readValueAsTree());
+            }
+            throw new IllegalArgumentException("Data models cannot be empty");
+        }
+
+        /**
+         * Feeds the models to the compile stage, ending with {@code END_OF_MODELS} unless
+         * the pipeline failed.
+         */
+        private void readModels(JsonParser parser) {
+            try {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    cancellation.throwIfCancelled();
+                    DataModelDTO model = parser.readValueAs(DataModelDTO.class);
+                    if (model == null) {
+                        throw new IllegalArgumentException("Data models cannot be null");
+                    }
+                    if (validator.add(model) && !put(parsed, model)) {
+                        return;
+                    }
+                    modelCount++;
+                }
+                JsonToken next = parser.nextToken();
+                if (next == JsonToken.FIELD_NAME) {
+                    throw new IllegalArgumentException("Property " + parser.currentName()
+                        + " must come before dataModels in a streamed request");
+                }
+                if (next != JsonToken.END_OBJECT) {
+                    throw new IllegalArgumentException("Request body must be a single JSON object");
+                }
+                validator.finish();
+                put(parsed, END_OF_MODELS);
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Compiles ready models in batches. Models whose references are neither compiled
+         * nor ready wait in {@code deferred}, listed under each missing reference.
+         */
+        private void compileModels() throws Exception {
+            Map<String, byte[]> classpath = new HashMap<>(JavaCompilerService.runtimeClasses(options));
+            if (!classpath.isEmpty() && !put(compiled, new HashMap<>(classpath))) {
+                return;
+            }
+            
+            Set<String> scheduled = new HashSet<>();
+            Map<String, DataModelDTO> deferred = new LinkedHashMap<>();
+            Map<DataModelDTO, Set<String>> missingReferences = new IdentityHashMap<>();
+            Map<String, List<DataModelDTO>> waitingOn = new HashMap<>();
+            Set<String> received = new HashSet<>();
+            
+            boolean end = false;
+            while (!end) {
+                List<DataModelDTO> arrived = new ArrayList<>();
+                DataModelDTO first = take(parsed);
+                if (first == null) {
+                    return;
+                }
+                arrived.add(first);
+                parsed.drainTo(arrived, config.getMaxBatchModels() - 1);
+                
+                List<DataModelDTO> ready = new ArrayList<>();
+                for (DataModelDTO model : arrived) {
+                    if (model == END_OF_MODELS) {
+                        end = true;
+                        break;
+                    }
+                    String className = ModelDependencyGraph.classNameOf(model);
+                    if (!received.add(className)) {
+                        throw new IllegalArgumentException("Duplicate data model " + className);
+                    }
+                    
+                    Set<String> missing = new HashSet<>(ModelDependencyGraph.referencedClasses(model));
+                    missing.remove(className);
+                    missing.removeAll(scheduled);
+                    missing.removeIf(ModelValidator::isJdkClass);
+                    if (missing.isEmpty()) {
+                        schedule(model, ready, scheduled, deferred, missingReferences, waitingOn);
+                    } else {
+                        deferred.put(className, model);
+                        missingReferences.put(model, missing);
+                        for (String reference : missing) {
+                            waitingOn.computeIfAbsent(reference, k -> new ArrayList<>()).add(model);
+                        }
+                    }
+                }
+                if (end && !deferred.isEmpty()) {
+                    log.info("Compiling {} streamed models with unresolved references together", deferred.size());
+                    ready.addAll(deferred.values());
+                }
+                if (!ready.isEmpty() && !compile(ready, classpath)) {
+                    return;
+                }
+            }
+            put(compiled, END_OF_CLASSES);
+        }
+
+        /**
+         * Marks the model ready, together with every deferred model that was only waiting
+         * for it or for the models released along with it.
+         */
+        private void schedule(DataModelDTO model, List<DataModelDTO> ready, Set<String> scheduled,
+                              Map<String, DataModelDTO> deferred, Map<DataModelDTO, Set<String>> missingReferences,
+                              Map<String, List<DataModelDTO>> waitingOn) {
+            List<DataModelDTO> released = new ArrayList<>(List.of(model));
+            while (!released.isEmpty()) {
+                DataModelDTO next = released.removeLast();
+                String className = ModelDependencyGraph.classNameOf(next);
+                ready.add(next);
+                scheduled.add(className);
+                deferred.remove(className);
+                
+                for (DataModelDTO waiting : waitingOn.getOrDefault(className, List.of())) {
+                    Set<String> missing = missingReferences.get(waiting);
+                    if (missing.remove(className) && missing.isEmpty()) {
+                        missingReferences.remove(waiting);
+                        released.add(waiting);
+                    }
+                }
+                waitingOn.remove(className);
+            }
+        }
+
+        private boolean compile(List<DataModelDTO> batch, Map<String, byte[]> classpath) throws Exception {
+            if (failure.get() != null) {
+                return false;
+            }
+            log.debug("Compiling a batch of {} streamed models", batch.size());
+            Map<String, Map<String, byte[]>> classes = compileScheduler.execute(
+                () -> compilerService.compileBatch(batch, options, classpath, cancellation), cancellation);
+            
+            Map<String, byte[]> entries = new LinkedHashMap<>();
+            classes.values().forEach(entries::putAll);
+            return put(compiled, entries);
+        }
+
+        private void packageClasses(JarBuilderService.JarStream jar) throws Exception {
+            Map<String, byte[]> classes;
+            while ((classes = take(compiled)) != null && classes != END_OF_CLASSES) {
+                jar.addClasses(classes);
+                classCount += classes.size();
+            }
+        }
+
+        private void stage(StageBody body) {
+            try {
+                body.run();
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Records the first failure and cancels the work still in progress for the other stages.
+         */
+        private void fail(Throwable e) {
+            failure.compareAndSet(null, e);
+            cancellation.cancel(CancellationToken.Reason.ABANDONED);
+        }
+
+        /**
+         * Waits for room in the queue. Returns {@code false} if the pipeline failed meanwhile.
+         *
+         * @throws CompilationCancelledException if the deadline passes while waiting
+         */
+        private <T> boolean put(BlockingQueue<T> queue, T item) throws InterruptedException {
+            while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    return false;
+                }
+                cancellation.throwIfCancelled();
+            }
+            return true;
+        }
+
+        /**
+         * Waits for the next item. Returns {@code null} if the pipeline failed meanwhile.
+         *
+         * @throws CompilationCancelledException if the deadline passes while waiting
+         */
+        private <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+            T item;
+            while ((item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                if (failure.get() != null) {
+                    return null;
+                }
+                cancellation.throwIfCancelled();
+            }
+            return item;
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws Exception;
+    }
+}
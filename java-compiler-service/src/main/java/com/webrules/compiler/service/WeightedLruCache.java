@@ -0,0 +1,97 @@
+package com.webrules.compiler.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe LRU map bounded by the summed weight of its values rather than by entry
+ * count. Values heavier than the whole capacity are not stored.
+ */
+class WeightedLruCache<V> {
+
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<String, Weighted<V>> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    WeightedLruCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    V get(String key) {
+        Weighted<V> entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    /**
+     * Stores the value and evicts least recently used entries until the cache fits its
+     * capacity again. Returns {@code false} if the value alone exceeds the capacity.
+     */
+    boolean put(String key, V value) {
+        long entryWeight = key.length() + weigher.applyAsLong(value);
+        if (entryWeight > maxWeight) {
+            return false;
+        }
+        
+        synchronized (this) {
+            Weighted<V> previous = entries.put(key, new Weighted<>(value, entryWeight));
+            if (previous != null) {
+                weight -= previous.weight();
+            }
+            weight += entryWeight;
+            
+            Iterator<Weighted<V>> it = entries.values().iterator();
+            while (weight > maxWeight && it.hasNext()) {
+                Weighted<V> eldest = it.next();
+                it.remove();
+                weight -= eldest.weight();
+                evictions.increment();
+            }
+        }
+        return true;
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getWeight() {
+        return weight;
+    }
+
+    private record Weighted<V>(V value, long weight) {
+    }
+}
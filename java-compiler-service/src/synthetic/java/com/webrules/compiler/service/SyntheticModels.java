@@ -0,0 +1,110 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.DataModelFieldDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic generator of synthetic data models for the benchmarks and the load test.
+ * The same arguments always produce the same models, so results stay comparable between
+ * runs. It lives in src/synthetic/java, which only the benchmark and loadtest profiles
+ * compile.
+ */
+public final class SyntheticModels {
+
+    public static final String PACKAGE_NAME = "com.webrules.synthetic";
+
+    /**
+     * Field types the generated models use.
+     */
+    public enum FieldMix {
+        /** string, number, boolean and date fields only */
+        SCALAR,
+        /** scalars plus enums, arrays, defaults, descriptions and the odd model reference */
+        MIXED,
+        /** half of the fields refer to other models */
+        REFERENCES
+    }
+
+    private static final String[] SCALAR_TYPES = {"string", "number", "boolean", "date"};
+
+    private SyntheticModels() {
+    }
+
+    public static List<DataModelDTO> generate(int modelCount, int fieldCount, FieldMix mix) {
+        return generate(modelCount, fieldCount, mix, 42L);
+    }
+
+    /**
+     * Generates {@code modelCount} models of {@code fieldCount} fields each. Models only
+     * refer to models generated before them, so the reference graph is acyclic.
+     */
+    public static List<DataModelDTO> generate(int modelCount, int fieldCount, FieldMix mix, long seed) {
+        Random random = new Random(seed);
+        List<DataModelDTO> models = new ArrayList<>(modelCount);
+        
+        for (int m = 0; m < modelCount; m++) {
+            List<DataModelFieldDTO> fields = new ArrayList<>(fieldCount);
+            for (int f = 0; f < fieldCount; f++) {
+                fields.add(field(f, m, mix, random));
+            }
+            
+            DataModelDTO model = new DataModelDTO();
+            model.setName("Model" + m);
+            model.setPackageName(PACKAGE_NAME);
+            model.setDescription("Synthetic model " + m);
+            model.setFields(fields);
+            models.add(model);
+        }
+        return models;
+    }
+
+    private static DataModelFieldDTO field(int index, int modelIndex, FieldMix mix, Random random) {
+        DataModelFieldDTO field = new DataModelFieldDTO();
+        field.setName("field" + index);
+        field.setType(SCALAR_TYPES[index % SCALAR_TYPES.length]);
+        
+        switch (mix) {
+            case SCALAR -> {
+            }
+            case MIXED -> {
+                switch (random.nextInt(8)) {
+                    case 0 -> {
+                        field.setType("enum");
+                        field.setEnumValues(List.of("A", "B", "C"));
+                    }
+                    case 1 -> {
+                        field.setType("array");
+                        field.setItemsType("string");
+                    }
+                    case 2 -> {
+                        if (modelIndex > 0) {
+                            field.setType("object");
+                            field.setObjectType("Model" + random.nextInt(modelIndex));
+                        }
+                    }
+                    case 3 -> {
+                        field.setType("string");
+                        field.setDefaultValue("value" + index);
+                    }
+                    case 4 -> {
+                        field.setType("number");
+                        field.setDefaultValue(index);
+                    }
+                    default -> field.setDescription("Field " + index + " of model " + modelIndex);
+                }
+                field.setRequired(random.nextBoolean());
+            }
+            case REFERENCES -> {
+                if (modelIndex > 0 && index % 2 == 0) {
+                    field.setType("object");
+                    field.setObjectType("Model" + random.nextInt(modelIndex));
+                }
+            }
+        }
+        return field;
+    }
+}
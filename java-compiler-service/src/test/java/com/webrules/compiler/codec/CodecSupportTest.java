@@ -0,0 +1,92 @@
+package com.webrules.compiler.codec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CodecSupportTest {
+
+    static List<Object> untypedValues() {
+        return Arrays.asList(null, "text", "über", 42.5, Double.NaN, -0.0, 42, Integer.MIN_VALUE, Long.MAX_VALUE,
+            new BigDecimal("12.3400"), new BigDecimal("-1E+20"), BigInteger.ONE.shiftLeft(100).negate(),
+            1.5f, (short) -7, (byte) 3, true, false, LocalDateTime.of(2024, 1, 31, 9, 30, 0, 1),
+            new ArrayList<>(Arrays.asList(1, 2L, "x", null, List.of(BigDecimal.TEN))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("untypedValues")
+    void readsUntypedValuesBackAsEqualValuesOfTheSameClass(Object value) {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        CodecSupport.writeAny(buffer, value);
+        buffer.flip();
+
+        Object read = CodecSupport.readAny(buffer);
+
+        assertThat(buffer.hasRemaining()).isFalse();
+        assertThat(read).isEqualTo(value);
+        if (value != null) {
+            assertThat(read).hasSameClassAs(value);
+        }
+    }
+
+    @Test
+    void rejectsNumbersOfOtherClasses() {
+        assertThatThrownBy(() -> CodecSupport.writeAny(ByteBuffer.allocate(64), new AtomicLong(1)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining(AtomicLong.class.getName());
+    }
+
+    static List<Function<ByteBuffer, Object>> lengthPrefixedReaders() {
+        return List.of(
+            CodecSupport::readString,
+            CodecSupport::readDoubles,
+            CodecSupport::readBooleans,
+            buffer -> CodecSupport.readList(buffer, CodecSupport::readAny));
+    }
+
+    @ParameterizedTest
+    @MethodSource("lengthPrefixedReaders")
+    void rejectsLengthsBeyondTheInputBeforeAllocating(Function<ByteBuffer, Object> reader) {
+        ByteBuffer buffer = ByteBuffer.allocate(16).putInt(Integer.MAX_VALUE).put(new byte[12]).flip();
+
+        assertThatThrownBy(() -> reader.apply(buffer))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Corrupt input: length " + Integer.MAX_VALUE);
+    }
+
+    @ParameterizedTest
+    @MethodSource("lengthPrefixedReaders")
+    void rejectsNegativeLengthsOtherThanNull(Function<ByteBuffer, Object> reader) {
+        ByteBuffer buffer = ByteBuffer.allocate(4).putInt(-2).flip();
+
+        assertThatThrownBy(() -> reader.apply(buffer)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsOversizedBigNumbers() {
+        ByteBuffer buffer = ByteBuffer.allocate(16).put(CodecSupport.TAG_BIG_DECIMAL).putInt(2)
+            .putInt(Integer.MAX_VALUE).flip();
+
+        assertThatThrownBy(() -> CodecSupport.readAny(buffer)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void checksDoubleArraysAgainstEightBytesPerElement() {
+        ByteBuffer buffer = ByteBuffer.allocate(20).putInt(3).putDouble(1).putDouble(2).flip();
+
+        assertThatThrownBy(() -> CodecSupport.readDoubles(buffer)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,192 @@
+package com.webrules.compiler.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webrules.compiler.service.CompileJob;
+import com.webrules.compiler.service.CompileJobService;
+import com.webrules.compiler.service.CompileScheduler;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarInputStream;
+import java.util.zip.ZipEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"compiler.warmup.enabled=false", "compiler.scheduler.max-concurrency=1",
+    "compiler.scheduler.queue-capacity=4", "compiler.jobs.artifact-ttl=1s", "compiler.jobs.cleanup-interval=PT1H"})
+@AutoConfigureMockMvc
+class CompileJobControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CompileScheduler scheduler;
+
+    @Autowired
+    private CompileJobService jobService;
+
+    @Test
+    void reportsPhaseAndProgressUntilTheJobSucceeds() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> occupied = scheduler.submit(() -> {
+            running.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        });
+        assertThat(running.await(10, TimeUnit.SECONDS)).isTrue();
+        
+        String id;
+        try {
+            JsonNode submitted = submit(request("com.test.jobs.phases"));
+            id = submitted.path("jobId").asText();
+            assertThat(submitted.path("status").asText()).isEqualTo("QUEUED");
+            assertThat(submitted.path("progress").asDouble()).isZero();
+            assertThat(submitted.path("totalModels").asInt()).isEqualTo(2);
+            
+            mvc.perform(get("/api/compiler/jobs/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("QUEUED"))
+                .andExpect(jsonPath("$.artifactUrl").doesNotExist());
+            mvc.perform(get("/api/compiler/jobs/{id}/artifact", id))
+                .andExpect(status().isConflict());
+        } finally {
+            release.countDown();
+        }
+        occupied.get(10, TimeUnit.SECONDS);
+        
+        JsonNode finished = awaitFinished(id);
+        assertThat(finished.path("status").asText()).isEqualTo("SUCCEEDED");
+        assertThat(finished.path("progress").asDouble()).isEqualTo(1.0);
+        assertThat(finished.path("compiledModels").asInt()).isEqualTo(2);
+        assertThat(finished.path("buildId").asText()).isNotEmpty();
+        assertThat(finished.path("artifactSize").asLong()).isPositive();
+        assertThat(finished.path("artifactUrl").asText()).isEqualTo("/api/compiler/jobs/" + id + "/artifact");
+        assertThat(finished.path("finishedAt").isNull()).isFalse();
+    }
+
+    @Test
+    void answersUnknownJobsWithNotFound() throws Exception {
+        mvc.perform(get("/api/compiler/jobs/{id}", "no-such-job")).andExpect(status().isNotFound());
+        mvc.perform(get("/api/compiler/jobs/{id}/artifact", "no-such-job")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void downloadsTheWholeArtifact() throws Exception {
+        JsonNode job = awaitFinished(submit(request("com.test.jobs.download")).path("jobId").asText());
+        
+        MockHttpServletResponse response = mvc.perform(get(job.path("artifactUrl").asText()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + job.path("filename").asText() + "\""))
+            .andReturn().getResponse();
+        
+        byte[] jar = response.getContentAsByteArray();
+        assertThat((long) jar.length).isEqualTo(job.path("artifactSize").asLong());
+        assertThat(entryNames(jar)).contains("com/test/jobs/download/Order.class", "com/test/jobs/download/Line.class");
+    }
+
+    @Test
+    void answersRangeRequestsWithPartialContent() throws Exception {
+        JsonNode job = awaitFinished(submit(request("com.test.jobs.range")).path("jobId").asText());
+        String url = job.path("artifactUrl").asText();
+        byte[] jar = mvc.perform(get(url)).andReturn().getResponse().getContentAsByteArray();
+        
+        MockHttpServletResponse head = mvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=0-9"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-9/" + jar.length))
+            .andReturn().getResponse();
+        assertThat(head.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(jar, 0, 10));
+        
+        MockHttpServletResponse tail = mvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=-16"))
+            .andExpect(status().isPartialContent())
+            .andReturn().getResponse();
+        assertThat(tail.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(jar, jar.length - 16, jar.length));
+    }
+
+    @Test
+    void removesJobsAndArtifactsOnceTheTtlHasPassed() throws Exception {
+        String id = awaitFinished(submit(request("com.test.jobs.expiry")).path("jobId").asText()).path("jobId").asText();
+        Path artifact = jobService.get(id).getArtifactPath();
+        
+        jobService.removeExpired();
+        mvc.perform(get("/api/compiler/jobs/{id}", id)).andExpect(status().isOk());
+        assertThat(artifact).exists();
+        
+        Thread.sleep(1_100);
+        jobService.removeExpired();
+        
+        mvc.perform(get("/api/compiler/jobs/{id}", id)).andExpect(status().isNotFound());
+        mvc.perform(get("/api/compiler/jobs/{id}/artifact", id)).andExpect(status().isNotFound());
+        assertThat(artifact).doesNotExist();
+    }
+
+    private JsonNode submit(String json) throws Exception {
+        String body = mvc.perform(post("/api/compiler/jobs").contentType(MediaType.APPLICATION_JSON).content(json))
+            .andExpect(status().isAccepted())
+            .andExpect(header().exists(HttpHeaders.LOCATION))
+            .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private JsonNode awaitFinished(String id) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (true) {
+            String body = mvc.perform(get("/api/compiler/jobs/{id}", id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+            JsonNode job = objectMapper.readTree(body);
+            String phase = job.path("status").asText();
+            if (phase.equals(CompileJob.Phase.SUCCEEDED.name()) || phase.equals(CompileJob.Phase.FAILED.name())) {
+                return job;
+            }
+            assertThat(System.nanoTime()).as("waiting for job %s", id).isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private static String request(String packageName) {
+        return """
+            {"dataModels": [
+              {"name": "Order", "packageName": "%1$s", "fields": [
+                {"name": "lines", "type": "array", "itemsType": "Line"}]},
+              {"name": "Line", "packageName": "%1$s", "fields": [
+                {"name": "quantity", "type": "number"}]}
+            ]}""".formatted(packageName);
+    }
+
+    private static List<String> entryNames(byte[] jar) throws Exception {
+        List<String> names = new ArrayList<>();
+        try (JarInputStream in = new JarInputStream(new ByteArrayInputStream(jar))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+}
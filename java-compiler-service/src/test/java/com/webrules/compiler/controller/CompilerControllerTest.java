@@ -0,0 +1,118 @@
+package com.webrules.compiler.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.webrules.compiler.service.CompileScheduler;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {"compiler.warmup.enabled=false", "compiler.scheduler.max-concurrency=1",
+        "compiler.scheduler.queue-capacity=1", "compiler.scheduler.retry-after=7s"})
+class CompilerControllerTest {
+
+    private static final String EMPTY_FIELDS = """
+        {"dataModels": [{"name": "A", "packageName": "com.test.empty", "fields": []}]}""";
+    private static final String MISSING_FIELDS = """
+        {"dataModels": [{"name": "A", "packageName": "com.test.empty"}]}""";
+    private static final String BUSY = """
+        {"dataModels": [{"name": "A", "packageName": "com.test.busy", "fields": []}]}""";
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private CompileScheduler scheduler;
+
+    @Test
+    void rejectsInvalidModelsBeforeTheArtifactCache() {
+        ResponseEntity<byte[]> valid = post("/api/compiler/compile", EMPTY_FIELDS, null, byte[].class);
+        assertThat(valid.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String etag = valid.getHeaders().getETag();
+        assertThat(etag).isNotNull();
+
+        ResponseEntity<JsonNode> invalid = post("/api/compiler/compile", MISSING_FIELDS, null, JsonNode.class);
+        assertInvalidFields(invalid);
+
+        ResponseEntity<JsonNode> conditional = post("/api/compiler/compile", MISSING_FIELDS, etag, JsonNode.class);
+        assertInvalidFields(conditional);
+    }
+
+    @Test
+    void rejectsInvalidJobsBeforeTheArtifactCache() {
+        assertThat(post("/api/compiler/compile", EMPTY_FIELDS, null, byte[].class).getStatusCode())
+            .isEqualTo(HttpStatus.OK);
+
+        assertInvalidFields(post("/api/compiler/jobs", MISSING_FIELDS, null, JsonNode.class));
+    }
+
+    @Test
+    void answersWithRetryAfterWhenTheCompileQueueIsFull() throws Exception {
+        awaitIdle();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> active = scheduler.submit(() -> {
+            running.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        });
+        assertThat(running.await(10, TimeUnit.SECONDS)).isTrue();
+        List<CompletableFuture<Object>> occupied = List.of(active,
+            scheduler.submit(() -> release.await(10, TimeUnit.SECONDS)));
+        try {
+            ResponseEntity<String> compile = post("/api/compiler/compile", BUSY, null, String.class);
+            assertThat(compile.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+            assertThat(compile.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("7");
+
+            ResponseEntity<String> job = post("/api/compiler/jobs", BUSY, null, String.class);
+            assertThat(job.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+            assertThat(job.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("7");
+        } finally {
+            release.countDown();
+        }
+        CompletableFuture.allOf(occupied.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        assertThat(post("/api/compiler/compile", BUSY, null, byte[].class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    /**
+     * Waits for the compilations of earlier tests: a worker still counts as active for a
+     * moment after its response was sent.
+     */
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (scheduler.getActiveCount() > 0 || scheduler.getQueueDepth() > 0) {
+            assertThat(System.nanoTime()).as("scheduler idle").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static void assertInvalidFields(ResponseEntity<JsonNode> response) {
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody().path("problemCount").asInt()).isEqualTo(1);
+        assertThat(response.getBody().path("problems").path(0).path("path").asText())
+            .isEqualTo("dataModels[0].fields");
+    }
+
+    private <T> ResponseEntity<T> post(String path, String json, String ifNoneMatch, Class<T> type) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (ifNoneMatch != null) {
+            headers.setIfNoneMatch(ifNoneMatch);
+        }
+        return rest.exchange(path, HttpMethod.POST, new HttpEntity<>(json, headers), type);
+    }
+}
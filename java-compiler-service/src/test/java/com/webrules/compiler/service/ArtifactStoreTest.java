@@ -0,0 +1,91 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArtifactStoreTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void leavesFilesItDidNotCreateAlone() throws Exception {
+        Path unrelated = Files.writeString(root.resolve("notes.jar"), "not ours");
+        Path nested = Files.createDirectories(root.resolve("backups"));
+        Path backup = Files.writeString(nested.resolve("old.jar"), "not ours either");
+        old(unrelated, backup);
+        
+        ArtifactStore store = new ArtifactStore(properties(Duration.ofMinutes(1)));
+        store.store("job", out -> out.write(1));
+        store.destroy();
+        
+        assertThat(unrelated).exists();
+        assertThat(backup).exists();
+        assertThat(store.getDirectory()).doesNotExist();
+    }
+
+    @Test
+    void instancesSharingTheDirectoryKeepEachOthersArtifacts() throws Exception {
+        ArtifactStore first = new ArtifactStore(properties(Duration.ofMinutes(1)));
+        Path artifact = first.store("job", out -> out.write(1));
+        
+        ArtifactStore second = new ArtifactStore(properties(Duration.ofMinutes(1)));
+        assertThat(second.getDirectory()).isNotEqualTo(first.getDirectory());
+        second.destroy();
+        
+        assertThat(artifact).hasBinaryContent(new byte[]{1});
+        first.destroy();
+        assertThat(artifact).doesNotExist();
+    }
+
+    @Test
+    void removesArtifactsOfCrashedInstancesOnceOlderThanTheTtl() throws Exception {
+        Path crashed = Files.createDirectories(root.resolve("instance-crashed"));
+        Path stale = Files.writeString(crashed.resolve("stale.jar"), "stale");
+        Path partial = Files.writeString(crashed.resolve("partial123.tmp"), "partial");
+        Path other = Files.writeString(crashed.resolve("readme.txt"), "kept");
+        old(stale, partial, other);
+        Path live = Files.createDirectories(root.resolve("instance-live"));
+        Path recent = Files.writeString(live.resolve("recent.jar"), "recent");
+        
+        ArtifactStore store = new ArtifactStore(properties(Duration.ofMinutes(1)));
+        
+        assertThat(stale).doesNotExist();
+        assertThat(partial).doesNotExist();
+        assertThat(other).exists();
+        assertThat(recent).exists();
+        store.destroy();
+    }
+
+    @Test
+    void recreatesItsDirectoryIfItWasRemoved() throws Exception {
+        ArtifactStore store = new ArtifactStore(properties(Duration.ofMinutes(1)));
+        Files.delete(store.getDirectory());
+        
+        assertThat(store.store("job", out -> out.write(1))).exists();
+        store.destroy();
+    }
+
+    private CompilerProperties properties(Duration ttl) {
+        CompilerProperties properties = new CompilerProperties();
+        properties.getJobs().setArtifactDir(root);
+        properties.getJobs().setArtifactTtl(ttl);
+        return properties;
+    }
+
+    private static void old(Path... files) throws Exception {
+        FileTime hourAgo = FileTime.from(Instant.now().minus(Duration.ofHours(1)));
+        for (Path file : files) {
+            Files.setLastModifiedTime(file, hourAgo);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.DataModelFieldDTO;
+import com.webrules.compiler.dto.GenerationMode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static com.webrules.compiler.service.TestModels.arrayField;
+import static com.webrules.compiler.service.TestModels.field;
+import static com.webrules.compiler.service.TestModels.model;
+import static com.webrules.compiler.service.TestModels.objectField;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compiles the same models with the ASM fast path and with javac, the reference backend,
+ * and compares the classes they produce.
+ */
+class BackendDifferentialTest {
+
+    private static final String PACKAGE = "com.test.diff";
+
+    /**
+     * The models of {@link #models()} the fast path compiles with the default options.
+     */
+    private static final Set<String> FAST_PATH_MODELS = Set.of(
+        PACKAGE + ".Customer", PACKAGE + ".Line", PACKAGE + ".Order", PACKAGE + ".other.Ref");
+
+    private static Map<String, byte[]> fastPathClasses;
+    private static Map<String, byte[]> javacClasses;
+    private static ClassLoader fastPathLoader;
+    private static ClassLoader javacLoader;
+
+    @BeforeAll
+    static void compileWithBothBackends() throws Exception {
+        try (TestCompiler auto = new TestCompiler(CompilerProperties.Backend.AUTO);
+             TestCompiler javac = new TestCompiler(CompilerProperties.Backend.JAVAC)) {
+            fastPathClasses = auto.build(models(), CodegenOptions.DEFAULT, null).classes();
+            javacClasses = javac.build(models(), CodegenOptions.DEFAULT, null).classes();
+        }
+        fastPathLoader = TestCompiler.load(fastPathClasses);
+        javacLoader = TestCompiler.load(javacClasses);
+    }
+
+    @AfterAll
+    static void release() {
+        fastPathLoader = null;
+        javacLoader = null;
+    }
+
+    private static List<DataModelDTO> models() {
+        DataModelFieldDTO customerName = field("name", "string");
+        customerName.setRequired(true);
+        DataModelFieldDTO vip = field("vip", "boolean");
+        vip.setDefaultValue("true");
+        
+        DataModelFieldDTO sku = field("sku", "string");
+        sku.setRequired(true);
+        DataModelFieldDTO quantity = field("quantity", "number");
+        quantity.setDefaultValue("1");
+        quantity.setRequired(true);
+        DataModelFieldDTO price = field("price", "number");
+        price.setDefaultValue("2.50");
+        DataModelFieldDTO discount = field("discount", "number");
+        discount.setDefaultValue("1e-2");
+        DataModelFieldDTO negative = field("negative", "number");
+        negative.setDefaultValue("-7");
+        
+        DataModelFieldDTO id = field("id", "string");
+        id.setRequired(true);
+        DataModelFieldDTO placed = field("placed", "date");
+        placed.setDefaultValue("2024-01-31T09:30");
+        DataModelFieldDTO status = field("status", "enum");
+        status.setDefaultValue("NEW");
+        DataModelFieldDTO note = field("note", "string");
+        note.setDefaultValue("say \"hi\"\n\\ done");
+        DataModelFieldDTO paid = field("paid", "boolean");
+        paid.setDefaultValue("false");
+        
+        DataModelFieldDTO octal = field("mask", "number");
+        octal.setDefaultValue("010");
+        
+        DataModelFieldDTO[] many = new DataModelFieldDTO[100];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = field("f" + i, "string");
+        }
+        
+        return List.of(
+            model(PACKAGE, "Customer", customerName, field("email", "string"), vip),
+            model(PACKAGE, "Line", sku, quantity, price, discount, negative, field("gift", "boolean")),
+            model(PACKAGE, "Order", id, placed, status, note, paid, field("amount", "number"),
+                objectField("customer", "Customer"), arrayField("lines", "Line"), arrayField("tags", "string"),
+                arrayField("prices", "number"), arrayField("flags", "boolean"), arrayField("dates", "date"),
+                arrayField("nested", "array"), arrayField("anything", "object"), arrayField("untyped", null),
+                field("payload", "object"), objectField("untypedObject", null)),
+            model(PACKAGE + ".other", "Ref", objectField("order", PACKAGE + ".Order"), field("label", "string")),
+            model(PACKAGE, "Money", objectField("total", "java.math.BigDecimal")),
+            model(PACKAGE, "Shadowed", field("o", "string"), field("size", "number")),
+            model(PACKAGE, "Octal", octal),
+            model(PACKAGE, "Empty"),
+            model(PACKAGE, "Wide", many));
+    }
+
+    static Stream<String> classNames() {
+        return ModelDependencyGraph.classNamesOf(models()).stream();
+    }
+
+    @Test
+    void fastPathSupportsOnlyPlainMutableModels() {
+        assertThat(supported(CodegenOptions.DEFAULT)).isEqualTo(FAST_PATH_MODELS);
+        assertThat(supported(new CodegenOptions(GenerationMode.MUTABLE, true, false, false)))
+            .containsExactlyInAnyOrder(PACKAGE + ".Customer", PACKAGE + ".Line", PACKAGE + ".other.Ref");
+        assertThat(supported(new CodegenOptions(GenerationMode.IMMUTABLE, false, false, false))).isEmpty();
+        assertThat(supported(new CodegenOptions(GenerationMode.MUTABLE, false, true, false))).isEmpty();
+        assertThat(supported(new CodegenOptions(GenerationMode.MUTABLE, false, false, true))).isEmpty();
+    }
+
+    @Test
+    void fastPathDeclinesModelsShadowingTheTypesItRefersTo() {
+        List<DataModelDTO> models = new ArrayList<>(models());
+        models.add(model(PACKAGE, "Objects", field("size", "number")));
+        Set<String> requestClasses = new HashSet<>(ModelDependencyGraph.classNamesOf(models));
+        BytecodeModelCompiler fastPath = new BytecodeModelCompiler();
+        
+        assertThat(models).noneMatch(m -> PACKAGE.equals(m.getPackageName())
+            && fastPath.supports(m, CodegenOptions.DEFAULT, requestClasses));
+        assertThat(fastPath.supports(models.get(3), CodegenOptions.DEFAULT, requestClasses)).isTrue();
+    }
+
+    @Test
+    void bothBackendsCompileEveryModel() {
+        assertThat(fastPathClasses.keySet()).isEqualTo(javacClasses.keySet())
+            .containsAll(ModelDependencyGraph.classNamesOf(models()));
+        for (String className : FAST_PATH_MODELS) {
+            assertThat(fastPathClasses.get(className)).as(className).isNotEqualTo(javacClasses.get(className));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("classNames")
+    void declaresTheSameMembers(String className) throws Exception {
+        assertThat(signature(fastPathLoader.loadClass(className)))
+            .isEqualTo(signature(javacLoader.loadClass(className)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("classNames")
+    void appliesTheSameDefaults(String className) throws Exception {
+        assertThat(defaults(fastPathLoader.loadClass(className)))
+            .isEqualTo(defaults(javacLoader.loadClass(className)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("classNames")
+    void behavesTheSameInEqualsHashCodeAndToString(String className) throws Exception {
+        List<String> expected = behaviour(javacLoader.loadClass(className));
+        
+        assertThat(behaviour(fastPathLoader.loadClass(className))).isEqualTo(expected);
+        assertThat(expected).contains("sample.equals(copy)=true", "sample.equals(null)=false");
+    }
+
+    private static Set<String> supported(CodegenOptions options) {
+        List<DataModelDTO> models = models();
+        Set<String> requestClasses = new HashSet<>(ModelDependencyGraph.classNamesOf(models));
+        BytecodeModelCompiler fastPath = new BytecodeModelCompiler();
+        Set<String> supported = new HashSet<>();
+        for (DataModelDTO model : models) {
+            if (fastPath.supports(model, options, requestClasses)) {
+                supported.add(ModelDependencyGraph.classNameOf(model));
+            }
+        }
+        return supported;
+    }
+
+    /**
+     * Modifiers, supertypes and members with their generic types, ignoring member order
+     * except for fields.
+     */
+    private static List<String> signature(Class<?> type) {
+        List<String> signature = new ArrayList<>();
+        signature.add(Modifier.toString(type.getModifiers()) + " " + type.getGenericSuperclass().getTypeName()
+            + " " + Arrays.toString(type.getGenericInterfaces()));
+        for (Field field : type.getDeclaredFields()) {
+            signature.add(flags(field) + field.toGenericString());
+        }
+        Set<String> executables = new TreeSet<>();
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            executables.add(flags(constructor) + constructor.toGenericString()
+                + Arrays.toString(constructor.getGenericExceptionTypes()));
+        }
+        for (Method method : type.getDeclaredMethods()) {
+            executables.add(flags(method) + method.toGenericString()
+                + Arrays.toString(method.getGenericExceptionTypes()));
+        }
+        signature.addAll(executables);
+        return signature;
+    }
+
+    private static String flags(Member member) {
+        return member.isSynthetic() ? "synthetic " : "";
+    }
+
+    /**
+     * The value and runtime class of every field of a default-constructed instance.
+     */
+    private static List<String> defaults(Class<?> type) throws Exception {
+        Object instance = type.getConstructor().newInstance();
+        List<String> defaults = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            field.setAccessible(true);
+            defaults.add(field.getName() + "=" + describe(field.get(instance)));
+        }
+        return defaults;
+    }
+
+    /**
+     * What {@code toString}, {@code hashCode} and {@code equals} return for default and
+     * populated instances, and for copies that differ in one field each.
+     */
+    private static List<String> behaviour(Class<?> type) throws Exception {
+        List<String> behaviour = new ArrayList<>();
+        Object empty = type.getConstructor().newInstance();
+        behaviour.add("default.toString=" + empty);
+        behaviour.add("default.hashCode=" + empty.hashCode());
+        behaviour.add("default.equals(default)=" + empty.equals(type.getConstructor().newInstance()));
+        
+        Object sample = populate(type, 0);
+        Object copy = populate(type, 0);
+        behaviour.add("sample.toString=" + sample);
+        behaviour.add("sample.hashCode=" + sample.hashCode());
+        behaviour.add("sample.equals(copy)=" + sample.equals(copy));
+        behaviour.add("sample.equals(self)=" + sample.equals(sample));
+        behaviour.add("sample.equals(null)=" + sample.equals(null));
+        behaviour.add("sample.equals(other type)=" + sample.equals("sample"));
+        behaviour.add("sample.equals(default)=" + sample.equals(empty));
+        
+        for (Field field : type.getDeclaredFields()) {
+            Object changed = populate(type, 0);
+            setter(type, field).invoke(changed, otherValue(field.getType()));
+            behaviour.add("changed " + field.getName() + ": equals=" + sample.equals(changed) + " reverse="
+                + changed.equals(sample) + " sameHash=" + (sample.hashCode() == changed.hashCode()) + " toString="
+                + changed);
+        }
+        
+        for (Constructor<?> constructor : type.getConstructors()) {
+            if (constructor.getParameterCount() > 0) {
+                Type[] parameters = constructor.getGenericParameterTypes();
+                Object[] arguments = new Object[parameters.length];
+                for (int i = 0; i < parameters.length; i++) {
+                    arguments[i] = sampleValue(parameters[i], type.getClassLoader(), 0);
+                }
+                behaviour.add("constructed.toString=" + constructor.newInstance(arguments));
+            }
+        }
+        return behaviour;
+    }
+
+    /**
+     * An instance with every field set through its setter; referenced models are populated
+     * one level deep.
+     */
+    private static Object populate(Class<?> type, int depth) throws Exception {
+        Object instance = type.getConstructor().newInstance();
+        for (Field field : type.getDeclaredFields()) {
+            setter(type, field).invoke(instance, sampleValue(field.getGenericType(), type.getClassLoader(), depth));
+        }
+        return instance;
+    }
+
+    private static Object sampleValue(Type type, ClassLoader loader, int depth) throws Exception {
+        if (type instanceof ParameterizedType parameterized) {
+            Type item = parameterized.getActualTypeArguments()[0];
+            return new ArrayList<>(Arrays.asList(sampleValue(item, loader, depth), sampleValue(item, loader, depth)));
+        }
+        Class<?> raw = (Class<?>) type;
+        if (raw == double.class || raw == Double.class) {
+            return 12.25;
+        }
+        if (raw == boolean.class || raw == Boolean.class) {
+            return true;
+        }
+        if (raw == String.class) {
+            return "sample";
+        }
+        if (raw == BigDecimal.class) {
+            return new BigDecimal("12.50");
+        }
+        if (raw == LocalDateTime.class) {
+            return LocalDateTime.of(2024, 2, 29, 12, 0, 1);
+        }
+        if (raw == List.class) {
+            return new ArrayList<>(List.of("item", 1.5));
+        }
+        if (raw == Object.class) {
+            return "payload";
+        }
+        if (raw.getClassLoader() == loader) {
+            return depth < 1 ? populate(raw, depth + 1) : raw.getConstructor().newInstance();
+        }
+        throw new IllegalArgumentException("No sample value for " + type);
+    }
+
+    private static Object otherValue(Class<?> type) {
+        if (type == double.class) {
+            return -0.0;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        return null;
+    }
+
+    private static Method setter(Class<?> type, Field field) throws NoSuchMethodException {
+        String name = field.getName();
+        return type.getMethod("set" + Character.toUpperCase(name.charAt(0)) + name.substring(1), field.getType());
+    }
+
+    private static String describe(Object value) {
+        return value == null ? "null" : value.getClass().getName() + ":" + value;
+    }
+}
@@ -0,0 +1,100 @@
+package com.webrules.compiler.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BufferPoolTest {
+
+    @Test
+    void reusesReleasedBuffers() {
+        BufferPool pool = new BufferPool(1 << 20);
+        
+        BufferPool.Buffer first = pool.borrow();
+        first.write(new byte[]{1, 2, 3}, 0, 3);
+        assertThat(first.toByteArray()).containsExactly(1, 2, 3);
+        first.release();
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+        
+        BufferPool.Buffer second = pool.borrow();
+        assertThat(second.size()).isZero();
+        assertThat(pool.getHitCount()).isEqualTo(1);
+        assertThat(pool.getMissCount()).isEqualTo(1);
+        assertThat(pool.getIdleCount()).isZero();
+        assertThat(pool.getIdleBytes()).isZero();
+    }
+
+    @Test
+    void keepsIdleBuffersWithinTheLimit() {
+        BufferPool pool = new BufferPool(1024);
+        List<BufferPool.Buffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            buffers.add(pool.borrow());
+        }
+        
+        buffers.forEach(BufferPool.Buffer::release);
+        
+        assertThat(pool.getMissCount()).isEqualTo(5);
+        assertThat(pool.getIdleCount()).isEqualTo(4);
+        assertThat(pool.getIdleBytes()).isEqualTo(1024);
+    }
+
+    @Test
+    void dropsBuffersThatGrewPastAQuarterOfTheLimit() {
+        BufferPool pool = new BufferPool(4096);
+        BufferPool.Buffer buffer = pool.borrow();
+        buffer.write(new byte[2000], 0, 2000);
+        
+        buffer.release();
+        
+        assertThat(pool.getIdleCount()).isZero();
+        assertThat(pool.getIdleBytes()).isZero();
+    }
+
+    @Test
+    void missesAllocateNoMoreThanThePoolKeepsAfterLargeContent() {
+        BufferPool pool = new BufferPool(4096);
+        BufferPool.Buffer large = pool.borrow();
+        large.write(new byte[100_000], 0, 100_000);
+        large.release();
+        
+        BufferPool.Buffer next = pool.borrow();
+        next.release();
+        
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+        assertThat(pool.getIdleBytes()).isEqualTo(1024);
+    }
+
+    @Test
+    void missesStartAtTheSizeRecentContentNeeded() {
+        BufferPool pool = new BufferPool(1 << 20);
+        BufferPool.Buffer first = pool.borrow();
+        first.write(new byte[3000], 0, 3000);
+        first.release();
+        
+        BufferPool.Buffer reused = pool.borrow();
+        BufferPool.Buffer allocated = pool.borrow();
+        reused.release();
+        allocated.release();
+        
+        assertThat(pool.getMissCount()).isEqualTo(2);
+        assertThat(pool.getIdleBytes()).isEqualTo(3000 + 4096);
+    }
+
+    @Test
+    void rejectsUseAfterRelease() {
+        BufferPool pool = new BufferPool(1 << 20);
+        BufferPool.Buffer buffer = pool.borrow();
+        buffer.release();
+        buffer.release();
+        
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+        assertThatThrownBy(() -> buffer.write(1))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Buffer was released");
+    }
+}
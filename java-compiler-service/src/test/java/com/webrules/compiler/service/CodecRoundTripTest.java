@@ -0,0 +1,176 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.GenerationMode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static com.webrules.compiler.service.TestModels.arrayField;
+import static com.webrules.compiler.service.TestModels.field;
+import static com.webrules.compiler.service.TestModels.model;
+import static com.webrules.compiler.service.TestModels.objectField;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Encodes instances of generated models with their generated codecs and decodes them again.
+ */
+class CodecRoundTripTest {
+
+    private static TestCompiler compiler;
+
+    @BeforeAll
+    static void startCompiler() {
+        compiler = new TestCompiler(CompilerProperties.Backend.AUTO);
+    }
+
+    @AfterAll
+    static void stopCompiler() {
+        compiler.close();
+    }
+
+    static Stream<Arguments> options() {
+        return Stream.of(GenerationMode.values())
+            .flatMap(mode -> Stream.of(false, true).map(primitiveArrays -> Arguments.of(mode, primitiveArrays)));
+    }
+
+    private static List<DataModelDTO> models() {
+        return List.of(
+            model("com.test.codec", "Address", field("street", "string"), field("zip", "number")),
+            model("com.test.codec", "Order",
+                field("name", "string"), field("quantity", "number"), field("paid", "boolean"),
+                field("placed", "date"), field("status", "enum"),
+                arrayField("tags", "string"), arrayField("prices", "number"), arrayField("flags", "boolean"),
+                arrayField("dates", "date"), field("any", "object"), arrayField("anyList", null),
+                objectField("total", "java.math.BigDecimal"), objectField("address", "Address"),
+                arrayField("addresses", "Address")));
+    }
+
+    @ParameterizedTest
+    @MethodSource("options")
+    void decodesWhatItEncoded(GenerationMode mode, boolean primitiveArrays) throws Exception {
+        ClassLoader loader = compiler.load(models(), new CodegenOptions(mode, primitiveArrays, true, false));
+        Class<?> addressClass = loader.loadClass("com.test.codec.Address");
+        Class<?> orderClass = loader.loadClass("com.test.codec.Order");
+        Object address = instance(addressClass, Map.of("street", "Hauptstraße 1", "zip", 12345.0));
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("name", "Ann");
+        values.put("quantity", 42.5);
+        values.put("paid", true);
+        values.put("placed", LocalDateTime.of(2024, 1, 31, 9, 30, 15, 123_456_789));
+        values.put("status", "OPEN");
+        values.put("tags", new ArrayList<>(Arrays.asList("a", null, "ü")));
+        values.put("prices", primitiveArrays ? new double[] {1.5, Double.NaN} : new ArrayList<>(Arrays.asList(1.5, null)));
+        values.put("flags", primitiveArrays ? new boolean[] {true, false} : new ArrayList<>(Arrays.asList(true, null)));
+        values.put("dates", new ArrayList<>(Arrays.asList(LocalDateTime.of(2020, 1, 1, 0, 0), null)));
+        values.put("any", 42);
+        values.put("anyList", new ArrayList<>(Arrays.asList(1, 2L, new BigDecimal("3.50"), 4.0, "five", null)));
+        values.put("total", new BigDecimal("1234.50"));
+        values.put("address", address);
+        values.put("addresses", new ArrayList<>(Arrays.asList(address, null)));
+        Object order = instance(orderClass, values);
+
+        Object decoded = roundTrip(orderClass, order);
+
+        assertThat(decoded).isEqualTo(order);
+        assertThat(decoded.hashCode()).isEqualTo(order.hashCode());
+        assertThat(fieldValue(decoded, "any")).isInstanceOf(Integer.class);
+        assertThat(roundTrip(orderClass, instance(orderClass, Map.of()))).isEqualTo(instance(orderClass, Map.of()));
+        assertThat(roundTrip(orderClass, null)).isNull();
+    }
+
+    @ParameterizedTest
+    @MethodSource("options")
+    void rejectsFactsOfAnotherModel(GenerationMode mode, boolean primitiveArrays) throws Exception {
+        ClassLoader loader = compiler.load(models(), new CodegenOptions(mode, primitiveArrays, true, false));
+        Class<?> addressClass = loader.loadClass("com.test.codec.Address");
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        codec(addressClass, "encode").invoke(null, buffer, instance(addressClass, Map.of("zip", 1.0)));
+        buffer.flip();
+
+        Method decodeOrder = codec(loader.loadClass("com.test.codec.Order"), "decode");
+        assertThatThrownBy(() -> invoke(decodeOrder, buffer))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Cannot decode com.test.codec.Order");
+    }
+
+    private static Object roundTrip(Class<?> type, Object value) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        codec(type, "encode").invoke(null, buffer, value);
+        buffer.flip();
+        Object decoded = codec(type, "decode").invoke(null, buffer);
+        assertThat(buffer.hasRemaining()).as("bytes left after decoding").isFalse();
+        return decoded;
+    }
+
+    private static Method codec(Class<?> type, String operation) throws Exception {
+        Class<?> codec = type.getClassLoader().loadClass(type.getName() + "$Codec");
+        return "encode".equals(operation)
+            ? codec.getMethod("encode", ByteBuffer.class, type)
+            : codec.getMethod("decode", ByteBuffer.class);
+    }
+
+    private static Object invoke(Method method, Object... args) throws Throwable {
+        try {
+            return method.invoke(null, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Sets the fields directly on mutable models and passes them to the all-fields
+     * constructor of immutable ones; fields without a value keep their zero value.
+     */
+    private static Object instance(Class<?> type, Map<String, Object> values) throws Exception {
+        Field[] fields = Arrays.stream(type.getDeclaredFields())
+            .filter(field -> !Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()
+                && !field.getName().startsWith("$"))
+            .toArray(Field[]::new);
+        Object[] args = Arrays.stream(fields).map(field -> valueOf(field, values)).toArray();
+        if (Modifier.isFinal(fields[0].getModifiers())) {
+            Constructor<?> constructor = type.getConstructor(Arrays.stream(fields).map(Field::getType).toArray(Class[]::new));
+            return constructor.newInstance(args);
+        }
+        Object instance = type.getConstructor().newInstance();
+        for (int i = 0; i < fields.length; i++) {
+            fields[i].setAccessible(true);
+            fields[i].set(instance, args[i]);
+        }
+        return instance;
+    }
+
+    private static Object valueOf(Field field, Map<String, Object> values) {
+        Object value = values.get(field.getName());
+        if (value != null || !field.getType().isPrimitive()) {
+            return value;
+        }
+        return field.getType() == boolean.class ? false : 0.0;
+    }
+
+    private static Object fieldValue(Object instance, String name) throws Exception {
+        Field field = instance.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(instance);
+    }
+}
@@ -0,0 +1,46 @@
+package com.webrules.compiler.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompileJobTest {
+
+    @Test
+    void progressCountsCompilationForNinetyPercent() {
+        CompileJob job = new CompileJob("id", "key", 4);
+        assertThat(job.getPhase()).isEqualTo(CompileJob.Phase.QUEUED);
+        assertThat(job.getProgress()).isZero();
+        
+        job.compiling(2);
+        assertThat(job.getPhase()).isEqualTo(CompileJob.Phase.COMPILING);
+        assertThat(job.getProgress()).isEqualTo(0.45);
+        
+        job.packaging("rules.jar");
+        assertThat(job.getPhase()).isEqualTo(CompileJob.Phase.PACKAGING);
+        assertThat(job.getCompiledModels()).isEqualTo(4);
+        assertThat(job.getProgress()).isEqualTo(0.9);
+        assertThat(job.isFinished()).isFalse();
+        
+        job.succeeded(Path.of("rules.jar"), 100);
+        assertThat(job.getProgress()).isEqualTo(1.0);
+        assertThat(job.isFinished()).isTrue();
+        assertThat(job.getFinishedAt()).isNotNull();
+    }
+
+    @Test
+    void failedJobsAreFinished() {
+        CompileJob job = new CompileJob("id", "key", 0);
+        job.compiling(0);
+        assertThat(job.getProgress()).isZero();
+        
+        job.failed("broken");
+        
+        assertThat(job.getPhase()).isEqualTo(CompileJob.Phase.FAILED);
+        assertThat(job.getError()).isEqualTo("broken");
+        assertThat(job.getProgress()).isEqualTo(1.0);
+        assertThat(job.isFinished()).isTrue();
+    }
+}
@@ -0,0 +1,93 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class CompileSchedulerTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private CompileScheduler scheduler;
+
+    @AfterEach
+    void stopScheduler() throws InterruptedException {
+        release.countDown();
+        scheduler.destroy();
+    }
+
+    private CompileScheduler scheduler(Duration queueTimeout) {
+        CompilerProperties properties = new CompilerProperties();
+        properties.getScheduler().setMaxConcurrency(1);
+        properties.getScheduler().setQueueCapacity(1);
+        properties.getScheduler().setQueueTimeout(queueTimeout);
+        properties.getScheduler().setRetryAfter(Duration.ofSeconds(7));
+        scheduler = new CompileScheduler(properties, new CompilerMetrics(new SimpleMeterRegistry()));
+        return scheduler;
+    }
+
+    @Test
+    void rejectsWorkWhenTheQueueIsFull() throws Exception {
+        CompileScheduler scheduler = scheduler(Duration.ofSeconds(10));
+        CompletableFuture<String> running = scheduler.submit(this::blocked);
+        CompletableFuture<String> queued = scheduler.submit(this::blocked);
+        
+        CompilerBusyException e = catchThrowableOfType(
+            () -> scheduler.execute(() -> "rejected", CancellationToken.NONE), CompilerBusyException.class);
+        
+        assertThat(e).hasMessage("Compile queue is full");
+        assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(7));
+        assertThat(catchThrowableOfType(() -> scheduler.submit(() -> "rejected"), CompilerBusyException.class))
+            .isNotNull();
+        assertThat(scheduler.getRejectedCount()).isEqualTo(2);
+        
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+        assertThat(scheduler.execute(() -> "admitted", CancellationToken.NONE)).isEqualTo("admitted");
+    }
+
+    @Test
+    void givesUpOnWorkThatDoesNotStartInTime() throws Exception {
+        CompileScheduler scheduler = scheduler(Duration.ofMillis(100));
+        scheduler.submit(this::blocked);
+        AtomicBoolean ran = new AtomicBoolean();
+        
+        CompilerBusyException e = catchThrowableOfType(
+            () -> scheduler.execute(() -> ran.getAndSet(true), CancellationToken.NONE), CompilerBusyException.class);
+        
+        assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(7));
+        assertThat(scheduler.getTimedOutCount()).isEqualTo(1);
+        assertThat(scheduler.getQueueDepth()).isZero();
+        release.countDown();
+        assertThat(scheduler.execute(() -> "admitted", CancellationToken.NONE)).isEqualTo("admitted");
+        assertThat(ran).isFalse();
+    }
+
+    @Test
+    void cancelsWorkWhoseDeadlinePassesInTheQueue() {
+        CompileScheduler scheduler = scheduler(Duration.ofSeconds(10));
+        scheduler.submit(this::blocked);
+        
+        CompilationCancelledException e = catchThrowableOfType(
+            () -> scheduler.execute(() -> "late", CancellationToken.withTimeout(Duration.ofMillis(100))),
+            CompilationCancelledException.class);
+        
+        assertThat(e.getReason()).isEqualTo(CancellationToken.Reason.DEADLINE);
+        assertThat(scheduler.getTimedOutCount()).isZero();
+    }
+
+    private String blocked() throws InterruptedException {
+        release.await();
+        return "done";
+    }
+}
@@ -0,0 +1,34 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.DataModelFieldDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+class CompilerWarmupTest {
+
+    @Test
+    void warmUpModelsAreValidAndTakeTheBytecodeFastPath() {
+        List<DataModelDTO> models = CompilerWarmup.models(20);
+        Set<String> requestClasses = Set.copyOf(ModelDependencyGraph.classNamesOf(models));
+        BytecodeModelCompiler bytecodeCompiler = new BytecodeModelCompiler();
+        
+        assertThatCode(() -> ModelValidator.validate(models, CodegenOptions.DEFAULT)).doesNotThrowAnyException();
+        assertThat(models).allMatch(model -> bytecodeCompiler.supports(model, CodegenOptions.DEFAULT, requestClasses));
+    }
+
+    @Test
+    void warmUpModelsCoverEveryKindOfField() {
+        List<DataModelDTO> models = CompilerWarmup.models(20);
+        
+        assertThat(models.stream().flatMap(model -> model.getFields().stream()).map(DataModelFieldDTO::getType))
+            .contains("string", "number", "boolean", "date", "enum", "array", "object");
+        assertThat(models.stream().flatMap(model -> model.getFields().stream()))
+            .anyMatch(field -> field.getDefaultValue() != null);
+    }
+}
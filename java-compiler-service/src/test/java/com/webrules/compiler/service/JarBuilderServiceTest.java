@@ -0,0 +1,54 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.zip.Deflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JarBuilderServiceTest {
+
+    @Test
+    void parallelAndSequentialCompressionWriteTheSameJar() throws IOException {
+        Map<String, byte[]> classes = new TreeMap<>();
+        for (int i = 0; i < 200; i++) {
+            classes.put("com.test.jar.Model" + i, ("class body " + i + " ").repeat(100 + i).getBytes());
+        }
+        
+        byte[] parallel = buildJar(true, classes);
+        byte[] sequential = buildJar(false, classes);
+        
+        assertThat(parallel).isEqualTo(sequential);
+        try (JarInputStream jar = new JarInputStream(new ByteArrayInputStream(parallel))) {
+            assertThat(jar.getManifest()).isNotNull();
+            int count = 0;
+            for (JarEntry entry = jar.getNextJarEntry(); entry != null; entry = jar.getNextJarEntry()) {
+                String className = entry.getName().replace('/', '.').replace(".class", "");
+                assertThat(jar.readAllBytes()).as(entry.getName()).isEqualTo(classes.get(className));
+                count++;
+            }
+            assertThat(count).isEqualTo(classes.size());
+        }
+    }
+
+    private static byte[] buildJar(boolean parallel, Map<String, byte[]> classes) throws IOException {
+        CompilerProperties properties = new CompilerProperties();
+        properties.getJar().setParallel(parallel);
+        properties.getJar().setParallelism(4);
+        JarBuilderService service = new JarBuilderService(properties, new CompilerMetrics(new SimpleMeterRegistry()));
+        try {
+            return service.buildJar(classes, "rules", "1.0", "test", "test", false, null,
+                Deflater.DEFAULT_COMPRESSION);
+        } finally {
+            service.destroy();
+        }
+    }
+}
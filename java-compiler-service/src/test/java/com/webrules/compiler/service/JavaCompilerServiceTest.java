@@ -0,0 +1,92 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.GenerationMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.webrules.compiler.service.TestModels.arrayField;
+import static com.webrules.compiler.service.TestModels.field;
+import static com.webrules.compiler.service.TestModels.model;
+import static com.webrules.compiler.service.TestModels.objectField;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JavaCompilerServiceTest {
+
+    @Test
+    void cachedBytecodeDoesNotDependOnWhichBackendCompiledItFirst() throws Exception {
+        DataModelDTO order = model("com.test.route", "Order", field("name", "string"), field("total", "number"));
+        // A model named List keeps the fast path away from every model of its package
+        DataModelDTO list = model("com.test.route", "List", field("size", "number"));
+        CompilerProperties properties = TestCompiler.properties(CompilerProperties.Backend.AUTO);
+        properties.getBytecodeCache().setEnabled(true);
+        
+        byte[] expected;
+        try (TestCompiler fresh = new TestCompiler(CompilerProperties.Backend.AUTO)) {
+            expected = fresh.build(List.of(order), CodegenOptions.DEFAULT, null).classes().get("com.test.route.Order");
+        }
+        try (TestCompiler compiler = new TestCompiler(properties)) {
+            byte[] withList = compiler.build(List.of(order, list), CodegenOptions.DEFAULT, null)
+                .classes().get("com.test.route.Order");
+            ModelBuild alone = compiler.build(List.of(order), CodegenOptions.DEFAULT, null);
+            
+            assertThat(withList).isNotEqualTo(expected);
+            assertThat(alone.rebuiltModels()).containsExactly("com.test.route.Order");
+            assertThat(alone.classes().get("com.test.route.Order")).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void rebuildsOnlyChangedModelsAndTheirDependents() throws Exception {
+        List<DataModelDTO> models = List.of(
+            model("com.test.inc", "Customer", field("name", "string")),
+            model("com.test.inc", "Order", objectField("customer", "Customer"), arrayField("lines", "Line")),
+            model("com.test.inc", "Line", field("sku", "string")),
+            model("com.test.inc", "Audit", field("at", "date")));
+        List<DataModelDTO> changed = List.of(models.get(0), models.get(1),
+            model("com.test.inc", "Line", field("sku", "string"), field("quantity", "number")), models.get(3));
+        
+        try (TestCompiler compiler = new TestCompiler(withBuildRegistry())) {
+            ModelBuild base = compiler.build(models, CodegenOptions.DEFAULT, null);
+            assertThat(base.rebuiltModels()).hasSize(4);
+            
+            ModelBuild unchanged = compiler.build(models, CodegenOptions.DEFAULT, base.buildId());
+            assertThat(unchanged.buildId()).isEqualTo(base.buildId());
+            assertThat(unchanged.rebuiltModels()).isEmpty();
+            assertThat(unchanged.reusedModels()).hasSize(4);
+            
+            ModelBuild next = compiler.build(changed, CodegenOptions.DEFAULT, base.buildId());
+            assertThat(next.buildId()).isNotEqualTo(base.buildId());
+            assertThat(next.rebuiltModels()).containsExactly("com.test.inc.Line", "com.test.inc.Order");
+            assertThat(next.reusedModels()).containsExactlyInAnyOrder("com.test.inc.Customer", "com.test.inc.Audit");
+            assertThat(next.classes().get("com.test.inc.Customer")).isEqualTo(base.classes().get("com.test.inc.Customer"));
+            assertThat(next.classes().get("com.test.inc.Line")).isNotEqualTo(base.classes().get("com.test.inc.Line"));
+            
+            ModelBuild onNext = compiler.build(changed, CodegenOptions.DEFAULT, next.buildId());
+            assertThat(onNext.rebuiltModels()).isEmpty();
+        }
+    }
+
+    @Test
+    void rebuildsEverythingOnAnUnknownBaseOrOtherOptions() throws Exception {
+        List<DataModelDTO> models = List.of(
+            model("com.test.inc", "Customer", field("name", "string")),
+            model("com.test.inc", "Order", objectField("customer", "Customer")));
+        
+        try (TestCompiler compiler = new TestCompiler(withBuildRegistry())) {
+            ModelBuild base = compiler.build(models, CodegenOptions.DEFAULT, null);
+            
+            assertThat(compiler.build(models, CodegenOptions.DEFAULT, "unknown").rebuiltModels()).hasSize(2);
+            CodegenOptions immutable = new CodegenOptions(GenerationMode.IMMUTABLE, false, false, false);
+            assertThat(compiler.build(models, immutable, base.buildId()).rebuiltModels()).hasSize(2);
+        }
+    }
+
+    private static CompilerProperties withBuildRegistry() {
+        CompilerProperties properties = TestCompiler.properties(CompilerProperties.Backend.AUTO);
+        properties.getBuildRegistry().setEnabled(true);
+        return properties;
+    }
+}
@@ -0,0 +1,41 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.dto.DataModelDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.webrules.compiler.service.TestModels.field;
+import static com.webrules.compiler.service.TestModels.model;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModelHasherTest {
+
+    @Test
+    void hashesMissingFieldsDifferentlyFromNoFields() {
+        DataModelDTO empty = model("com.x", "A");
+        DataModelDTO missing = model("com.x", "A");
+        missing.setFields(null);
+
+        assertThat(hash(missing)).isNotEqualTo(hash(empty));
+    }
+
+    @Test
+    void hashesMissingListsDifferentlyFromEmptyOnes() {
+        assertThat(new ModelHasher().add((List<String>) null).finish())
+            .isNotEqualTo(new ModelHasher().add(List.<String>of()).finish());
+    }
+
+    @Test
+    void ignoresDescriptions() {
+        DataModelDTO model = model("com.x", "A", field("a", "string"));
+        DataModelDTO described = model("com.x", "A", field("a", "string"));
+        described.setDescription("Only ends up in a comment");
+
+        assertThat(hash(described)).isEqualTo(hash(model));
+    }
+
+    private static String hash(DataModelDTO model) {
+        return new ModelHasher().add(model).finish();
+    }
+}
@@ -0,0 +1,215 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.DataModelFieldDTO;
+import com.webrules.compiler.dto.GenerationMode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.webrules.compiler.service.TestModels.arrayField;
+import static com.webrules.compiler.service.TestModels.field;
+import static com.webrules.compiler.service.TestModels.model;
+import static com.webrules.compiler.service.TestModels.objectField;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class ModelValidatorTest {
+
+    @Test
+    void acceptsValidModels() {
+        DataModelFieldDTO count = field("count", "number");
+        count.setDefaultValue("1_000");
+        DataModelFieldDTO mask = field("mask", "number");
+        mask.setDefaultValue("0x1F");
+        DataModelFieldDTO active = field("active", "boolean");
+        active.setDefaultValue("true");
+        DataModelFieldDTO since = field("since", "date");
+        since.setDefaultValue("2024-01-31T09:30");
+        DataModelFieldDTO label = field("label", "string");
+        label.setDefaultValue("say \"hi\"\n");
+
+        List<DataModelDTO> models = List.of(
+            model("com.x", "Order", objectField("customer", "Customer"), objectField("total", "java.math.BigDecimal"),
+                arrayField("lines", "Line"), count, mask, active, since, label),
+            model("com.x", "Customer", field("name", "string")),
+            model("com.x", "Line"));
+
+        assertThatCode(() -> ModelValidator.validate(models, CodegenOptions.DEFAULT)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void rejectsKeywordsAsNames() {
+        InvalidModelException e = invalid(model("com.x", "class", field("int", "string")));
+
+        assertThat(messages(e)).containsExactly(
+            "dataModels[0].name: name 'class' is a Java keyword",
+            "dataModels[0].fields[0].name: name 'int' is a Java keyword");
+    }
+
+    @Test
+    void rejectsKeywordsInPackageNames() {
+        InvalidModelException e = invalid(model("com.new.x", "A"));
+
+        assertThat(e.getProblems()).singleElement()
+            .satisfies(problem -> assertThat(problem.path()).isEqualTo("dataModels[0].packageName"));
+    }
+
+    @Test
+    void rejectsDuplicateModelsAndFields() {
+        InvalidModelException e = invalid(
+            model("com.x", "A", field("a", "string"), field("a", "number")),
+            model("com.x", "A"));
+
+        assertThat(messages(e)).containsExactly(
+            "dataModels[0].fields[1].name: name 'a' is used by another field",
+            "dataModels[1].name: duplicate model com.x.A");
+    }
+
+    @Test
+    void rejectsBadDefaultValues() {
+        DataModelFieldDTO number = field("n", "number");
+        number.setDefaultValue("1,5");
+        DataModelFieldDTO octal = field("o", "number");
+        octal.setDefaultValue("08");
+        DataModelFieldDTO bool = field("b", "boolean");
+        bool.setDefaultValue("yes");
+        DataModelFieldDTO date = field("d", "date");
+        date.setDefaultValue("tomorrow");
+
+        InvalidModelException e = invalid(model("com.x", "A", number, octal, bool, date));
+
+        assertThat(e.getProblems()).extracting(ModelValidator.Problem::path).containsExactly(
+            "dataModels[0].fields[0].defaultValue",
+            "dataModels[0].fields[1].defaultValue",
+            "dataModels[0].fields[2].defaultValue",
+            "dataModels[0].fields[3].defaultValue");
+        assertThat(e.getProblems()).extracting(ModelValidator.Problem::field).containsExactly("n", "o", "b", "d");
+    }
+
+    @Test
+    void rejectsUnknownReferences() {
+        InvalidModelException e = invalid(model("com.x", "A",
+            objectField("missing", "Missing"), objectField("qualified", "com.y.Missing"),
+            arrayField("items", "java.util.NoSuchClass")));
+
+        assertThat(e.getProblems()).extracting(ModelValidator.Problem::path).containsExactly(
+            "dataModels[0].fields[0].objectType",
+            "dataModels[0].fields[1].objectType",
+            "dataModels[0].fields[2].itemsType");
+        assertThat(e.getProblems()).allSatisfy(problem ->
+            assertThat(problem.message()).contains("is neither a model of the request nor a public JDK class"));
+    }
+
+    @Test
+    void rejectsNonPublicJdkClasses() {
+        InvalidModelException e = invalid(model("com.x", "A", objectField("internal", "sun.nio.ch.Net")));
+
+        assertThat(e.getProblemCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsMissingPackageFieldsAndTypes() {
+        DataModelDTO noFields = model("com.x", "B");
+        noFields.setFields(null);
+
+        InvalidModelException e = invalid(model(null, "A", field("a", null)), noFields);
+
+        assertThat(messages(e)).containsExactly(
+            "dataModels[0].packageName: packageName is missing",
+            "dataModels[0].fields[0].type: type is missing",
+            "dataModels[1].fields: fields is missing");
+    }
+
+    @Test
+    void acceptsModelsWithoutFields() {
+        assertThatCode(() -> ModelValidator.validate(List.of(model("com.x", "Empty")), CodegenOptions.DEFAULT))
+            .doesNotThrowAnyException();
+    }
+
+    @Test
+    void reservesNamesPerGenerationOption() {
+        List<DataModelDTO> models = List.of(model("com.x", "Codec", field("FIELD_COUNT", "number")));
+        CodegenOptions codecsAndAccessors = new CodegenOptions(GenerationMode.MUTABLE, false, true, true);
+
+        assertThatCode(() -> ModelValidator.validate(models, CodegenOptions.DEFAULT)).doesNotThrowAnyException();
+        InvalidModelException e = catchThrowableOfType(() -> ModelValidator.validate(models, codecsAndAccessors),
+            InvalidModelException.class);
+        assertThat(e.getProblems()).extracting(ModelValidator.Problem::path)
+            .containsExactly("dataModels[0].name", "dataModels[0].fields[0].name");
+    }
+
+    @Test
+    void resolvesReferencesToModelsAddedLater() {
+        ModelValidator validator = new ModelValidator(CodegenOptions.DEFAULT);
+
+        assertThat(validator.add(model("com.x", "A", objectField("b", "B")))).isTrue();
+        assertThat(validator.add(model("com.x", "B"))).isTrue();
+        assertThatCode(validator::finish).doesNotThrowAnyException();
+    }
+
+    @Test
+    void reportsJdkReferencesShadowedByModelsAddedLater() {
+        ModelValidator validator = new ModelValidator(CodegenOptions.DEFAULT);
+
+        assertThat(validator.add(model("com.x", "A", objectField("total", "java.math.BigDecimal"),
+            objectField("count", "Integer")))).isTrue();
+        assertThat(validator.add(model("com.x", "Integer"))).isTrue();
+        assertThat(validator.add(model("com.x", "java"))).isFalse();
+
+        InvalidModelException e = catchThrowableOfType(validator::finish, InvalidModelException.class);
+        assertThat(messages(e)).containsExactly(
+            "dataModels[0].fields[0].objectType: type 'java.math.BigDecimal' is shadowed by model com.x.java");
+    }
+
+    @Test
+    void countsAllProblemsButListsOnlyTheFirst() {
+        List<DataModelDTO> models = new ArrayList<>();
+        for (int i = 0; i < ModelValidator.MAX_PROBLEMS + 20; i++) {
+            models.add(model("com.x", "M" + i, field("if", "string")));
+        }
+
+        InvalidModelException e = catchThrowableOfType(() -> ModelValidator.validate(models, CodegenOptions.DEFAULT),
+            InvalidModelException.class);
+
+        assertThat(e.getProblemCount()).isEqualTo(ModelValidator.MAX_PROBLEMS + 20);
+        assertThat(e.getProblems()).hasSize(ModelValidator.MAX_PROBLEMS);
+        assertThat(e.getMessage()).startsWith("120 problems in the data models, first: dataModels[0].fields[0].name");
+    }
+
+    @Test
+    void problemsSurviveSerialization() throws Exception {
+        InvalidModelException e = invalid(model("com.x", "class", field("int", "string")));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(e);
+        }
+        InvalidModelException copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (InvalidModelException) in.readObject();
+        }
+
+        assertThat(copy.getProblems()).isEqualTo(e.getProblems());
+        assertThat(copy.getProblemCount()).isEqualTo(2);
+        assertThat(copy).hasMessage(e.getMessage());
+    }
+
+    private static InvalidModelException invalid(DataModelDTO... models) {
+        InvalidModelException e = catchThrowableOfType(
+            () -> ModelValidator.validate(Arrays.asList(models), CodegenOptions.DEFAULT), InvalidModelException.class);
+        assertThat(e).as("validation problems").isNotNull();
+        return e;
+    }
+
+    private static List<String> messages(InvalidModelException e) {
+        return e.getProblems().stream().map(ModelValidator.Problem::toString).toList();
+    }
+}
@@ -0,0 +1,123 @@
+package com.webrules.compiler.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelZipWriterTest {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 3, 15, 10, 20, 30);
+
+    private static ForkJoinPool pool;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * A manifest and enough compressible class-sized entries for several chunks, plus an
+     * empty entry and one with a non-ASCII name.
+     */
+    private static List<ParallelZipWriter.Entry> entries() {
+        List<ParallelZipWriter.Entry> entries = new ArrayList<>();
+        entries.add(new ParallelZipWriter.Entry(JarFile.MANIFEST_NAME,
+            "Manifest-Version: 1.0\r\nCreated-By: test\r\n\r\n".getBytes(StandardCharsets.UTF_8)));
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            byte[] data = new byte[500 + random.nextInt(3000)];
+            for (int j = 0; j < data.length; j++) {
+                data[j] = (byte) ('a' + random.nextInt(8));
+            }
+            entries.add(new ParallelZipWriter.Entry("com/test/zip/Model" + i + ".class", data));
+        }
+        entries.add(new ParallelZipWriter.Entry("com/test/zip/Empty.class", new byte[0]));
+        entries.add(new ParallelZipWriter.Entry("com/test/zip/Größe.class", "größe".getBytes(StandardCharsets.UTF_8)));
+        return entries;
+    }
+
+    @Test
+    void writesJarsThatJarFileReads() throws IOException {
+        List<ParallelZipWriter.Entry> entries = entries();
+        Path jar = directory.resolve("test.jar");
+        Files.write(jar, write(pool, Deflater.DEFAULT_COMPRESSION, entries));
+        
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            assertThat(jarFile.getManifest().getMainAttributes().getValue("Created-By")).isEqualTo("test");
+            List<JarEntry> read = Collections.list(jarFile.entries());
+            assertThat(read).extracting(ZipEntry::getName)
+                .containsExactlyElementsOf(entries.stream().map(ParallelZipWriter.Entry::name).toList());
+            for (int i = 0; i < entries.size(); i++) {
+                JarEntry entry = read.get(i);
+                assertThat(entry.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+                assertThat(entry.getTimeLocal()).isEqualTo(TIMESTAMP);
+                assertThat(jarFile.getInputStream(entry).readAllBytes()).as(entry.getName())
+                    .isEqualTo(entries.get(i).data());
+            }
+        }
+    }
+
+    @Test
+    void storesEntriesUncompressedAtLevelZero() throws IOException {
+        List<ParallelZipWriter.Entry> entries = entries();
+        Path jar = directory.resolve("stored.jar");
+        Files.write(jar, write(pool, Deflater.NO_COMPRESSION, entries));
+        
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            assertThat(jarFile.size()).isEqualTo(entries.size());
+            for (ParallelZipWriter.Entry expected : entries) {
+                JarEntry entry = jarFile.getJarEntry(expected.name());
+                assertThat(entry.getMethod()).isEqualTo(ZipEntry.STORED);
+                assertThat(jarFile.getInputStream(entry).readAllBytes()).isEqualTo(expected.data());
+            }
+        }
+    }
+
+    @Test
+    void writesTheSameBytesOnAnyNumberOfThreads() throws IOException {
+        List<ParallelZipWriter.Entry> entries = entries();
+        byte[] sequential = write(Runnable::run, 6, entries);
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            assertThat(write(pool, 6, entries)).isEqualTo(sequential);
+            assertThat(write(single, 6, entries)).isEqualTo(sequential);
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    private static byte[] write(Executor executor, int level, List<ParallelZipWriter.Entry> entries)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ParallelZipWriter(executor, level, TIMESTAMP).write(entries, out);
+        return out.toByteArray();
+    }
+}
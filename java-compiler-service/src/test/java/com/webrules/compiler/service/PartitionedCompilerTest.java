@@ -0,0 +1,108 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.DataModelDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.webrules.compiler.service.TestModels.field;
+import static com.webrules.compiler.service.TestModels.model;
+import static com.webrules.compiler.service.TestModels.objectField;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class PartitionedCompilerTest {
+
+    /**
+     * Eight chains of three models each; every chain is one connected component.
+     */
+    private static List<DataModelDTO> chains() {
+        List<DataModelDTO> models = new ArrayList<>();
+        for (int chain = 0; chain < 8; chain++) {
+            models.add(model("com.test.part", "Head" + chain, objectField("next", "Middle" + chain)));
+            models.add(model("com.test.part", "Middle" + chain, objectField("next", "Tail" + chain)));
+            models.add(model("com.test.part", "Tail" + chain, field("value", "number")));
+        }
+        return models;
+    }
+
+    private static CompilerProperties properties(int parallelism, int minPartitionModels) {
+        CompilerProperties properties = TestCompiler.properties(CompilerProperties.Backend.JAVAC);
+        properties.getPartitioning().setParallelism(parallelism);
+        properties.getPartitioning().setMinPartitionModels(minPartitionModels);
+        return properties;
+    }
+
+    @Test
+    void keepsConnectedModelsTogetherInBalancedPartitions() {
+        PartitionedCompiler compiler = new PartitionedCompiler(properties(4, 2));
+        try {
+            List<List<DataModelDTO>> partitions = compiler.partition(chains());
+            
+            assertThat(partitions).hasSize(4).allSatisfy(partition -> assertThat(partition).hasSize(6));
+            for (List<DataModelDTO> partition : partitions) {
+                List<String> names = partition.stream().map(DataModelDTO::getName).toList();
+                for (String name : names) {
+                    String chain = name.replaceAll("\\D", "");
+                    assertThat(names).contains("Head" + chain, "Middle" + chain, "Tail" + chain);
+                }
+                // Request order within a partition
+                assertThat(names.get(0)).startsWith("Head");
+            }
+        } finally {
+            compiler.destroy();
+        }
+    }
+
+    @Test
+    void leavesSmallOrConnectedBatchesWhole() {
+        PartitionedCompiler compiler = new PartitionedCompiler(properties(4, 32));
+        PartitionedCompiler parallel = new PartitionedCompiler(properties(4, 2));
+        try {
+            assertThat(compiler.partition(chains())).hasSize(1);
+            assertThat(parallel.partition(chains().subList(0, 3))).hasSize(1);
+        } finally {
+            compiler.destroy();
+            parallel.destroy();
+        }
+    }
+
+    @Test
+    void compilesPartitionsToTheSameClassesAsOneBatch() throws Exception {
+        Map<String, byte[]> whole;
+        try (TestCompiler single = new TestCompiler(properties(1, 2))) {
+            whole = single.build(chains(), CodegenOptions.DEFAULT, null).classes();
+        }
+        PartitionedCompiler partitioned = new PartitionedCompiler(properties(4, 2));
+        try (TestCompiler compiler = new TestCompiler(properties(1, 2))) {
+            Map<String, Map<String, byte[]>> byModel = partitioned.compile(chains(), compiler.service(),
+                CodegenOptions.DEFAULT, new HashMap<>(), CancellationToken.NONE);
+            
+            assertThat(byModel).hasSize(24);
+            byModel.forEach((className, classes) ->
+                assertThat(classes.get(className)).as(className).isEqualTo(whole.get(className)));
+        } finally {
+            partitioned.destroy();
+        }
+    }
+
+    @Test
+    void reportsTheErrorsOfAllPartitionsTogether() throws Exception {
+        List<DataModelDTO> models = chains();
+        models.set(2, model("com.test.part", "Tail0", objectField("missing", "Missing0")));
+        models.set(23, model("com.test.part", "Tail7", objectField("missing", "Missing7")));
+        PartitionedCompiler partitioned = new PartitionedCompiler(properties(4, 2));
+        try (TestCompiler compiler = new TestCompiler(properties(1, 2))) {
+            CompilationFailedException e = catchThrowableOfType(() -> partitioned.compile(models, compiler.service(),
+                CodegenOptions.DEFAULT, new HashMap<>(), CancellationToken.NONE), CompilationFailedException.class);
+            
+            assertThat(e.getErrors()).contains("com.test.part.Tail0", "Missing0", "com.test.part.Tail7", "Missing7");
+        } finally {
+            partitioned.destroy();
+        }
+    }
+}
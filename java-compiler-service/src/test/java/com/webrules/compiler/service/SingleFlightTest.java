@@ -0,0 +1,184 @@
+package com.webrules.compiler.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String> flight = new SingleFlight<>("test-flight");
+    private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+    private final AtomicInteger runs = new AtomicInteger();
+
+    /**
+     * Blocks until released and records whether it was interrupted instead.
+     */
+    private final Callable<String> work = () -> {
+        runs.incrementAndGet();
+        started.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+            throw e;
+        }
+        return "result";
+    };
+
+    @AfterEach
+    void stopCallers() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void callersOfARunningComputationShareItsResult() throws Exception {
+        Future<String> first = callers.submit(() -> flight.execute("key", work, CancellationToken.NONE));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> second = callers.submit(() -> flight.execute("key", work, CancellationToken.create()));
+        awaitCoalesced(1);
+        
+        release.countDown();
+        
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(runs).hasValue(1);
+        assertThat(flight.execute("key", work, CancellationToken.NONE)).isEqualTo("result");
+        assertThat(runs).hasValue(2);
+    }
+
+    @Test
+    void waiterThatGivesUpLeavesTheOthersWaiting() throws Exception {
+        Future<String> patient = callers.submit(() -> flight.execute("key", work, CancellationToken.NONE));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CancellationToken token = CancellationToken.create();
+        Future<String> impatient = callers.submit(() -> flight.execute("key", work, token));
+        awaitCoalesced(1);
+        
+        token.cancel(CancellationToken.Reason.ABANDONED);
+        
+        assertThatThrownBy(() -> impatient.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(CompilationCancelledException.class);
+        assertThat(patient.isDone()).isFalse();
+        release.countDown();
+        assertThat(patient.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(interrupted.getCount()).isEqualTo(1);
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void waiterWithADeadlineGivesUpAlone() throws Exception {
+        Future<String> patient = callers.submit(() -> flight.execute("key", work, CancellationToken.NONE));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        
+        assertThatThrownBy(() -> flight.execute("key", work, CancellationToken.withTimeout(Duration.ofMillis(50))))
+            .isInstanceOf(CompilationCancelledException.class);
+        
+        release.countDown();
+        assertThat(patient.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(interrupted.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void computationIsInterruptedWhenTheLastWaiterLeaves() throws Exception {
+        CancellationToken first = CancellationToken.create();
+        CancellationToken second = CancellationToken.create();
+        Future<String> a = callers.submit(() -> flight.execute("key", work, first));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> b = callers.submit(() -> flight.execute("key", work, second));
+        awaitCoalesced(1);
+        
+        first.cancel(CancellationToken.Reason.ABANDONED);
+        assertThatThrownBy(() -> a.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(CompilationCancelledException.class);
+        assertThat(interrupted.getCount()).isEqualTo(1);
+        
+        second.cancel(CancellationToken.Reason.ABANDONED);
+        assertThatThrownBy(() -> b.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(CompilationCancelledException.class);
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void callersShareTheFailure() throws Exception {
+        CountDownLatch failing = new CountDownLatch(1);
+        Callable<String> failure = () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            failing.await();
+            throw new IllegalStateException("broken");
+        };
+        Future<String> first = callers.submit(() -> flight.execute("key", failure, CancellationToken.NONE));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> second = callers.submit(() -> flight.execute("key", failure, CancellationToken.NONE));
+        awaitCoalesced(1);
+        
+        failing.countDown();
+        
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void callersJoiningAndLeavingTheSameKeyAtOnceDoNotDeadlock() throws Exception {
+        Callable<String> shortWork = () -> {
+            Thread.sleep(1);
+            return "result";
+        };
+        ExecutorService threads = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                boolean patient = t == 0;
+                results.add(threads.submit(() -> {
+                    int served = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        CancellationToken token = patient ? CancellationToken.NONE : CancellationToken.withTimeout(
+                            Duration.ofNanos(ThreadLocalRandom.current().nextLong(200_000)));
+                        try {
+                            assertThat(flight.execute("key", shortWork, token)).isEqualTo("result");
+                            served++;
+                        } catch (CompilationCancelledException e) {
+                            assertThat(patient).isFalse();
+                        }
+                    }
+                    return served;
+                }));
+            }
+            
+            assertThat(results.getFirst().get(60, TimeUnit.SECONDS)).isEqualTo(1000);
+            for (Future<Integer> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+        assertThat(flight.execute("key", shortWork, CancellationToken.NONE)).isEqualTo("result");
+    }
+
+    private void awaitCoalesced(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flight.getCoalescedCount() < count) {
+            assertThat(System.nanoTime()).as("waiting for callers to join").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+}
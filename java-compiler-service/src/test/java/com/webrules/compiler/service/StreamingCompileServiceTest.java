@@ -0,0 +1,97 @@
+package com.webrules.compiler.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webrules.compiler.config.CompilerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingCompileServiceTest {
+
+    @TempDir
+    Path artifacts;
+
+    private TestCompiler compiler;
+    private CompileScheduler scheduler;
+    private JarBuilderService jarBuilder;
+    private StreamingCompileService service;
+
+    @BeforeEach
+    void startService() {
+        CompilerProperties properties = TestCompiler.properties(CompilerProperties.Backend.AUTO);
+        properties.getJobs().setArtifactDir(artifacts);
+        CompilerMetrics metrics = new CompilerMetrics(new SimpleMeterRegistry());
+        compiler = new TestCompiler(properties);
+        scheduler = new CompileScheduler(properties, metrics);
+        jarBuilder = new JarBuilderService(properties, metrics);
+        service = new StreamingCompileService(new ObjectMapper(), compiler.service(), jarBuilder, scheduler,
+            new ArtifactStore(properties), metrics, properties);
+    }
+
+    @AfterEach
+    void stopService() throws InterruptedException {
+        scheduler.destroy();
+        jarBuilder.destroy();
+        compiler.close();
+    }
+
+    @Test
+    void compilesModelsReferringToJdkClassesBeforeTheInputEnds() throws Exception {
+        PipedOutputStream body = new PipedOutputStream();
+        PipedInputStream input = new PipedInputStream(body);
+        CompletableFuture<StreamingCompileService.StreamedJar> result =
+            CompletableFuture.supplyAsync(() -> compile(input));
+        
+        write(body, """
+            {"dataModels": [
+              {"name": "Price", "packageName": "com.test.stream", "fields": [
+                {"name": "amount", "type": "object", "objectType": "java.math.BigDecimal"},
+                {"name": "since", "type": "array", "itemsType": "java.time.LocalDate"}]},""");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (scheduler.getSubmittedCount() == 0) {
+            assertThat(System.nanoTime()).as("waiting for the first batch").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+        
+        write(body, """
+              {"name": "Item", "packageName": "com.test.stream", "fields": [
+                {"name": "price", "type": "object", "objectType": "Price"}]}
+            ]}""");
+        body.close();
+        
+        StreamingCompileService.StreamedJar jar = result.get(30, TimeUnit.SECONDS);
+        assertThat(jar.modelCount()).isEqualTo(2);
+        assertThat(scheduler.getSubmittedCount()).isEqualTo(2);
+        try (JarFile jarFile = new JarFile(jar.path().toFile())) {
+            assertThat(jarFile.getEntry("com/test/stream/Price.class")).isNotNull();
+            assertThat(jarFile.getEntry("com/test/stream/Item.class")).isNotNull();
+        }
+        service.release(jar);
+    }
+
+    private StreamingCompileService.StreamedJar compile(PipedInputStream input) {
+        try {
+            return service.compile(input);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void write(OutputStream body, String json) throws Exception {
+        body.write(json.getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+}
@@ -0,0 +1,70 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.config.CompilerProperties;
+import com.webrules.compiler.dto.DataModelDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiler service outside Spring, with the bytecode cache and build registry off unless
+ * the given settings turn them on.
+ */
+final class TestCompiler implements AutoCloseable {
+
+    private final CompilerContextPool compilerPool;
+    private final JavaCompilerService service;
+
+    TestCompiler(CompilerProperties.Backend backend) {
+        this(properties(backend));
+    }
+
+    TestCompiler(CompilerProperties properties) {
+        this.compilerPool = new CompilerContextPool(properties);
+        this.service = new JavaCompilerService(properties, compilerPool, new BytecodeCache(properties),
+            new BytecodeModelCompiler(), new BuildRegistry(properties), new CompilerMetrics(new SimpleMeterRegistry()),
+            new PartitionedCompiler(properties));
+    }
+
+    static CompilerProperties properties(CompilerProperties.Backend backend) {
+        CompilerProperties properties = new CompilerProperties();
+        properties.setBackend(backend);
+        properties.getBytecodeCache().setEnabled(false);
+        properties.getBuildRegistry().setEnabled(false);
+        return properties;
+    }
+
+    JavaCompilerService service() {
+        return service;
+    }
+
+    ModelBuild build(List<DataModelDTO> models, CodegenOptions options, String baseBuildId) throws Exception {
+        return service.build(models, options, baseBuildId, CompileProgressListener.NONE, CancellationToken.NONE);
+    }
+
+    /**
+     * Compiles the models and loads the result into a class loader of its own.
+     */
+    ClassLoader load(List<DataModelDTO> models, CodegenOptions options) throws Exception {
+        return load(build(models, options, null).classes());
+    }
+
+    static ClassLoader load(Map<String, byte[]> classes) {
+        return new ClassLoader(TestCompiler.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                byte[] bytes = classes.get(name);
+                if (bytes == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        compilerPool.destroy();
+    }
+}
@@ -0,0 +1,43 @@
+package com.webrules.compiler.service;
+
+import com.webrules.compiler.dto.DataModelDTO;
+import com.webrules.compiler.dto.DataModelFieldDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Builders for the data models the tests compile and validate.
+ */
+final class TestModels {
+
+    private TestModels() {
+    }
+
+    static DataModelDTO model(String packageName, String name, DataModelFieldDTO... fields) {
+        DataModelDTO model = new DataModelDTO();
+        model.setPackageName(packageName);
+        model.setName(name);
+        model.setFields(new ArrayList<>(Arrays.asList(fields)));
+        return model;
+    }
+
+    static DataModelFieldDTO field(String name, String type) {
+        DataModelFieldDTO field = new DataModelFieldDTO();
+        field.setName(name);
+        field.setType(type);
+        return field;
+    }
+
+    static DataModelFieldDTO objectField(String name, String objectType) {
+        DataModelFieldDTO field = field(name, "object");
+        field.setObjectType(objectType);
+        return field;
+    }
+
+    static DataModelFieldDTO arrayField(String name, String itemsType) {
+        DataModelFieldDTO field = field(name, "array");
+        field.setItemsType(itemsType);
+        return field;
+    }
+}